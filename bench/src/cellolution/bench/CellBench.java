@@ -0,0 +1,117 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import cellolution.*;
+import cellolution.cell.*;
+import cellolution.util.*;
+
+/**
+ * Benchmarks of the per-cell work: the adsorption of substances by a cell and the random generator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class CellBench {
+
+	/** the number of organisms of the fixture */
+	private static final int ORGANISM_COUNT = 1000;
+
+	/** the bound of the random values */
+	@Param({"6", "1000"})
+	public int bound;
+
+	/** the cells of the fixture, one per organism */
+	private ArrayList<AbstractCell> cells;
+	/** the indices of the water pixels the cells are located at, within the grid */
+	private int indices[];
+	/** the substance planes of the fixture ocean at setup */
+	private byte initialSubstances[][];
+	/** the substance planes adsorbed from, reset each iteration (adsorption drains them) */
+	private byte substances[][];
+	/** the index of the next cell */
+	private int cellIndex;
+	/** the random generator */
+	private FastRandom random;
+
+	/**
+	 * Creates the fixture ocean.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+
+		OceanFixture fixture = new OceanFixture(1, ORGANISM_COUNT, OceanFixture.SEED);
+		cells = new ArrayList<>(ORGANISM_COUNT);
+		fixture.getOrganisms().forEach(organism -> cells.add(organism.getCells().get(0)));
+		OceanGrid grid = fixture.getOcean().getGrid();
+		indices = new int[cells.size()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = grid.index(cells.get(i).getColumn(), cells.get(i).getRow());
+		}
+		byte planes[][] = grid.getPlanes();
+		initialSubstances = new byte[planes.length][];
+		substances = new byte[planes.length][];
+		for (int i = 0; i < planes.length; i++) {
+			initialSubstances[i] = planes[i].clone();
+			substances[i] = planes[i].clone();
+		}
+		random = new FastRandom(OceanFixture.SEED);
+	}
+
+	/**
+	 * Restores the substances drained by the former iteration.
+	 */
+	@Setup(Level.Iteration)
+	public void resetSubstances() {
+
+		for (int i = 0; i < substances.length; i++) {
+			System.arraycopy(initialSubstances[i], 0, substances[i], 0, substances[i].length);
+		}
+	}
+
+	/**
+	 * A cell adsorbs the substances of the water pixel it is located at.
+	 */
+	@Benchmark
+	public void adsorbSustances() {
+
+		if (cellIndex == cells.size()) {
+			cellIndex = 0;
+		}
+		cells.get(cellIndex).adsorbSustances(substances, indices[cellIndex]);
+		cellIndex++;
+	}
+
+	/**
+	 * A random value between zero and a bound.
+	 * 
+	 * @return the value, consumed by JMH
+	 */
+	@Benchmark
+	public int fastRandomNextInt() {
+
+		return random.nextInt(bound);
+	}
+}
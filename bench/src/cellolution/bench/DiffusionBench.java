@@ -0,0 +1,131 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import cellolution.*;
+
+/**
+ * Benchmark of one diffusion step of the ocean with the scalar and the vector kernel, on the default 
+ * ocean (800x450) and an ocean scaled by 2 (1600x900). The setup checks that both kernels compute 
+ * exactly the same next planes of the fixture ocean.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class DiffusionBench {
+
+	/** the number of diffusion steps with different roundings checked by the setup */
+	private static final int CHECKED_STEPS = 5;
+
+	/** the scale of the ocean */
+	@Param({"1", "2"})
+	public int scale;
+	/** the diffusion kernel */
+	@Param({"scalar", "vector"})
+	public String kernel;
+
+	/** the diffusion of the fixture ocean */
+	private Diffusion diffusion;
+	/** the current diffusion step */
+	private int step;
+
+	/**
+	 * Checks that the scalar and the vector kernel compute exactly the same next planes: for some 
+	 * diffusion steps with different roundings, all columns of the ocean are computed by each kernel, 
+	 * starting from the same current planes.
+	 * 
+	 * @param ocean				the ocean
+	 * @param vectorKernel		the vector kernel
+	 */
+	private static void checkKernels(Ocean ocean, DiffusionKernel vectorKernel) {
+
+		OceanGrid grid = ocean.getGrid();
+		DiffusionKernel scalarKernel = new ScalarDiffusionKernel(grid);
+		int bottomRows[] = ocean.getOceanBorders().getBottomBorderRows();
+		Random random = new Random(OceanFixture.SEED);
+		int rounding[] = new int[Diffusion.DIFFUSION_DIVIDER];
+		for (int step = 0; step < CHECKED_STEPS; step++) {
+			for (int i = 1; i < rounding.length; i++) {
+				rounding[i] = (random.nextInt(rounding.length) + i) / rounding.length;
+			}
+			byte scalarPlanes[][] = computeColumns(grid, scalarKernel, bottomRows, rounding);
+			byte vectorPlanes[][] = computeColumns(grid, vectorKernel, bottomRows, rounding);
+			if (!Arrays.deepEquals(scalarPlanes, vectorPlanes)) {
+				throw new IllegalStateException("The " + vectorKernel.getName() + " kernel computes other values than the " 
+						+ scalarKernel.getName() + " kernel, " + grid.getCellColumns() + "x" + grid.getCellRows());
+			}
+		}
+	}
+
+	/**
+	 * Computes all columns of the ocean with diffusion into the next planes.
+	 * 
+	 * @param grid				all pixels of the ocean
+	 * @param kernel			the diffusion kernel
+	 * @param bottomRows		the last row of a water pixel of each column, negative for rock only
+	 * @param rounding			the rounding of the remainders of the diffusion division
+	 * @return a copy of the next planes
+	 */
+	private static byte[][] computeColumns(OceanGrid grid, DiffusionKernel kernel, int bottomRows[], int rounding[]) {
+
+		kernel.nextStep(rounding);
+		for (int col = 0; col < grid.getCellColumns() - 2; col++) {
+			if (bottomRows[col] >= 0) {
+				kernel.computeColumn(col, bottomRows[col]);
+			}
+		}
+		byte nextPlanes[][] = grid.getNextPlanes();
+		byte copies[][] = new byte[nextPlanes.length][];
+		for (int i = 0; i < nextPlanes.length; i++) {
+			copies[i] = nextPlanes[i].clone();
+		}
+		return copies;
+	}
+
+	/**
+	 * Creates the fixture ocean, checks the kernels and sets the kernel of the benchmark.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+
+		Ocean ocean = new OceanFixture(scale, 0, OceanFixture.SEED).getOcean();
+		DiffusionKernel vectorKernel = Diffusion.createVectorKernel(ocean.getGrid());
+		if (vectorKernel == null) {
+			throw new IllegalStateException("The vector kernel needs --add-modules jdk.incubator.vector");
+		}
+		checkKernels(ocean, vectorKernel);
+		diffusion = ocean.getDiffusion();
+		diffusion.setKernel(kernel.equals("scalar") ? new ScalarDiffusionKernel(ocean.getGrid()) : vectorKernel);
+	}
+
+	/**
+	 * One diffusion step of the ocean.
+	 */
+	@Benchmark
+	public void nextOceanDiffusionStep() {
+
+		diffusion.nextOceanDiffusionStep(++step);
+	}
+}
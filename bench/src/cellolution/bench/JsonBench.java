@@ -0,0 +1,95 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.bench;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import cellolution.*;
+import cellolution.cell.*;
+
+/**
+ * Benchmarks of saving and loading a simulation as JSON file (default ocean, 1000 organisms).
+ * Loading parses the file and creates the organisms from it, as an OrganismMgr of the ocean does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class JsonBench {
+
+	/** the number of organisms of the fixture */
+	private static final int ORGANISM_COUNT = 1000;
+
+	/** the ocean of the fixture */
+	private Ocean ocean;
+	/** the application data of the fixture */
+	private Data data;
+	/** the temporary simulation file */
+	private File file;
+
+	/**
+	 * Creates the fixture ocean and its simulation file.
+	 * 
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		ocean = new OceanFixture(1, ORGANISM_COUNT, OceanFixture.SEED).getOcean();
+		data = Main.getData();
+		file = File.createTempFile("CellolutionBench", ".json");
+		file.deleteOnExit();
+		data.writeSimulationData(file.getPath());
+	}
+
+	/**
+	 * Deletes the temporary simulation file.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		file.delete();
+	}
+
+	/**
+	 * Reads the simulation file, including all organisms, then releases the file.
+	 * 
+	 * @return the organisms read from the file
+	 */
+	@Benchmark
+	public OrganismMgr readSimulationData() {
+
+		data.readSimulationData(file.getPath());
+		OrganismMgr organismMgr = new OrganismMgr(ocean);		// reads the organisms of the file
+		data.releaseSimulationData();
+		return organismMgr;
+	}
+
+	/**
+	 * Writes the simulation file.
+	 */
+	@Benchmark
+	public void writeSimulationData() {
+
+		data.writeSimulationData(file.getPath());
+	}
+}
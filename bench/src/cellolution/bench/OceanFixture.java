@@ -0,0 +1,125 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.bench;
+
+import java.util.*;
+
+import cellolution.*;
+import cellolution.cell.*;
+
+/**
+ * The fixture of the benchmarks: a reproducible ocean without display. The same seed and the 
+ * same parameters create the same ocean with the same organisms.
+ * 
+ * <pre>
+ * Usage:
+ * 
+ * 	OceanFixture fixture = new OceanFixture(1, 1000, OceanFixture.SEED);
+ * 	Ocean ocean = fixture.getOcean();
+ * </pre>
+ */
+public class OceanFixture {
+
+	/** the default seed of the benchmarks */
+	public static final long SEED = 42;
+	/** the number of columns of the default ocean (scale 1) */
+	public static final int CELL_COLUMNS = 800;
+	/** the number of rows of the default ocean (scale 1) */
+	public static final int CELL_ROWS = 450;
+	/** the energy of the organisms created by the fixture */
+	private static final int ENERGY = 30000;
+
+	/** the ocean */
+	private final Ocean ocean;
+	/** the organisms added by the fixture, in the order of creation */
+	private final ArrayList<Organism> organisms;
+	/** a seeded random generator to choose positions, independent of the simulation */
+	private final Random random;
+
+	/**
+	 * Creates the ocean and adds organisms at random water pixels (alternating algae and H2S eaters).
+	 * 
+	 * @param scale				the scale of the ocean: 1 for 800x450, 2 for 1600x900, ...
+	 * @param organismCount		the number of organisms to add (in addition to the ones of a new ocean)
+	 * @param seed				the seed of all random generators
+	 */
+	public OceanFixture(int scale, int organismCount, long seed) {
+
+		ocean = Main.createHeadless(CELL_COLUMNS * scale, CELL_ROWS * scale, seed).getOcean();
+		organisms = new ArrayList<>(organismCount);
+		random = new Random(seed);
+		OrganismMgr organismMgr = ocean.getOrganismMgr();
+		while (organisms.size() < organismCount) {
+			int col = 2 + random.nextInt(getCellColumns() - 4);
+			int row = 1 + random.nextInt(getCellRows() - 2);
+			if (!ocean.isWater(col, row) || organismMgr.hasCellOn(col, row)) {
+				continue;
+			}
+			AbstractCell cell = organisms.size() % 2 == 0 
+					? SingleAlgaeCell.create(col, row, ENERGY) : SingleH2sEaterCell.create(col, row, ENERGY);
+			organisms.add(cell.getOrganism());
+		}
+	}
+
+	/**
+	 * @return the number of columns of the ocean
+	 */
+	public int getCellColumns() {
+
+		return Main.getCellColumns();
+	}
+
+	/**
+	 * @return the number of rows of the ocean
+	 */
+	public int getCellRows() {
+
+		return Main.getCellRows();
+	}
+
+	/**
+	 * @return the ocean
+	 */
+	public Ocean getOcean() {
+
+		return ocean;
+	}
+
+	/**
+	 * @return the organisms added by the fixture, in the order of creation
+	 */
+	public ArrayList<Organism> getOrganisms() {
+
+		return organisms;
+	}
+
+	/**
+	 * Creates random pixel coordinates within the ocean, e.g. to probe the occupancy of pixels.
+	 * 
+	 * @param count		the number of coordinates
+	 * @return the coordinates: column, row, column, row, ...
+	 */
+	public int[] randomPositions(int count) {
+
+		int positions[] = new int[count * 2];
+		for (int i = 0; i < positions.length; i += 2) {
+			positions[i] = random.nextInt(getCellColumns());
+			positions[i + 1] = random.nextInt(getCellRows());
+		}
+		return positions;
+	}
+}
@@ -0,0 +1,115 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import cellolution.cell.*;
+
+/**
+ * Benchmarks of the spatial queries of organisms, with 100, 1000 and 10000 organisms in the default ocean: 
+ * the occupancy of a pixel, the free space around an organism and the rocks in the moving direction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class OrganismBench {
+
+	/** the number of probed positions (a power of two) */
+	private static final int PROBES = 1024;
+
+	/** the number of organisms within the ocean */
+	@Param({"100", "1000", "10000"})
+	public int organismCount;
+
+	/** the organism manager of the fixture ocean */
+	private OrganismMgr organismMgr;
+	/** the organisms of the fixture */
+	private ArrayList<Organism> organisms;
+	/** the probed positions: column, row, column, row, ... */
+	private int positions[];
+	/** the index of the next probe */
+	private int probe;
+	/** the index of the next organism */
+	private int organismIndex;
+
+	/**
+	 * Creates the fixture ocean.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+
+		OceanFixture fixture = new OceanFixture(1, organismCount, OceanFixture.SEED);
+		organismMgr = fixture.getOcean().getOrganismMgr();
+		organisms = fixture.getOrganisms();
+		positions = fixture.randomPositions(PROBES);
+	}
+
+	/**
+	 * Tests if a cell occupies a pixel.
+	 * 
+	 * @return the result, consumed by JMH
+	 */
+	@Benchmark
+	public boolean hasCellOn() {
+
+		int i = (probe++ & (PROBES - 1)) * 2;
+		return organismMgr.hasCellOn(positions[i], positions[i + 1]);
+	}
+
+	/**
+	 * Tests the free space around an organism, as the replication does.
+	 * 
+	 * @return the result, consumed by JMH
+	 */
+	@Benchmark
+	public boolean hasFreeSpace() {
+
+		Organism organism = nextOrganism();
+		return organism.hasFreeSpace(organism.getDimensionMax() + 1);
+	}
+
+	/**
+	 * Tests the rocks in the moving direction of an organism, as moving does.
+	 * 
+	 * @return the result, consumed by JMH
+	 */
+	@Benchmark
+	public boolean canMoveDueToRocks() {
+
+		Organism organism = nextOrganism();
+		return Mover.canMoveDueToRocks(organism, organism.getMinColumn(), organism.getMaxColumn(), 
+				organism.getMinRow(), organism.getMaxRow());
+	}
+
+	/**
+	 * @return the next organism of the fixture, cyclic
+	 */
+	private Organism nextOrganism() {
+
+		if (organismIndex == organisms.size()) {
+			organismIndex = 0;
+		}
+		return organisms.get(organismIndex++);
+	}
+}
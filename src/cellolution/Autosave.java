@@ -0,0 +1,270 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import cellolution.util.*;
+
+/**
+ * Saves the simulation without pausing it (copy-on-write): the simulation is captured in memory 
+ * at a tick boundary on the simulation thread (copying arrays only, see SimCapture), then encoded 
+ * and written by a background thread to a temporary file, which replaces the file atomically when 
+ * complete - a crash during writing never damages the previous file.
+ * 
+ * The autosave file is saved periodically (wall-clock interval) and rotated: the previous autosaves 
+ * are kept as numbered backups, e.g. CellolutionAutosave.1.cellsim is the previous one.
+ * Other saves (e.g. "Save as") are requested by save() and performed at the next tick boundary.
+ * 
+ * <pre>
+ * Usage:
+ * 
+ * 	clock.schedule("Autosave", Autosave.PERIOD_TICKS, tick -> autosave.tick(tick));
+ * 	autosave.save("MySimulation.json");		// any thread, e.g. the event dispatch thread
+ * </pre>
+ */
+public class Autosave {
+
+	/** the file name of the autosave */
+	public static final String AUTOSAVE_FILE_NAME = "CellolutionAutosave" + SimSnapshot.FILE_EXTENSION;
+	/** the period of the autosave task in ticks, serving requested saves and checking the interval */
+	public static final int PERIOD_TICKS = 10;
+	/** the extension of a file while it is written */
+	private static final String TEMP_EXTENSION = ".tmp";
+	/** the size of the buffer writing the file */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** the time to wait for pending writes on shutdown in seconds */
+	private static final int SHUTDOWN_WAIT_SECONDS = 60;
+
+	/** the background thread writing the captured simulations, shared by all oceans, null until needed */
+	private static ExecutorService writer;
+	/** the number of captured simulations not yet written */
+	private static final AtomicInteger pendingWrites = new AtomicInteger();
+
+	/** the ocean of the simulation */
+	private final Ocean ocean;
+	/** the interval between autosaves in milliseconds, zero if autosave is off */
+	private final long intervalMillis;
+	/** the number of rotated backups of the autosave file */
+	private final int backupCount;
+	/** the file names of requested saves, performed at the next tick boundary */
+	private final ConcurrentLinkedQueue<String> requests;
+	/** the time of the last autosave (or of the construction) in milliseconds */
+	private long lastAutosaveMillis;
+
+	/**
+	 * Construction.
+	 * 
+	 * @param ocean				the ocean of the simulation
+	 * @param intervalMinutes	the interval between autosaves in minutes, zero if autosave is off
+	 * @param backupCount		the number of rotated backups of the autosave file
+	 */
+	public Autosave(Ocean ocean, int intervalMinutes, int backupCount) {
+
+		this.ocean = ocean;
+		this.intervalMillis = intervalMinutes * 60_000L;
+		this.backupCount = backupCount;
+		requests = new ConcurrentLinkedQueue<>();
+		lastAutosaveMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the file name of a numbered backup: the number is inserted before the extension, 
+	 * e.g. CellolutionAutosave.2.cellsim.
+	 * 
+	 * @param fileName			the name of the file
+	 * @param number			the number of the backup, starting with 1 for the most recent one
+	 * @return the file name of the backup
+	 */
+	public static String backupFileName(String fileName, int number) {
+
+		int dot = fileName.lastIndexOf('.');
+		if (dot <= fileName.lastIndexOf(File.separatorChar)) {
+			return fileName + "." + number;
+		}
+		return fileName.substring(0, dot) + "." + number + fileName.substring(dot);
+	}
+
+	/**
+	 * Captures the simulation in memory and hands it over to the background thread for writing. 
+	 * Called at a tick boundary on the simulation thread, or if the simulation is paused or stopped.
+	 * 
+	 * @param fileName			the name of the file
+	 * @param backups			the number of rotated backups of the file, zero for none
+	 */
+	private void capture(String fileName, int backups) {
+
+		long start = System.currentTimeMillis();
+		SimCapture capture;
+		try {
+			capture = new SimCapture(ocean);
+		} catch (IOException e) {
+			String message = "Cellolution: error saving file '" + fileName + "':\n" + e.getMessage();
+			Main.exceptionCaught(message, e);
+			// just display the exception and go further
+			return;
+		}
+		long captureMillis = System.currentTimeMillis() - start;
+		pendingWrites.incrementAndGet();
+		writer().execute(() -> {
+			try {
+				long writeStart = System.currentTimeMillis();
+				long size = write(fileName, capture, backups);
+				Util.verbose("Saved '" + fileName + "' (" + size + " bytes, captured in " + captureMillis 
+						+ " ms, written in " + (System.currentTimeMillis() - writeStart) + " ms)");
+			} catch (IOException e) {
+				String message = "Cellolution: error writing file '" + fileName + "':\n" + e.getMessage();
+				Main.exceptionCaught(message, e);
+				// just display the exception and go further
+			} finally {
+				pendingWrites.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * Performs a write on the background thread, after all writes requested before.
+	 * Used for other files written in the background (e.g. the CheckpointJournal), 
+	 * shutdown() waits for them, too.
+	 * 
+	 * @param write			the write to perform
+	 */
+	static void execute(Runnable write) {
+
+		writer().execute(write);
+	}
+
+	/**
+	 * Requests saving the simulation to a file, as binary snapshot if the file name has the extension 
+	 * of snapshots, as JSON otherwise. The simulation is captured at the next tick boundary (or while 
+	 * paused) and written in the background, the simulation is not paused.
+	 * 
+	 * @param fileName			the name of the file
+	 */
+	public void save(String fileName) {
+
+		requests.add(fileName);
+	}
+
+	/**
+	 * Performs the requested saves. Called by the simulation thread at a tick boundary or while 
+	 * paused, or by any thread after the simulation has been stopped.
+	 */
+	public void serveRequests() {
+
+		String fileName;
+		while ((fileName = requests.poll()) != null) {
+			capture(fileName, 0);
+		}
+	}
+
+	/**
+	 * Performs the requested saves and waits for all captured simulations to be written,
+	 * the simulation has to be stopped. Called on exit.
+	 */
+	public void shutdown() {
+
+		serveRequests();
+		ExecutorService executor;
+		synchronized (Autosave.class) {
+			executor = writer;
+			writer = null;
+		}
+		if (executor == null) {
+			return;
+		}
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+				Util.verbose("Autosave: pending writes not finished after " + SHUTDOWN_WAIT_SECONDS 
+						+ " seconds, giving up");
+			}
+		} catch (InterruptedException e) {
+			Main.exceptionCaught("Cellolution: interrupted while waiting for pending writes", e);
+			// just display the exception and go further
+		}
+	}
+
+	/**
+	 * The task of the autosave at the clock: performs the requested saves, and autosaves 
+	 * if the interval has elapsed (skipped while the previous one is still being written).
+	 * 
+	 * @param tick			the current simulation tick
+	 */
+	public void tick(long tick) {
+
+		serveRequests();
+		if (intervalMillis == 0) {
+			return;
+		}
+		long time = System.currentTimeMillis();
+		if (time - lastAutosaveMillis >= intervalMillis && pendingWrites.get() == 0) {
+			lastAutosaveMillis = time;
+			capture(AUTOSAVE_FILE_NAME, backupCount);
+		}
+	}
+
+	/**
+	 * Encodes a captured simulation into a temporary file first, then rotates the backups, if any, 
+	 * and replaces the file atomically by the temporary file. Called on the background thread.
+	 * 
+	 * @param fileName			the name of the file
+	 * @param capture			the captured simulation
+	 * @param backups			the number of rotated backups of the file, zero for none
+	 * @return the size of the file in bytes
+	 * @throws IOException on an IO error
+	 */
+	private static long write(String fileName, SimCapture capture, int backups) throws IOException {
+
+		Path tempFile = Path.of(fileName + TEMP_EXTENSION);
+		long size;
+		try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, 
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			Main.getData().writeSimulationData(new BufferedOutputStream(Channels.newOutputStream(channel), 
+					BUFFER_SIZE), fileName, capture);
+			channel.force(true);			// on disk before it replaces the file
+			size = channel.size();
+		}
+		for (int i = backups; i > 1; i--) {
+			Util.renameToBackupFile(backupFileName(fileName, i - 1), backupFileName(fileName, i));
+		}
+		if (backups > 0) {
+			Util.renameToBackupFile(fileName, backupFileName(fileName, 1));
+		}
+		Util.replaceFile(tempFile, Path.of(fileName));
+		return size;
+	}
+
+	/**
+	 * @return the background thread writing the captured simulations, created on demand
+	 */
+	private static synchronized ExecutorService writer() {
+
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Autosave writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return writer;
+	}
+}
@@ -0,0 +1,498 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import cellolution.cell.*;
+import cellolution.util.*;
+
+/**
+ * A checkpoint journal of the simulation next to the simulation file, to recover long runs after a crash: 
+ * a full base snapshot, followed by a compact delta record for each checkpoint interval. The deltas 
+ * contain only what has changed since the previous checkpoint, therefore the journal I/O scales with 
+ * the activity of the simulation, not with the size of the ocean. A new base snapshot replaces the journal 
+ * as soon as the deltas since the base are larger than the base (e.g. if most of the substances have 
+ * changed), or after a maximum number of deltas, to keep the journal and its replay short.
+ * 
+ * The changes are found by comparing with the previous checkpoint, kept in memory: the snapshot record 
+ * of each organism (see Organism.writeTo()) and a copy of the substance planes. At a tick boundary the 
+ * simulation thread only captures the simulation (see SimCapture), comparing, encoding, compressing 
+ * and writing happen on the background thread of the Autosave. A checkpoint is skipped while the 
+ * previous one is still being written.
+ * 
+ * The journal is written through a buffered FileChannel, all values are big endian:
+ * <pre>
+ * header:		magic "CJNL", format version
+ * record:		type (BASE or DELTA), tick, the length of the payload, CRC32 of the payload, payload
+ * BASE:		a binary snapshot (see SimSnapshot), the organisms are numbered by their order
+ * DELTA:		Deflate compressed:
+ * 				the organic matter reservoir,
+ * 				count, then the number of each added or changed organism, followed by its complete 
+ * 				record (FULL) or by patches of the previous record (PATCH: offset, length and bytes, 
+ * 				terminated by offset -1), 
+ * 				count, then the numbers of the removed organisms,
+ * 				the tile size, then the changed substance tiles: plane, tile and the differences 
+ * 				to the previous values, terminated by plane -1
+ * </pre>
+ * 
+ * The JournalReader replays the base and the deltas. A record damaged by a crash (truncated or 
+ * with a wrong CRC) or an unexpected record ends the journal, the simulation is recovered up to 
+ * the previous record.
+ */
+public class CheckpointJournal {
+
+	/** the file extension of checkpoint journals */
+	public static final String FILE_EXTENSION = ".journal";
+	/** the file name of the journal next to the default simulation file */
+	public static final String JOURNAL_FILE_NAME = "CellolutionSim" + FILE_EXTENSION;
+	/** the version of the journal format, increase it for incompatible changes */
+	public static final int FORMAT_VERSION = 1;
+	/** the period of the journal task in ticks, checking the interval */
+	public static final int PERIOD_TICKS = 10;
+
+	/** the magic number at the start of a journal file: "CJNL" */
+	static final int MAGIC = 0x434A4E4C;
+	/** record type: a base snapshot */
+	static final byte BASE = 1;
+	/** record type: the changes since the previous record */
+	static final byte DELTA = 2;
+	/** organism change: the complete record of an added or changed organism */
+	static final byte FULL = 0;
+	/** organism change: patches of the previous record of the organism */
+	static final byte PATCH = 1;
+
+	/** the number of pixels of a substance tile */
+	private static final int TILE_SIZE = 1024;
+	/** the maximum number of deltas until a new base snapshot is written */
+	private static final int DELTAS_PER_BASE = 20;
+	/** two changed byte ranges of a record closer than this are patched as one */
+	private static final int PATCH_GAP = 8;
+	/** the size of the buffers */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The state of an organism at the previous checkpoint.
+	 */
+	private static class Entry {
+
+		/** the number of the organism within the journal */
+		private final int number;
+		/** the snapshot record of the organism */
+		private byte record[];
+		/** the number of the checkpoint the organism has been seen last */
+		private int checkpoint;
+
+		/**
+		 * @param number		the number of the organism within the journal
+		 */
+		private Entry(int number) {
+
+			this.number = number;
+		}
+	}
+
+	/** the ocean of the simulation */
+	private final Ocean ocean;
+	/** the name of the journal file */
+	private final String fileName;
+	/** the interval between checkpoints in milliseconds, zero if the journal is off */
+	private final long intervalMillis;
+	/** the time of the previous checkpoint in milliseconds, zero before the first one */
+	private long lastCheckpointMillis;
+	/** the state of the organisms at the previous checkpoint, used by the background thread only */
+	private final IdentityHashMap<Organism, Entry> entries;
+	/** the substance planes at the previous checkpoint, null before the base, used by the background thread only */
+	private byte previousPlanes[][];
+	/** the number of the next organism within the journal, used by the background thread only */
+	private int nextNumber;
+	/** the number of the deltas since the base snapshot, used by the background thread only */
+	private int checkpoint;
+	/** the output of the journal file, used by the background thread only, null if closed */
+	private DataOutputStream out;
+	/** the channel of the journal file, used by the background thread only, null if closed */
+	private FileChannel channel;
+	/** the size of the base snapshot in bytes, used by the background thread only */
+	private long baseSize;
+	/** the size of the deltas since the base snapshot in bytes, used by the background thread only */
+	private long deltaSize;
+	/** set while a captured checkpoint is not yet written */
+	private volatile boolean isPending;
+	/** set after an error writing the journal, no more checkpoints are written */
+	private volatile boolean isFailed;
+
+	/**
+	 * Construction.
+	 * 
+	 * @param ocean				the ocean of the simulation
+	 * @param fileName			the name of the journal file
+	 * @param intervalSeconds	the interval between checkpoints in seconds, zero if the journal is off
+	 */
+	public CheckpointJournal(Ocean ocean, String fileName, int intervalSeconds) {
+
+		this.ocean = ocean;
+		this.fileName = fileName;
+		this.intervalMillis = intervalSeconds * 1000L;
+		entries = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Closes the journal file after all pending writes, e.g. if the simulation is stopped.
+	 * The journal file is kept to recover the simulation.
+	 */
+	public void close() {
+
+		Autosave.execute(() -> closeFile());
+	}
+
+	/**
+	 * Closes the journal file, on the background thread.
+	 */
+	private void closeFile() {
+
+		if (out == null) {
+			return;
+		}
+		try {
+			out.close();
+		} catch (IOException e) {
+			// nothing to do, all records have been flushed already
+		}
+		out = null;
+		channel = null;
+	}
+
+	/**
+	 * Closes and deletes the journal file after all pending writes, e.g. if the simulation has been saved 
+	 * on exit and the journal is not needed any more.
+	 */
+	public void delete() {
+
+		isFailed = true;								// no more checkpoints
+		Autosave.execute(() -> {
+			closeFile();
+			try {
+				Files.deleteIfExists(Path.of(fileName));
+			} catch (IOException e) {
+				String message = "Cellolution: error deleting the checkpoint journal '" + fileName + "':\n" + e.getMessage();
+				Main.exceptionCaught(message, e);
+				// just display the exception and go further
+			}
+		});
+	}
+
+	/**
+	 * Checks the file name for the extension of checkpoint journals.
+	 * 
+	 * @param fileName		the name of the file
+	 * @return true if the file is a checkpoint journal
+	 */
+	public static boolean isJournalFile(String fileName) {
+
+		return fileName.toLowerCase().endsWith(FILE_EXTENSION);
+	}
+
+	/**
+	 * Opens the journal file for writing records.
+	 * 
+	 * @param path			the path of the file
+	 * @param options		the options to open the file
+	 * @throws IOException on an IO error
+	 */
+	private void openFile(Path path, OpenOption... options) throws IOException {
+
+		channel = FileChannel.open(path, options);
+		out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+	}
+
+	/**
+	 * Returns the file to recover the simulation from on start: the journal next to the simulation 
+	 * file, if it is newer (Cellolution has not been finished normally), the simulation file otherwise.
+	 * 
+	 * @param simDataFileName		the name of the simulation file
+	 * @return the name of the file to read the simulation from
+	 */
+	public static String recoveryFileName(String simDataFileName) {
+
+		File journal = new File(JOURNAL_FILE_NAME);
+		File simData = new File(simDataFileName);
+		if (journal.exists() && (!simData.exists() || journal.lastModified() > simData.lastModified())) {
+			Util.verbose("Recovering the simulation from the checkpoint journal '" + JOURNAL_FILE_NAME + "' ...");
+			return JOURNAL_FILE_NAME;
+		}
+		return simDataFileName;
+	}
+
+	/**
+	 * The task of the journal at the clock: captures a checkpoint if the interval has elapsed 
+	 * and hands it over to the background thread, the first one is the base snapshot.
+	 * 
+	 * @param tick			the current simulation tick
+	 */
+	public void tick(long tick) {
+
+		if (intervalMillis == 0 || isFailed || isPending) {
+			return;
+		}
+		long time = System.currentTimeMillis();
+		if (lastCheckpointMillis != 0 && time - lastCheckpointMillis < intervalMillis) {
+			return;
+		}
+		lastCheckpointMillis = time;
+		SimCapture capture;
+		try {
+			capture = new SimCapture(ocean);
+		} catch (IOException e) {
+			isFailed = true;
+			String message = "Cellolution: error capturing the checkpoint journal '" + fileName + "':\n" + e.getMessage();
+			Main.exceptionCaught(message, e);
+			// just display the exception and go further without a journal
+			return;
+		}
+		isPending = true;
+		Autosave.execute(() -> writeCheckpoint(tick, capture));
+	}
+
+	/**
+	 * Writes a base snapshot as a new journal: to a temporary file first, which replaces the journal file.
+	 * The following deltas refer to it.
+	 * 
+	 * @param tick			the tick of the snapshot
+	 * @param capture		the captured simulation
+	 * @throws IOException on an IO error
+	 */
+	private void writeBase(long tick, SimCapture capture) throws IOException {
+
+		ByteArrayOutputStream snapshot = new ByteArrayOutputStream(BUFFER_SIZE);
+		SimSnapshot.write(snapshot, capture);
+		// the same organisms in the same order as in the snapshot
+		entries.clear();
+		nextNumber = 0;
+		checkpoint = 0;
+		ArrayList<Organism> organisms = capture.getOrganisms();
+		ArrayList<byte[]> records = capture.getRecords();
+		for (int i = 0; i < organisms.size(); i++) {
+			Entry entry = new Entry(nextNumber++);
+			entry.record = records.get(i);
+			entries.put(organisms.get(i), entry);
+		}
+		previousPlanes = capture.getPlanes();
+		Path tempFile = Path.of(fileName + ".tmp");
+		closeFile();
+		openFile(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		writeRecord(BASE, tick, snapshot.toByteArray());
+		closeFile();
+		baseSize = snapshot.size();
+		deltaSize = 0;
+		Util.replaceFile(tempFile, Path.of(fileName));
+		openFile(Path.of(fileName), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Writes a captured checkpoint: a base snapshot first, after the maximum number of deltas or if 
+	 * the deltas since the base are larger than the base, a delta otherwise. Called on the background thread.
+	 * 
+	 * @param tick			the tick of the checkpoint
+	 * @param capture		the captured simulation
+	 */
+	private void writeCheckpoint(long tick, SimCapture capture) {
+
+		try {
+			if (isFailed) {
+				return;
+			}
+			if (previousPlanes == null || checkpoint >= DELTAS_PER_BASE || deltaSize > baseSize) {
+				writeBase(tick, capture);
+			} else if (out != null) {
+				writeDelta(tick, capture);
+			}
+		} catch (IOException e) {
+			writeFailed(e);
+		} finally {
+			isPending = false;
+		}
+	}
+
+	/**
+	 * Compares a captured checkpoint with the previous one, then compresses and appends the changes 
+	 * as delta to the journal.
+	 * 
+	 * @param tick			the tick of the delta
+	 * @param capture		the captured simulation
+	 * @throws IOException on an IO error
+	 */
+	private void writeDelta(long tick, SimCapture capture) throws IOException {
+
+		checkpoint++;
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(BUFFER_SIZE);
+		Deflater deflater = new Deflater();
+		try (DataOutputStream deltaOut = new DataOutputStream(
+				new DeflaterOutputStream(compressed, deflater, BUFFER_SIZE))) {
+			deltaOut.writeInt(capture.getOrganicMatterReservoir());
+			// added and changed organisms
+			ByteArrayOutputStream changes = new ByteArrayOutputStream(BUFFER_SIZE);
+			DataOutputStream changesOut = new DataOutputStream(changes);
+			int changeCount = 0;
+			ArrayList<Organism> organisms = capture.getOrganisms();
+			ArrayList<byte[]> records = capture.getRecords();
+			for (int i = 0; i < organisms.size(); i++) {
+				byte record[] = records.get(i);
+				Entry entry = entries.get(organisms.get(i));
+				if (entry == null) {
+					entry = new Entry(nextNumber++);
+					entries.put(organisms.get(i), entry);
+				} else if (Arrays.equals(entry.record, record)) {
+					entry.checkpoint = checkpoint;
+					continue;
+				}
+				changesOut.writeInt(entry.number);
+				if (entry.record != null && entry.record.length == record.length) {
+					changesOut.writeByte(PATCH);
+					writePatches(changesOut, entry.record, record);
+				} else {
+					changesOut.writeByte(FULL);
+					changesOut.writeInt(record.length);
+					changesOut.write(record);
+				}
+				entry.record = record;
+				entry.checkpoint = checkpoint;
+				changeCount++;
+			}
+			deltaOut.writeInt(changeCount);
+			changes.writeTo(deltaOut);
+			// removed organisms: not seen at this checkpoint
+			ArrayList<Integer> removed = new ArrayList<>();
+			for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+				Entry entry = iterator.next();
+				if (entry.checkpoint != checkpoint) {
+					removed.add(entry.number);
+					iterator.remove();
+				}
+			}
+			deltaOut.writeInt(removed.size());
+			for (int number : removed) {
+				deltaOut.writeInt(number);
+			}
+			// changed substance tiles
+			writeSubstanceTiles(deltaOut, capture.getPlanes());
+		} finally {
+			deflater.end();
+		}
+		writeRecord(DELTA, tick, compressed.toByteArray());
+		deltaSize += compressed.size();
+	}
+
+	/**
+	 * Reports an error writing the journal, no more checkpoints are written.
+	 * 
+	 * @param e				the exception
+	 */
+	private void writeFailed(IOException e) {
+
+		isFailed = true;
+		closeFile();
+		String message = "Cellolution: error writing the checkpoint journal '" + fileName + "':\n" + e.getMessage();
+		Main.exceptionCaught(message, e);
+		// just display the exception and go further without a journal
+	}
+
+	/**
+	 * Writes the patches of a record: the changed byte ranges, compared to the previous record of the same length.
+	 * 
+	 * @param out			the output of the delta
+	 * @param previous		the previous record
+	 * @param record		the changed record
+	 * @throws IOException on an IO error
+	 */
+	private static void writePatches(DataOutputStream out, byte previous[], byte record[]) throws IOException {
+
+		int length = record.length;
+		int from = Arrays.mismatch(previous, record);
+		while (from >= 0) {
+			int to = from + 1;
+			int next;
+			while ((next = Arrays.mismatch(previous, to, length, record, to, length)) >= 0 && next < PATCH_GAP) {
+				to += next + 1;
+			}
+			out.writeInt(from);
+			out.writeInt(to - from);
+			out.write(record, from, to - from);
+			from = next < 0 ? -1 : to + next;
+		}
+		out.writeInt(-1);
+	}
+
+	/**
+	 * Writes a record and flushes it to the file. Called on the background thread.
+	 * 
+	 * @param type			the type of the record
+	 * @param tick			the tick of the record
+	 * @param payload		the payload of the record
+	 * @throws IOException on an IO error
+	 */
+	private void writeRecord(byte type, long tick, byte payload[]) throws IOException {
+
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		out.writeByte(type);
+		out.writeLong(tick);
+		out.writeInt(payload.length);
+		out.writeInt((int) crc.getValue());
+		out.write(payload);
+		out.flush();
+		channel.force(false);
+	}
+
+	/**
+	 * Writes the substance tiles changed since the previous checkpoint, as differences to the previous 
+	 * values, the planes become the previous planes.
+	 * 
+	 * @param out			the output of the delta
+	 * @param planes		the captured substance planes
+	 * @throws IOException on an IO error
+	 */
+	private void writeSubstanceTiles(DataOutputStream out, byte planes[][]) throws IOException {
+
+		int size = planes[0].length;
+		byte differences[] = new byte[TILE_SIZE];
+		out.writeInt(TILE_SIZE);
+		for (int plane = 0; plane < planes.length; plane++) {
+			byte current[] = planes[plane];
+			byte previous[] = previousPlanes[plane];
+			for (int tile = 0, from = 0; from < size; tile++, from += TILE_SIZE) {
+				int to = Math.min(size, from + TILE_SIZE);
+				if (Arrays.mismatch(current, from, to, previous, from, to) < 0) {
+					continue;
+				}
+				for (int i = from; i < to; i++) {
+					differences[i - from] = (byte) (current[i] - previous[i]);
+				}
+				out.writeByte(plane);
+				out.writeInt(tile);
+				out.write(differences, 0, to - from);
+			}
+		}
+		out.writeByte(-1);
+		previousPlanes = planes;
+	}
+}
@@ -17,11 +17,15 @@
 package cellolution;
 
 import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
 import java.nio.file.*;
 import java.util.*;
 
 import org.json.*;
 
+import cellolution.util.*;
+
 /**
  * Cellolution serialization data container and handling.
  * Data serialization uses two different files: one for the Cellolution application itself and
@@ -35,6 +39,8 @@ public class Data implements Keys {
 
 	/** the default look-and-feel */
 	private static final String LOOK_AND_FEEL_DEFAULT = "Nimbus";
+	/** the size of the buffer of the file writer */
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
 	
 	/** a map containing application relevant data as key/value pairs */
 	private final HashMap<String, Object> dataMap;
@@ -44,6 +50,8 @@ public class Data implements Keys {
 	private Writer writer;
 	/** a JSON representation of a simulation already stored in a file, if any */
 	private JSONObject jsonObjSim;
+	/** the reader of a simulation already stored in a file, if any, until the ocean has been created */
+	private SimReader simReader;
 
 	/**
 	 * Construction with default values.
@@ -100,6 +108,29 @@ public class Data implements Keys {
 //		dataMap.put(VERBOSE, Main.isVerbose());				// set by arguments, not saved
 	}
 
+	/**
+	 * Writes a captured simulation to a stream, the same content as writeSimulationData() would 
+	 * write to the file. The simulation is captured at a tick boundary, writing the capture may 
+	 * happen later on another thread (see Autosave). The stream is flushed, but not closed.
+	 * 
+	 * @param stream				the output stream
+	 * @param simDataFileName		the name of the file, a binary snapshot if it has the extension of snapshots
+	 * @param capture				the captured simulation
+	 * @throws IOException on an IO error
+	 */
+	public void writeSimulationData(OutputStream stream, String simDataFileName, SimCapture capture) 
+			throws IOException {
+		
+		if (SimSnapshot.isSnapshotFile(simDataFileName)) {
+			SimSnapshot.write(stream, capture);
+			return;
+		}
+		BufferedWriter streamWriter = new BufferedWriter(
+				new OutputStreamWriter(stream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+		writeSimulationJSON(new JsonStreamWriter(streamWriter), capture);
+		streamWriter.flush();
+	}
+
 	/**
 	 * Gets a boolean data value (usually a flag).
 	 * 
@@ -140,6 +171,16 @@ public class Data implements Keys {
 		return jsonObjSim;
 	}
 	
+	/**
+	 * Gets the reader of an old simulation, the organisms of which have not been read yet.
+	 * 
+	 * @return the reader or null if none
+	 */
+	public SimReader getSimReader() {
+		
+		return simReader;
+	}
+	
 	/**
 	 * Gets an String data value.
 	 * 
@@ -214,8 +255,9 @@ public class Data implements Keys {
 	}
 
 	/**
-	 * Reads a complete simulation from a file. 
-	 * The resulting JSON simulation object is containing within this object
+	 * Reads a simulation from a file, JSON, binary snapshot or checkpoint journal. 
+	 * The resulting JSON simulation object is containing within this object, except the organisms: 
+	 * they are read by the OrganismMgr while creating the ocean, see SimReader.
 	 * 
 	 * @param simDataFileName		the name of the file containing the simulation data
 	 */
@@ -223,24 +265,50 @@ public class Data implements Keys {
 		
 		// delete any current simulation traces before reading a new one
 		removeSimulationData();
+		boolean isSnapshot = SimSnapshot.isSnapshotFile(simDataFileName);
+		boolean isJournal = CheckpointJournal.isJournalFile(simDataFileName);
+		String parserName = isJournal ? "Journal" : isSnapshot ? "Snapshot" : "JSON parser";
 		// remember the filename for error messages during parsing
 		Main.instance().setCurrentJsonFile(simDataFileName);
-		String text = null;
 		try {
-			text = Files.readString(Path.of(simDataFileName));
+			if (isJournal) {
+				simReader = new JournalReader(simDataFileName);
+			} else {
+				simReader = isSnapshot ? new SimSnapshot(simDataFileName) : new SimJsonReader(simDataFileName);
+			}
 		} catch (NoSuchFileException e) {
-			String message = "JSON parser: no old simulation file '" + simDataFileName 
+			String message = parserName + ": no old simulation file '" + simDataFileName 
 					+ "', starting a new simulation.\n" + e.getMessage();
 			return;
 		} catch (IOException e) {
-			String message = "JSON parser: error reading file '" + Main.APP_DATA_FILE_NAME 
+			String message = parserName + ": error reading file '" + simDataFileName 
 					+ "', starting a new simulation.\n" + e.getMessage();
 			Main.exceptionCaught(message, e);
 			// just display the exception and go further
 			return;
 		}
-		jsonObjSim = new JSONObject(text);
-		// store the sim version, to distinguish for old simulation files
+		jsonObjSim = simReader.getSimObject();
+		putSimVersion();
+	}
+
+	/**
+	 * Releases the simulation read from a file, after the ocean has been created from it.
+	 * The version of the simulation is kept.
+	 */
+	public void releaseSimulationData() {
+		
+		jsonObjSim = null;
+		if (simReader != null) {
+			simReader.close();
+			simReader = null;
+		}
+	}
+
+	/**
+	 * Stores the version of the simulation object, to distinguish for old simulation files.
+	 */
+	private void putSimVersion() {
+		
 		JSONObject jsonVersion = jsonObjSim.getJSONObject(VERSION);
 		dataMap.put(SIM_VERSION_MAJOR, jsonVersion.get(VERSION_MAJOR));
 		dataMap.put(SIM_VERSION_MINOR, jsonVersion.get(VERSION_MINOR));
@@ -253,7 +321,7 @@ public class Data implements Keys {
 	 */
 	public void removeSimulationData() {
 		
-		jsonObjSim = null;
+		releaseSimulationData();
 		dataMap.remove(SIM_VERSION_MAJOR);
 		dataMap.remove(SIM_VERSION_MINOR);
 		dataMap.remove(SIM_VERSION_RELEASE);
@@ -292,26 +360,63 @@ public class Data implements Keys {
 	/**
 	 * Saves application and simulation data on system exit.
 	 * 
-	 * @throws IOException on an IO error
+	 * @return true if the simulation has been saved, false on an error (already displayed)
 	 */
-	public void writeOnExit() throws IOException {
+	public boolean writeOnExit() {
 		
 		writeAppData();
-		writeSimulationData(Main.SIM_DATA_FILE_NAME);
+		return writeSimulationData(Main.SIM_DATA_FILE_NAME);
 	}
 
 	/**
-	 * Writes the simulation and the ocean data to a file.
+	 * Writes the simulation and the ocean data to a file, as binary snapshot if the file name 
+	 * has the extension of snapshots, as JSON otherwise. The file is written to a temporary file 
+	 * first, which replaces the file atomically, therefore an error (e.g. a full disk) keeps 
+	 * the previous file. Any exceptions caught are displayed.
 	 * 
 	 * @param simDataFileName		the name of the file
+	 * @return true if the file has been written, false on an error
 	 */
-	public void writeSimulationData(String simDataFileName) {
+	public boolean writeSimulationData(String simDataFileName) {
 
-		JSONObject jsonObjSim = new JSONObject();
-		addVersionToJSONObject(jsonObjSim);
-		jsonObjSim.put(OCEAN, Main.getOcean().toJSONObject());
-		// write it out
-		writeToFile(simDataFileName, jsonObjSim);
+		try {
+			SimCapture capture = new SimCapture(Main.getOcean());
+			if (SimSnapshot.isSnapshotFile(simDataFileName)) {
+				SimSnapshot.write(simDataFileName, capture);
+				return true;
+			}
+			// stream it out, without building a JSONObject tree (the same text as writeToFile())
+			Path tempFile = Path.of(simDataFileName + SimSnapshot.TEMP_EXTENSION);
+			try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, 
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				writeSimulationData(Channels.newOutputStream(channel), simDataFileName, capture);
+				channel.force(true);			// on disk before it replaces the file
+			}
+			Util.replaceFile(tempFile, Path.of(simDataFileName));
+			return true;
+		} catch (IOException e) {
+			String message = "Cellolution: error writing file '" + simDataFileName + "':\n" + e.getMessage();
+			Main.exceptionCaught(message, e);
+			// just display the exception and go further
+			return false;
+		}
+	}
+
+	/**
+	 * Writes a captured simulation and its ocean data to a JSON stream.
+	 * 
+	 * @param json				the JSON stream
+	 * @param capture			the captured simulation
+	 * @throws IOException on an IO error
+	 */
+	private void writeSimulationJSON(JsonStreamWriter json, SimCapture capture) throws IOException {
+		
+		json.beginObject();
+		json.key(VERSION);
+		writeVersion(json);
+		json.key(OCEAN);
+		capture.writeJSON(json);
+		json.endObject();
 	}
 
 	/**
@@ -324,7 +429,7 @@ public class Data implements Keys {
 	private void writeToFile(String fileName, JSONObject jsonObj) {
 		
 		try {
-			writer = new FileWriter(fileName);
+			writer = new BufferedWriter(new FileWriter(fileName), WRITE_BUFFER_SIZE);
 			jsonObj.write(writer, 2, 0);
 			writer.close();
 		} catch (IOException e) {
@@ -334,4 +439,21 @@ public class Data implements Keys {
 		}
 		writer = null;
 	}
+
+	/**
+	 * Writes the version to a JSON stream, the same way as addVersionToJSONObject().
+	 * Uses the compiled version.
+	 * 
+	 * @param json				the JSON stream
+	 * @throws IOException on an IO error
+	 */
+	private void writeVersion(JsonStreamWriter json) throws IOException {
+		
+		json.beginObject();
+		json.key(VERSION).value(Version.getAsString());
+		json.key(VERSION_MAJOR).value(Version.getMajor());
+		json.key(VERSION_MINOR).value(Version.getMinor());
+		json.key(VERSION_RELEASE).value(Version.getRelease());
+		json.endObject();
+	}
 }
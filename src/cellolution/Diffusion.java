@@ -21,6 +21,14 @@ import cellolution.util.*;
 
 /**
  * Handle the diffusion of dissolved materials.
+ * 
+ * The diffusion reads the current substance planes of the OceanGrid and writes the resulting values 
+ * into the next planes (ping-pong buffers), which are swapped at the end of a step. 
+ * The columns are computed by a DiffusionKernel, either the ScalarDiffusionKernel or - if the module 
+ * jdk.incubator.vector is present - the VectorDiffusionKernel, both with the same results.
+ * The columns are split into stripes, which are computed in parallel if there are more threads 
+ * (see Stripes). Each pixel writes only its own next values and the rounding is drawn once per step, 
+ * therefore the results are the same as a serial computation.
  */
 public class Diffusion {
 
@@ -28,6 +36,8 @@ public class Diffusion {
 	public static final int NEIGHBOR_COUNT = 6;
 	/** half of the neighbor count plus the current cell */
 	public static final int DIFFUSION_DIVIDER = (NEIGHBOR_COUNT +  1) * 2;
+	/** the minimum number of columns computed by one thread, if computed in parallel */
+	private static final int MIN_STRIPE_COLUMNS = 16;
 
 	/** the ocean */
 	private Ocean ocean;
@@ -42,13 +52,19 @@ public class Diffusion {
 	/** the borders of the ocean: water pixel with a rock at one side*/
 	private OceanBorders oceanBorders;
 	/** all pixels of the ocean */
-	private Pixel pixels[][];
-	/** an array of water pixels used as temporary storage during diffusion computation */
-	private Water diffCompPixels[][];
+	private OceanGrid grid;
+	/** the current planes of the dissolved substances of the ocean, read during a diffusion step */
+	private byte substances[][];
+	/** the next planes of the dissolved substances of the ocean, written during a diffusion step */
+	private byte nextSubstances[][];
+	/** the kernel computing the diffusion of the columns */
+	private DiffusionKernel kernel;
 	/** the manager for all organisms */
 	private OrganismMgr organismMgr;
 	/** true if there is diffusion of organic matter, false else */
 	private boolean soluteOrganicMatter;
+	/** the random stream of the diffusion */
+	private FastRandom random;
 	
 	/** set to true and uncomment test() for testing the diffusion */
 	private boolean testFlag;
@@ -62,109 +78,57 @@ public class Diffusion {
 		cellColumns = Main.getCellColumns();
 		cellRows = Main.getCellRows();
 		oceanBorders = ocean.getOceanBorders();
-		pixels = ocean.getPixels();
+		grid = ocean.getGrid();
 		rounding = new int[DIFFUSION_DIVIDER];
-		diffCompPixels = new Water[cellColumns][cellRows];
-		for (int col = 0; col < cellColumns; col++) {
-			for (int row = 0; row < cellRows; row++) {
-				diffCompPixels[col][row] = new Water(col, row);
-			}
-		}
+		random = FastRandom.get(FastRandom.Stream.DIFFUSION);
+		kernel = createKernel(grid);
+		Util.verbose("Diffusion kernel: " + kernel.getName());
 	}
 
 	/**
-	 * Compute the diffusion of dissolved materials of a water pixel column. 
-	 * Since this is done column by column, the result does not change the neighbor pixel containing water. 
-	 * Difference values stored in a temporary array to be used later - like some other finite element methods.
-	 * The dissolved materials of the borders have been set already.
+	 * Copy the substances of an index range from the current planes into the next planes, 
+	 * used for pixels without any diffusion.
 	 * 
-	 * @param col					the current column for the diffusion computation
-	 * @param rowBottom				the last row (bottom row) of a water pixel in this column
+	 * @param fromIndex			the first index (inclusive)
+	 * @param toIndex			the last index (exclusive)
 	 */
-	private void computeDiffusionCol(int col, int rowBottom) {
+	private void copyToNext(int fromIndex, int toIndex) {
 
-		boolean isEvenCol = (col & 1) == 0;				// even: column 0, 2, ...      odd:   column 1, 3, ...
-		for (int row = 0; row <= rowBottom; row++) {
-			Pixel p = pixels[col][row];
-			if (!(p instanceof Water)) {
-				continue;
-			}
-			computeDiffusionFor((Water) p, isEvenCol);
+		if (fromIndex >= toIndex) {
+			return;
+		}
+		for (int i = 0; i < substances.length; i++) {
+			System.arraycopy(substances[i], fromIndex, nextSubstances[i], fromIndex, toIndex - fromIndex);
 		}
 	}
 
 	/**
-	 * Compute the diffusion for one Water pixel.
-	 * For the neighbors surrounding order see the Pixel or Ocean comments.
+	 * Creates the fastest diffusion kernel available: the vector kernel if the module 
+	 * jdk.incubator.vector is present, the scalar kernel otherwise.
 	 * 
-	 * @param water			the Water pixel
-	 * @param isEvenCol		true if the column is even, false otherwise
+	 * @param grid		all pixels of the ocean
+	 * @return the diffusion kernel
 	 */
-	private void computeDiffusionFor(Water water, boolean isEvenCol) {
-		
-		int col = water.column;
-		int row = water.row;
-		int rowAbove = row - 1;
-		int rowBelow = row + 1;
-		int colAboveBelowLeft = isEvenCol ? col - 1 : col;
-		int colAboveBelowRight = colAboveBelowLeft + 1;
+	public static DiffusionKernel createKernel(OceanGrid grid) {
 
-//		test("Before ", col, row, rowAbove, rowBelow, colAboveBelowLeft, colAboveBelowRight);	// test the diffusion
-		
-		// neighbors above
-		if (row > 0) {
-			// neighbor above left, compute substance differences
-			computeSubstances(water, colAboveBelowLeft, rowAbove);
-			// neighbor above right
-			computeSubstances(water, colAboveBelowRight, rowAbove);
-		}
-		// neighbor to the left
-		computeSubstances(water, col - 1, row);
-		// neighbor to the right
-		computeSubstances(water, col + 1, row);
-		// neighbor below left
-		computeSubstances(water, colAboveBelowLeft, rowBelow);
-		// neighbor below right
-		computeSubstances(water, colAboveBelowRight, rowBelow);
-
-//		test("After ", col, row, rowAbove, rowBelow, colAboveBelowLeft, colAboveBelowRight);	// test the diffusion 
-		
-		/*
-		 * x.x.x.X.x.x   -> pixel row 0 (even, dot row 0 + 1)    x: 0 1 2 3 4   instead of 0 2 4 6 8
-		 * .x.x.x.x.x.   -> pixel row 1 (odd,  dot row 2 + 3)    x: 0 1 2 3 4   instead of 1 3 5 7 9
-		 * x.x.x.x.x.x   -> pixel row 2 (even, dot row 4 + 5)    x: 0 1 2 3 4   instead of 0 2 4 6 8
-		 *  
-		 * hexagon neighbour cells:		6 1       columns:	 odd row 	0 1      
-		 *                             5 C 2                even row   0 1 2	 1 2
-		 *                              4 3                   odd row   0 1    	0 1 2
-		 *                              					even row	   		 1 2
-		 */
+		DiffusionKernel kernel = createVectorKernel(grid);
+		return kernel != null ? kernel : new ScalarDiffusionKernel(grid);
 	}
 
 	/**
-	 * Perform the computation of substances diffusion of a neighbor water pixel at the right side.
-	 * The differences/deltas are saved for future computations of right side pixel columns.
+	 * Creates the vector diffusion kernel, if the module jdk.incubator.vector is present.
+	 * The class is loaded by reflection, so it is never linked without the module.
 	 * 
-	 * @param water					the water pixel to be computed
-	 * @param neighborCol			the column of the neighbor
-	 * @param neighborRow			the row of the neighbor
+	 * @param grid		all pixels of the ocean
+	 * @return the vector diffusion kernel or null, if the module is not present
 	 */
-	private void computeSubstances(Water water, int neighborCol, int neighborRow) {
+	public static DiffusionKernel createVectorKernel(OceanGrid grid) {
 
-		int difference, delta, remainder;
-		Pixel pixel = pixels[neighborCol][neighborRow];
-		if (pixel instanceof Water) {
-			Water neighbor = (Water) pixel;
-			byte neighborSubstances[] = neighbor.getSubstances();
-			byte diffSubstances[] = diffCompPixels[water.column][water.row].getSubstances();
-			byte waterSubstances[] = water.getSubstances();
-			for (int i = 0; i < waterSubstances.length; i++) {
-				difference = neighborSubstances[i] - waterSubstances[i];
-				remainder = difference % DIFFUSION_DIVIDER;
-				delta = difference / DIFFUSION_DIVIDER + (remainder >= 0 ? 
-						rounding[remainder] : -rounding[-remainder]);		
-				diffSubstances[i] += delta;		// update value
-			}
+		try {
+			Class<?> kernelClass = Class.forName("cellolution.VectorDiffusionKernel");
+			return (DiffusionKernel) kernelClass.getConstructor(OceanGrid.class).newInstance(grid);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;				// module jdk.incubator.vector not present (add-modules missing)
 		}
 	}
 
@@ -176,25 +140,26 @@ public class Diffusion {
 	public void nextOceanDiffusionStep(int step) {
 		
 		this.step = step;
-		// diffusion from the water surface
+		// diffusion from the water surface, directly on the substance planes
+		byte co2[] = grid.getPlane(Water.CO2);
+		byte h2sPlane[] = grid.getPlane(Water.H2S);
 		for (int col = 1; col < cellColumns; col++) {
-			if (pixels[col][0] instanceof Water) {
-				Water waterPixel = (Water) pixels[col][0];
-				waterPixel.setMatterValue(Water.CO2, (byte) 100);
+			int index = grid.index(col, 0);
+			if (grid.isWater(index)) {
+				co2[index] = 100;
 				// H2S diffusion into the atmosphere
-				int h2s = waterPixel.matterValue(Water.H2S);
+				int h2s = h2sPlane[index];
 				if (h2s > 20) {
 					h2s -= h2s / 20;
 				}
-				waterPixel.setMatterValue(Water.H2S, (byte) (h2s));			
+				h2sPlane[index] = (byte) h2s;
 			}
 		}
 		// diffusion from left wall
 		int border[] = oceanBorders.getLeftBorderCols();
 		for (int row = 0; row < border.length; row++) {
-			Pixel pixel = pixels[border[row]][row];
-			if (pixel instanceof Water) {
-				solutionRock((Water) pixel);
+			if (grid.isWater(border[row], row)) {
+				solutionRock(grid.getWater(border[row], row));
 			}
 		}
 		// if there is enough organic matter (in the reservoir), solute it from the walls and ground
@@ -202,9 +167,8 @@ public class Diffusion {
 		// diffusion from right wall
 		border = oceanBorders.getRigthBorderCols();
 		for (int row = 0; row < border.length; row++) {
-			Pixel pixel = pixels[border[row]][row];
-			if (pixel instanceof Water) {
-				solutionRock((Water) pixel);
+			if (grid.isWater(border[row], row)) {
+				solutionRock(grid.getWater(border[row], row));
 			}
 		}
 		// diffusion from bottom
@@ -214,9 +178,8 @@ public class Diffusion {
 			if (row <= 0) {
 				continue;				// all pixels are rock in this row (row < 0) or no water above (row == 0)
 			}
-			Pixel pixel = pixels[col][row];
-			if (pixel instanceof Water) {
-				solutionRock((Water) pixel);
+			if (grid.isWater(col, row)) {
+				solutionRock(grid.getWater(col, row));
 			}
 		}
 		// smokers emit some substances
@@ -238,25 +201,42 @@ public class Diffusion {
 //			System.out.println("\n ************ next step: " + step + "\n");
 //		}
 		
+		// change rounding by chance, once for all columns of this step (also shared by all stripes)
 		updateRoundingByChance();
-		// set the base of temporary diffusion storage to an even column to the left
+		substances = grid.getPlanes();
+		nextSubstances = grid.getNextPlanes();
+		kernel.nextStep(rounding);
+		int firstCol = col;
 		for (; col < cellColumns - 2; col++) {
-			rowBottom = border[col];
-			if (rowBottom < 0) {
+			if (border[col] < 0) {
 				break;					// all pixels are rock in this column (rowBottom < 0), no more diffusion for this step
 			}
-			// change rounding by chance and compute this column
-			computeDiffusionCol(col, rowBottom);
 		}
-		// add/subtract the computed differences of substances to the ocean water pixels and clear the differences
-		for (col = 0; col < cellColumns; col++) {
-			for (int row = 0; row < cellRows; row++) {
-				Pixel pixel = pixels[col][row];
-				if (pixel instanceof Water) {
-					((Water) pixel).addAndZeroDifference(diffCompPixels[col][row]);
-				}
+		int endCol = col;
+		int bottomRows[] = border;
+		// compute the columns, each column writes only its own next values: stripes may run in parallel
+		Stripes.forEach(firstCol, endCol, MIN_STRIPE_COLUMNS, (fromCol, toCol) -> {
+			for (int c = fromCol; c < toCol; c++) {
+				kernel.computeColumn(c, bottomRows[c]);
 			}
-		}
+		});
+		// columns without diffusion keep their substances
+		copyToNext(0, grid.index(firstCol, 0));
+		copyToNext(grid.index(endCol, 0), grid.getSize());
+		// the next values become the current values
+		grid.swapPlanes();
+	}
+
+	/**
+	 * Sets the kernel computing the diffusion of the columns, e.g. to compare the kernels 
+	 * (all kernels compute the same values, see DiffusionKernel).
+	 * 
+	 * @param kernel	the diffusion kernel
+	 */
+	public void setKernel(DiffusionKernel kernel) {
+
+		this.kernel = kernel;
+		Util.verbose("Diffusion kernel: " + kernel.getName());
 	}
 
 	/**
@@ -316,14 +296,14 @@ public class Diffusion {
 		for (int rowArea = 100; rowArea <= colRowMax; rowArea++) {
 			System.out.print("\nrow " + rowArea + ": ");
 			for (int colArea = 100; colArea <= colRowMax; colArea++) {
-				System.out.print("   " + colArea + ": " + ((Water) pixels[colArea][rowArea]).matterValue(Water.H2S));
+				System.out.print("   " + colArea + ": " + grid.getWater(colArea, rowArea).matterValue(Water.H2S));
 			}
 		}
-		System.out.print("\ndifferences: ");
+		System.out.print("\nnext values: ");
 		for (int rowArea = 100; rowArea <= colRowMax; rowArea++) {
 			System.out.print("\nrow " + rowArea + ": ");
 			for (int colArea = 100; colArea <= colRowMax; colArea++) {
-				System.out.print("   " + colArea + ": " + (diffCompPixels[colArea][rowArea]).matterValue(Water.H2S));
+				System.out.print("   " + colArea + ": " + nextSubstances[Water.H2S][grid.index(colArea, rowArea)]);
 			}
 		}
 		if (col == 100 && row == 102) {			// water in the above left (first touch)
@@ -341,22 +321,15 @@ public class Diffusion {
 	 */
 	private void testArea() {
 
-		int diffusionComputeAreaSize = 8;
-
 		int colRowMax = 104;
 		int colRowMiddle = (100 + colRowMax) / 2;
 		// clean the area and set the water pixel in the middle
 		for (int colArea = 90; colArea <= colRowMax + 10; colArea++) {
 			for (int rowArea = 90; rowArea <= colRowMax + 10; rowArea++) {
-				((Water) pixels[colArea][rowArea]).zeroSubstances();
-			}
-		}
-		for (int col2 = 0; col2 < diffusionComputeAreaSize; col2++) {
-			for (int row2 = 0; row2 < cellRows; row2++) {
-				diffCompPixels[col2][row2].zeroSubstances();
+				grid.getWater(colArea, rowArea).zeroSubstances();
 			}
 		}
-		((Water) pixels[colRowMiddle][colRowMiddle]).setMatterValue(Water.H2S, (byte) 80);
+		grid.getWater(colRowMiddle, colRowMiddle).setMatterValue(Water.H2S, (byte) 80);
 	}
 
 	/**
@@ -368,7 +341,7 @@ public class Diffusion {
 
 		rounding[0] = 0;			// no remainder, no rounding
 		for (int i = 1; i < rounding.length; i++) {
-			rounding[i] = (FastRandom.nextIntStat(rounding.length) + i) / rounding.length;
+			rounding[i] = (random.nextInt(rounding.length) + i) / rounding.length;
 		}
 	}
 }
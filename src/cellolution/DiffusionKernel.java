@@ -0,0 +1,49 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+/**
+ * Implementers compute the diffusion of the dissolved substances of a column of the ocean, 
+ * reading the current planes and writing the next planes of the OceanGrid (see Diffusion).
+ * 
+ * All kernels must compute exactly the same values, so they can be exchanged without changing 
+ * the simulation. Columns may be computed in parallel, therefore a kernel writes only the values 
+ * of the pixels of the column it computes.
+ */
+public interface DiffusionKernel {
+
+	/**
+	 * Computes the diffusion of a column, the results are written into the next planes. 
+	 * Rock pixels and pixels below rowBottom are copied unchanged.
+	 * 
+	 * @param col					the column for the diffusion computation
+	 * @param rowBottom				the last row (bottom row) of a water pixel in this column
+	 */
+	public void computeColumn(int col, int rowBottom);
+
+	/**
+	 * @return a short name of the kernel
+	 */
+	public String getName();
+
+	/**
+	 * Prepares the kernel for the next diffusion step, must be called before any column is computed.
+	 * 
+	 * @param rounding		the rounding of the remainders of the diffusion division for this step
+	 */
+	public void nextStep(int rounding[]);
+}
@@ -0,0 +1,226 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.awt.*;
+import java.util.*;
+
+/**
+ * Dirty regions of the ocean image: the areas changed since the last frame, recorded by the 
+ * simulation thread (simulation thread only, not thread safe). 
+ * 
+ * The image is divided into tiles of TILE_SIZE * TILE_SIZE dots, a change marks the tiles it touches. 
+ * At the end of a frame, collect() coalesces the dirty tiles into a few rectangles: horizontal runs 
+ * of dirty tiles (bridging small gaps), merged with equal runs of the tile row above, then the 
+ * closest rectangles are united until there are at most MAX_RECTANGLES.
+ */
+public class DirtyRegions {
+
+	/** the width and height of a tile in dots */
+	public static final int TILE_SIZE = 16;
+	/** the maximum number of clean tiles between dirty tiles of a tile row, still united to one rectangle */
+	public static final int MAX_GAP_TILES = 2;
+	/** the maximum number of rectangles returned by collect() */
+	public static final int MAX_RECTANGLES = 24;
+	/** reducing the rectangles: the number of following rectangles (ordered top down) tested for uniting */
+	private static final int REDUCE_WINDOW = 12;
+
+	/** the width of the image in dots */
+	private int width;
+	/** the height of the image in dots */
+	private int height;
+	/** the number of tile columns */
+	private int tileColumns;
+	/** the number of tile rows */
+	private int tileRows;
+	/** the dirty flags of the tiles, row by row */
+	private boolean[] dirtyTiles;
+	/** the number of dirty tiles */
+	private int dirtyCount;
+
+	/**
+	 * Construct dirty regions, nothing is dirty.
+	 * 
+	 * @param width			the width of the image in dots
+	 * @param height		the height of the image in dots
+	 */
+	public DirtyRegions(int width, int height) {
+
+		this.width = width;
+		this.height = height;
+		tileColumns = (width + TILE_SIZE - 1) / TILE_SIZE;
+		tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+		dirtyTiles = new boolean[tileColumns * tileRows];
+	}
+
+	/**
+	 * Returns the dirty regions as rectangles (in dots) and clears them.
+	 * 
+	 * @return the dirty rectangles, empty if nothing has changed
+	 */
+	public ArrayList<Rectangle> collect() {
+
+		ArrayList<Rectangle> rectangles = new ArrayList<>();
+		if (dirtyCount == 0) {
+			return rectangles;
+		}
+		// the rectangles ending at the tile row above, by their first tile column
+		Rectangle[] openAbove = new Rectangle[tileColumns];
+		Rectangle[] open = new Rectangle[tileColumns];
+		for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+			int rowStart = tileRow * tileColumns;
+			for (int tileCol = 0; tileCol < tileColumns; ) {
+				if (!dirtyTiles[rowStart + tileCol]) {
+					tileCol++;
+					continue;
+				}
+				// a run of dirty tiles, bridging small gaps
+				int runStart = tileCol;
+				int runEnd = tileCol + 1;
+				for (tileCol++; tileCol < tileColumns && tileCol <= runEnd + MAX_GAP_TILES; tileCol++) {
+					if (dirtyTiles[rowStart + tileCol]) {
+						runEnd = tileCol + 1;
+					}
+				}
+				tileCol = runEnd;
+				int x = runStart * TILE_SIZE;
+				int runWidth = Math.min(runEnd * TILE_SIZE, width) - x;
+				int y = tileRow * TILE_SIZE;
+				int runHeight = Math.min(y + TILE_SIZE, height) - y;
+				Rectangle above = openAbove[runStart];
+				if (above != null && above.width == runWidth) {
+					above.height += runHeight;			// same run as in the row above: extend
+					open[runStart] = above;
+				} else {
+					Rectangle rectangle = new Rectangle(x, y, runWidth, runHeight);
+					rectangles.add(rectangle);
+					open[runStart] = rectangle;
+				}
+			}
+			Rectangle[] swap = openAbove;
+			openAbove = open;
+			open = swap;
+			Arrays.fill(open, null);
+		}
+		Arrays.fill(dirtyTiles, false);
+		dirtyCount = 0;
+		reduce(rectangles);
+		return rectangles;
+	}
+
+	/**
+	 * Reduces the number of rectangles to MAX_RECTANGLES: the two rectangles wasting the least area 
+	 * within their bounding rectangle are replaced by their bounding rectangle, until there are 
+	 * few enough. Only rectangles close in the list (ordered by their top) are tested.
+	 * 
+	 * @param rectangles		the rectangles
+	 */
+	private static void reduce(ArrayList<Rectangle> rectangles) {
+
+		while (rectangles.size() > MAX_RECTANGLES) {
+			int bestI = 0;
+			int bestJ = 1;
+			long bestWaste = Long.MAX_VALUE;
+			for (int i = 0; i < rectangles.size(); i++) {
+				Rectangle a = rectangles.get(i);
+				int endJ = Math.min(i + 1 + REDUCE_WINDOW, rectangles.size());
+				for (int j = i + 1; j < endJ; j++) {
+					Rectangle b = rectangles.get(j);
+					long unionWidth = Math.max(a.x + a.width, b.x + b.width) - Math.min(a.x, b.x);
+					long unionHeight = Math.max(a.y + a.height, b.y + b.height) - Math.min(a.y, b.y);
+					long waste = unionWidth * unionHeight - (long) a.width * a.height - (long) b.width * b.height;
+					if (waste < bestWaste) {
+						bestWaste = waste;
+						bestI = i;
+						bestJ = j;
+					}
+				}
+			}
+			Rectangle union = rectangles.get(bestI).union(rectangles.get(bestJ));
+			rectangles.set(bestI, union);
+			rectangles.remove(bestJ);
+		}
+	}
+
+	/**
+	 * Marks a rectangle of dots as dirty (clipped at the border of the image).
+	 * 
+	 * @param x				the x value of the top left dot
+	 * @param y				the y value of the top left dot
+	 * @param rectWidth		the width in dots
+	 * @param rectHeight	the height in dots
+	 */
+	public void mark(int x, int y, int rectWidth, int rectHeight) {
+
+		if (rectWidth <= 0 || rectHeight <= 0 || x + rectWidth <= 0 || y + rectHeight <= 0) {
+			return;
+		}
+		int firstCol = Math.max(x, 0) / TILE_SIZE;
+		int lastCol = Math.min(x + rectWidth - 1, width - 1) / TILE_SIZE;
+		int firstRow = Math.max(y, 0) / TILE_SIZE;
+		int lastRow = Math.min(y + rectHeight - 1, height - 1) / TILE_SIZE;
+		for (int tileRow = firstRow; tileRow <= lastRow; tileRow++) {
+			int rowStart = tileRow * tileColumns;
+			for (int tileCol = firstCol; tileCol <= lastCol; tileCol++) {
+				if (!dirtyTiles[rowStart + tileCol]) {
+					dirtyTiles[rowStart + tileCol] = true;
+					dirtyCount++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks a rectangle of dots as dirty (clipped at the border of the image).
+	 * 
+	 * @param rectangle		the rectangle
+	 */
+	public void mark(Rectangle rectangle) {
+
+		mark(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+	}
+
+	/**
+	 * Marks the dots of a painted cell as dirty (3*3 dots, see OrganismOverlay).
+	 * 
+	 * @param column		the column of the cell
+	 * @param row			the row of the cell
+	 */
+	public void markCell(int column, int row) {
+
+		mark(column << 1, row << 1, 3, 3);
+	}
+
+	/**
+	 * Marks the dots of an ocean pixel as dirty (2*2 dots).
+	 * 
+	 * @param column		the column of the pixel
+	 * @param row			the row of the pixel
+	 */
+	public void markPixel(int column, int row) {
+
+		mark(column << 1, row << 1, 2, 2);
+	}
+
+	/**
+	 * Marks the whole image as dirty.
+	 */
+	public void markAll() {
+
+		mark(0, 0, width, height);
+	}
+}
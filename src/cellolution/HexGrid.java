@@ -0,0 +1,177 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+/**
+ * The topology of the hexagon pixels of the ocean: the neighbors of a pixel, precomputed for 
+ * even and odd columns, as column/row deltas and as offsets of the flat OceanGrid index.
+ * 
+ * <pre>
+ * hexagon neighbour cells:		6 1       the neighbor numbers 1 to 6 (1 is top right), 
+ *                             5 C 2      a direction of 0 to 59 degrees is neighbor 1, 
+ *                              4 3       60 to 119 degrees is neighbor 2 etc.
+ * 
+ * even column (0, 2, ...):		above/below left is col - 1, above/below right is col
+ * odd column (1, 3, ...):		above/below left is col, above/below right is col + 1
+ * </pre>
+ * 
+ * The neighbors are bounds-safe: neighborIndex() returns NO_NEIGHBOR outside the ocean, 
+ * neighborNrInside() mirrors a neighbor outside the ocean to the inside.
+ */
+public class HexGrid {
+
+	/** the number of neighbors of a pixel */
+	public static final int NEIGHBOR_COUNT = 6;
+	/** the index of a neighbor outside of the ocean */
+	public static final int NO_NEIGHBOR = -1;
+
+	/** the column deltas of the neighbors 1 to 6 (index 0 to 5), for even [0] and odd [1] columns */
+	private static final int COL_DELTAS[][] = {
+			{ 0, 1, 0, -1, -1, -1},
+			{ 1, 1, 1,  0, -1,  0}};
+	/** the row deltas of the neighbors 1 to 6 (index 0 to 5), for even and odd columns */
+	private static final int ROW_DELTAS[] = {-1, 0, 1, 1, 0, -1};
+	/** the neighbor numbers mirrored at a row (above/below), index 0 is neighbor 1 */
+	private static final int MIRROR_ROW[] = {3, 2, 1, 6, 5, 4};
+	/** the neighbor numbers mirrored at a column (left/right), index 0 is neighbor 1 */
+	private static final int MIRROR_COLUMN[] = {6, 5, 4, 3, 2, 1};
+
+	/** the number of columns of the ocean */
+	private final int cellColumns;
+	/** the number of rows of the ocean */
+	private final int cellRows;
+	/** the offsets of the flat index of the neighbors 1 to 6 (index 0 to 5), for even [0] and odd [1] columns */
+	private final int indexOffsets[][];
+
+	/**
+	 * @param cellColumns		the number of columns of the ocean
+	 * @param cellRows			the number of rows of the ocean
+	 */
+	public HexGrid(int cellColumns, int cellRows) {
+
+		this.cellColumns = cellColumns;
+		this.cellRows = cellRows;
+		indexOffsets = new int[2][NEIGHBOR_COUNT];
+		for (int parity = 0; parity < 2; parity++) {
+			for (int n = 0; n < NEIGHBOR_COUNT; n++) {
+				indexOffsets[parity][n] = COL_DELTAS[parity][n] * cellRows + ROW_DELTAS[n];
+			}
+		}
+	}
+
+	/**
+	 * Returns true if a pixel is within the ocean.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @return true if the pixel is within the ocean
+	 */
+	public boolean contains(int col, int row) {
+
+		return col >= 0 && col < cellColumns && row >= 0 && row < cellRows;
+	}
+
+	/**
+	 * Returns the offsets of the flat index (see OceanGrid) of the neighbors of a column. 
+	 * The array must not be changed.
+	 * 
+	 * @param col			the column
+	 * @return the index offsets of the neighbors 1 to 6 (index 0 to 5)
+	 */
+	public int[] getIndexOffsets(int col) {
+
+		return indexOffsets[col & 1];
+	}
+
+	/**
+	 * Returns the column of a neighbor.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param neighborNr	the number of the neighbor [1..6]
+	 * @return the column of the neighbor (may be outside of the ocean)
+	 */
+	public static int neighborColumn(int col, int neighborNr) {
+
+		return col + COL_DELTAS[col & 1][neighborNr - 1];
+	}
+
+	/**
+	 * Returns the flat index (see OceanGrid) of a neighbor.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @param neighborNr	the number of the neighbor [1..6]
+	 * @return the index of the neighbor, NO_NEIGHBOR if it is outside of the ocean
+	 */
+	public int neighborIndex(int col, int row, int neighborNr) {
+
+		int neighborCol = neighborColumn(col, neighborNr);
+		int neighborRow = neighborRow(row, neighborNr);
+		if (!contains(neighborCol, neighborRow)) {
+			return NO_NEIGHBOR;
+		}
+		return neighborCol * cellRows + neighborRow;
+	}
+
+	/**
+	 * Returns the number of the neighbor in a direction.
+	 * 
+	 * @param direction		the direction in degrees, 0 is top right
+	 * @return the number of the neighbor [1..6]
+	 */
+	public static int neighborNr(int direction) {
+
+		if (direction < 60) {
+			return 1;
+		}
+		return direction >= 300 ? 6 : direction / 60 + 1;
+	}
+
+	/**
+	 * Returns the number of a neighbor inside of the ocean: if the neighbor is outside, it is 
+	 * mirrored, e.g. at the surface there is nothing above, below is chosen instead.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @param neighborNr	the number of the neighbor [1..6]
+	 * @return the number of a neighbor inside of the ocean [1..6]
+	 */
+	public int neighborNrInside(int col, int row, int neighborNr) {
+
+		int neighborRow = neighborRow(row, neighborNr);
+		if (neighborRow < 0 || neighborRow >= cellRows) {
+			neighborNr = MIRROR_ROW[neighborNr - 1];
+		}
+		int neighborCol = neighborColumn(col, neighborNr);
+		if (neighborCol < 0 || neighborCol >= cellColumns) {
+			neighborNr = MIRROR_COLUMN[neighborNr - 1];
+		}
+		return neighborNr;
+	}
+
+	/**
+	 * Returns the row of a neighbor.
+	 * 
+	 * @param row			the row of the pixel
+	 * @param neighborNr	the number of the neighbor [1..6]
+	 * @return the row of the neighbor (may be outside of the ocean)
+	 */
+	public static int neighborRow(int row, int neighborNr) {
+
+		return row + ROW_DELTAS[neighborNr - 1];
+	}
+}
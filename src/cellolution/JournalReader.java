@@ -0,0 +1,243 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.json.*;
+
+import cellolution.cell.*;
+import cellolution.util.*;
+
+/**
+ * Reads a checkpoint journal (see CheckpointJournal): the base snapshot and all deltas are replayed 
+ * in memory, on the snapshot records of the organisms and on the substance planes. The ocean is 
+ * created from the result like from a binary snapshot.
+ * 
+ * A record damaged by a crash (truncated or with a wrong CRC) or an unexpected record (an unknown 
+ * type or a delta before the base snapshot) ends the journal, the simulation is recovered up to 
+ * the previous record.
+ */
+public class JournalReader implements SimReader {
+
+	/** the size of the buffer of the channel stream */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** the name of the journal file */
+	private final String fileName;
+	/** the base snapshot, resolving the states and types of the organism records */
+	private SimSnapshot base;
+	/** the snapshot records of the organisms by their number, in the order of the ocean */
+	private LinkedHashMap<Integer, byte[]> records;
+	/** the substance planes, null if none or read already */
+	private byte planes[][];
+	/** the tick of the last record replayed */
+	private long tick;
+
+	/**
+	 * Opens a journal file and replays all records.
+	 * 
+	 * @param fileName			the name of the journal file
+	 * @throws IOException on an IO error or if the file is no (compatible) journal
+	 */
+	public JournalReader(String fileName) throws IOException {
+
+		this.fileName = fileName;
+		int recordCount = 0;
+		try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ); 
+				DataInputStream in = new DataInputStream(new BufferedInputStream(
+						Channels.newInputStream(channel), BUFFER_SIZE))) {
+			long fileSize = channel.size();
+			if (in.readInt() != CheckpointJournal.MAGIC) {
+				throw new IOException("'" + fileName + "' is not a Cellolution checkpoint journal");
+			}
+			int formatVersion = in.readInt();
+			if (formatVersion > CheckpointJournal.FORMAT_VERSION) {
+				throw new IOException("Journal '" + fileName + "' has format version " + formatVersion 
+						+ ", this release supports up to " + CheckpointJournal.FORMAT_VERSION);
+			}
+			int type;
+			while ((type = in.read()) >= 0) {
+				byte payload[];
+				long recordTick;
+				try {
+					recordTick = in.readLong();
+					int length = in.readInt();
+					int crc = in.readInt();
+					if (length < 0 || length > fileSize) {
+						throw new EOFException();
+					}
+					payload = new byte[length];
+					in.readFully(payload);
+					CRC32 crc32 = new CRC32();
+					crc32.update(payload);
+					if ((int) crc32.getValue() != crc) {
+						throw new EOFException();
+					}
+				} catch (EOFException e) {
+					Util.verbose("Journal '" + fileName + "': record " + recordCount 
+							+ " is damaged, recovering up to the previous record");
+					break;
+				}
+				if (type == CheckpointJournal.BASE) {
+					replayBase(payload);
+				} else if (type == CheckpointJournal.DELTA && base != null) {
+					replayDelta(payload);
+				} else {
+					Util.verbose("Journal '" + fileName + "': record " + recordCount + " has the unexpected type " 
+							+ type + ", recovering up to the previous record");
+					break;
+				}
+				tick = recordTick;
+				recordCount++;
+			}
+		}
+		if (base == null) {
+			throw new IOException("Journal '" + fileName + "' contains no base snapshot");
+		}
+		Util.verbose("Journal '" + fileName + "': " + recordCount + " records replayed, up to step " + tick);
+	}
+
+	/**
+	 * Releases the replayed simulation.
+	 */
+	@Override
+	public void close() {
+
+		records = null;
+		planes = null;
+	}
+
+	@Override
+	public JSONObject getSimObject() {
+
+		return base.getSimObject();
+	}
+
+	@Override
+	public void readOrganisms(OrganismMgr organismMgr) throws IOException {
+
+		if (records == null) {
+			return;									// read already
+		}
+		for (byte record[] : records.values()) {
+			organismMgr.addOrganismFrom(new DataInputStream(new ByteArrayInputStream(record)), base);
+		}
+		records = null;
+	}
+
+	@Override
+	public boolean readSubstances(OceanGrid grid) throws IOException {
+
+		if (planes == null) {
+			return false;
+		}
+		byte gridPlanes[][] = grid.getPlanes();
+		if (planes.length != gridPlanes.length || planes[0].length != gridPlanes[0].length) {
+			throw new IOException("Journal '" + fileName + "': the substances do not fit to the ocean");
+		}
+		for (int i = 0; i < planes.length; i++) {
+			System.arraycopy(planes[i], 0, gridPlanes[i], 0, planes[i].length);
+		}
+		planes = null;
+		return true;
+	}
+
+	/**
+	 * Replays a base snapshot: the records of the organisms are numbered by their order.
+	 * 
+	 * @param payload		the base snapshot
+	 * @throws IOException on an IO error or if the snapshot is corrupt
+	 */
+	private void replayBase(byte payload[]) throws IOException {
+
+		base = new SimSnapshot(fileName, new ByteArrayInputStream(payload));
+		planes = base.decodeSubstances();
+		records = new LinkedHashMap<>();
+		int number = 0;
+		for (byte record[] : base.readOrganismRecords()) {
+			records.put(number++, record);
+		}
+	}
+
+	/**
+	 * Replays a delta on the records of the organisms and the substance planes.
+	 * 
+	 * @param payload		the compressed delta
+	 * @throws IOException on an IO error or if the delta is corrupt
+	 */
+	private void replayDelta(byte payload[]) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+			replayDelta(in);
+		}
+	}
+
+	/**
+	 * Replays an uncompressed delta on the records of the organisms and the substance planes.
+	 * 
+	 * @param in			the input of the uncompressed delta
+	 * @throws IOException on an IO error or if the delta is corrupt
+	 */
+	private void replayDelta(DataInputStream in) throws IOException {
+
+		base.getSimObject().getJSONObject(Keys.OCEAN).put(Keys.ORGANIC_MATTER_RESERVOIR, in.readInt());
+		// added and changed organisms
+		int changeCount = in.readInt();
+		for (int i = 0; i < changeCount; i++) {
+			int number = in.readInt();
+			if (in.readByte() == CheckpointJournal.FULL) {
+				byte record[] = new byte[in.readInt()];
+				in.readFully(record);
+				records.put(number, record);
+				continue;
+			}
+			byte record[] = records.get(number);
+			if (record == null) {
+				throw new IOException("Journal '" + fileName + "': patch of unknown organism " + number);
+			}
+			int offset;
+			while ((offset = in.readInt()) >= 0) {
+				in.readFully(record, offset, in.readInt());
+			}
+		}
+		// removed organisms
+		int removedCount = in.readInt();
+		for (int i = 0; i < removedCount; i++) {
+			records.remove(in.readInt());
+		}
+		// changed substance tiles
+		int tileSize = in.readInt();
+		byte differences[] = new byte[tileSize];
+		int plane;
+		while ((plane = in.readByte()) >= 0) {
+			if (planes == null || plane >= planes.length) {
+				throw new IOException("Journal '" + fileName + "': unexpected substance plane " + plane);
+			}
+			int from = in.readInt() * tileSize;
+			int to = Math.min(planes[plane].length, from + tileSize);
+			in.readFully(differences, 0, to - from);
+			for (int i = from; i < to; i++) {
+				planes[plane][i] += differences[i - from];
+			}
+		}
+	}
+}
@@ -102,6 +102,8 @@ public interface Keys {
 	/** key for the simulation JSON file */
 	String ORGANISM_STATE = "OrganismState";
 	/** key for the simulation JSON file */
+	String RANDOM_SEED = 	"RandomSeed";
+	/** key for the simulation JSON file */
 	String ROW = 			"Row";
 	/** key for the simulation, property key only */
 	String SIM_VERSION_MAJOR = 		"Sim." + VERSION_MAJOR;
@@ -114,6 +116,8 @@ public interface Keys {
 	/** key for the simulation JSON file */
 	String SMOKER_COUNT = 	"SmokerCount";
 	/** key for the simulation JSON file */
+	String SUBSTANCES = 	"Substances";
+	/** key for the simulation JSON file */
 	String SUN_BEAM_INCREMENT = 	"SunbeamIncrement";
 	/** key for the simulation JSON file */
 	String WEIGHT = 		"Weight";
@@ -16,6 +16,7 @@
  */
 package cellolution;
 
+import java.awt.*;
 import java.awt.image.*;
 import java.io.*;
 import java.net.*;
@@ -86,20 +87,32 @@ public class Main {
 			Usage.exit(1);
 		}
 		isVerbose = args.isVerbose();
+		if (args.isHeadless()) {
+			System.setProperty("java.awt.headless", "true");		// no display needed, before any AWT is touched
+		}
+		Stripes.init(args.getThreadCount());				// threads for parallel computations, e.g. diffusion
 		// read in the JSON files properties and states
 		// if a file does not exist, it will be created with default properties
 		data = new Data();
 		data.readAppData();
-		data.readSimulationData(SIM_DATA_FILE_NAME);
-		// create the world
-		cellColumns = 800;
+		cellColumns = 800;						// the size of the ocean, simulation files have to match
 		cellRows = 450;
+		data.readSimulationData(CheckpointJournal.recoveryFileName(SIM_DATA_FILE_NAME));	// after a crash: the journal
+		// create the world
 		URL imageURL = Main.class.getResource(GROUND_IMG);
 		try {
 			oceanImage = ImageIO.read(imageURL);
 		} catch (Exception e) { // intentionally falling through, no ocean image displayed
 		}
-		ocean = new Ocean(cellColumns, cellRows, oceanImage, true);
+		if (args.getSeed() != null) {
+			ocean = new Ocean(cellColumns, cellRows, oceanImage, true, args.getSeed());
+		} else {
+			ocean = new Ocean(cellColumns, cellRows, oceanImage, true);
+		}
+		if (args.isHeadless()) {
+			runHeadless();
+			return;
+		}
 		// start the GUI
 		System.setProperty("awt.useSystemAAFontSettings","on");					// render fonts in a better way
     	UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName()); 	// in case LookAndFeel Nimbus is not found
@@ -115,6 +128,45 @@ public class Main {
     	mainView = new MainView(orgDisplayCtlr.getOrganismPanel());
 	}
 
+	/**
+	 * Construct the application without GUI and without reading or writing any files, e.g. as the 
+	 * fixture of benchmarks: a new ocean is created from the ground image, with a seeded random generator.
+	 * The simulation is not started.
+	 * 
+	 * @param cellColumns	the number of columns of the ocean
+	 * @param cellRows		the number of rows of the ocean
+	 * @param seed			the seed of the random generator
+	 */
+	private Main(int cellColumns, int cellRows, long seed) {
+		
+		instance = this;
+		System.setProperty("java.awt.headless", "true");			// no display needed, before any AWT is touched
+		args = new CommandLineArgs(new String[] {"-q", "-autosave", "0", "-checkpoint", "0"});
+		isVerbose = false;
+		data = new Data();
+		this.cellColumns = cellColumns;
+		this.cellRows = cellRows;
+		try {
+			oceanImage = ImageIO.read(Main.class.getResource(GROUND_IMG));
+		} catch (Exception e) { // intentionally falling through, the ocean is created without the ground image
+		}
+		ocean = new Ocean(cellColumns, cellRows, oceanImage, true, seed);
+	}
+
+	/**
+	 * Creates the application without GUI and without reading or writing any files, e.g. as the 
+	 * fixture of benchmarks. The same seed creates the same ocean, the simulation is not started.
+	 * 
+	 * @param cellColumns	the number of columns of the ocean
+	 * @param cellRows		the number of rows of the ocean
+	 * @param seed			the seed of the random generator
+	 * @return the application, use getOcean() to access the ocean
+	 */
+	public static Main createHeadless(int cellColumns, int cellRows, long seed) {
+		
+		return new Main(cellColumns, cellRows, seed);
+	}
+
 	/**
 	 * Do some error handling when an exception has been thrown.
 	 * 
@@ -125,7 +177,9 @@ public class Main {
 	public static void exceptionCaught(String text, Exception e) {
 		
 		System.out.println(text);
-		JOptionPane.showMessageDialog(null, text, "Error", JOptionPane.ERROR_MESSAGE);
+		if (!GraphicsEnvironment.isHeadless()) {
+			JOptionPane.showMessageDialog(null, text, "Error", JOptionPane.ERROR_MESSAGE);
+		}
 		e.printStackTrace();
 	}
 
@@ -222,7 +276,10 @@ public class Main {
 						+ "If you delete it, Cellolution will create a new one using defaults,\n"
 						+ "but the simulation may be lost.";
 			}
-			JOptionPane.showMessageDialog(null, msg, "Error", JOptionPane.ERROR_MESSAGE);
+			if (!GraphicsEnvironment.isHeadless()) {
+				JOptionPane.showMessageDialog(null, msg, "Error", JOptionPane.ERROR_MESSAGE);
+			}
+            System.out.println(msg);
             System.out.println("\n*****  Exception caught, exit: " + je);
 			je.printStackTrace();
 			System.exit(1);
@@ -233,6 +290,30 @@ public class Main {
 		}		
 	}
 
+	/**
+	 * Runs the simulation without GUI (batch mode) on a plain thread for the number of steps 
+	 * of the command line, then writes the simulation to the out file.
+	 * 
+	 * @throws InterruptedException if interrupted while waiting for the simulation
+	 */
+	private void runHeadless() throws InterruptedException {
+		
+		long steps = args.getSteps();
+		String outFileName = args.getOutFileName() != null ? args.getOutFileName() : SIM_DATA_FILE_NAME;
+		Util.verbose("Starting headless evolution: " + steps + " steps ...");
+		ocean.getProfiler().setEnabled(args.isProfile());
+		Thread simThread = new Thread(() -> ocean.runHeadless(steps), "Ocean simulation");
+		simThread.start();
+		simThread.join();
+		if (args.isProfile()) {
+			Util.verbose(ocean.getProfiler().summary());
+		}
+		Util.verbose("Writing the simulation to '" + outFileName + "' ...");
+		data.writeSimulationData(outFileName);
+		ocean.getJournal().close();
+		ocean.getAutosave().shutdown();					// wait for an autosave being written
+	}
+
 	/**
 	 * Stops the current ocean simulation and start a new one.
 	 * 
@@ -241,14 +322,12 @@ public class Main {
 	 */
 	public void newOcean(boolean hasManyOrganisms) {
 
-		ocean.setSwingWorkerPaused(true);
 		int option = JOptionPane.showConfirmDialog(mainView, 
 				"This will destroy the current simulation and start a new ocean sim\n"
 				+ "Store the current simulation to a file?", "New Ocean", 
 				JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
 		switch (option) {
 		case JOptionPane.CANCEL_OPTION:
-			ocean.setSwingWorkerPaused(false);
 			return;
 		case JOptionPane.NO_OPTION:
 			ocean.stopSwingWorker();						// stop the current simulation
@@ -259,14 +338,13 @@ public class Main {
 			int retVal = dlg.showSaveDialog(mainView);
 			if (retVal == JFileChooser.APPROVE_OPTION) {
 				String path = dlg.getSelectedFile().toString();
-				if (!path.toLowerCase().endsWith(".json")) {
+				if (!path.toLowerCase().endsWith(".json") && !SimSnapshot.isSnapshotFile(path)) {
 					path += ".json";
 				}
 				data.addRecentFile(path);
 				ocean.stopSwingWorker();					// stop the current simulation
 				data.writeSimulationData(path);
 			} else {
-				ocean.setSwingWorkerPaused(false);
 				return;
 			}
 			//intentionally falling through
@@ -333,19 +411,20 @@ public class Main {
 	 */
 	public void onExit() {
 
-		try {
-			ocean.stopSwingWorker();
-			data.writeOnExit();
-		} catch (IOException e) {
-			// no way out, just display the exception
-			e.printStackTrace();
+		ocean.stopSwingWorker();
+		if (data.writeOnExit()) {
+			ocean.getJournal().delete();				// the simulation file is up to date
+		} else {
+			ocean.getJournal().close();					// the journal recovers the simulation on the next start
 		}
+		ocean.getAutosave().shutdown();					// wait for saves still being written
 		Util.verbose(APP_NAME + " - good bye!");
 		System.exit(0);
 	}
 
 	/**
-	 * Save the current simulation to a file.
+	 * Save the current simulation to a file: the simulation is captured at the next step 
+	 * and written in the background, without pausing the simulation.
 	 */
 	public void saveAs() {
 		
@@ -354,15 +433,12 @@ public class Main {
 		int retVal = dlg.showSaveDialog(mainView);
 		if (retVal == JFileChooser.APPROVE_OPTION) {
 			String path = dlg.getSelectedFile().toString();
-			if (!path.toLowerCase().endsWith(".json")) {
+			if (!path.toLowerCase().endsWith(".json") && !SimSnapshot.isSnapshotFile(path)) {
 				path += ".json";
 			}
-			data.addRecentFile(path);
-			ocean.setSwingWorkerPaused(true);			// pause the current simulation
-			data.writeSimulationData(path);
+			ocean.getAutosave().save(path);
 			data.addRecentFile(path);					// reorder recent files
 			mainView.updateRecentFiles();
-			ocean.setSwingWorkerPaused(false);
 		}
 	}
 
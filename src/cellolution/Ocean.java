@@ -19,6 +19,8 @@ package cellolution;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.*;
+import java.io.*;
+import java.util.*;
 
 import javax.swing.*;
 
@@ -31,6 +33,7 @@ import cellolution.util.*;
 /**
  * Ocean: the water world all cells are living in.
  * An ocean consists of an array of pixels, each being either rock, or water or a part of a living cell.
+ * The pixels are stored in an OceanGrid, a flat primitive array for each kind of value.
  * 
  * The shape of a pixel is a regular hexgon. Therefore, the distances within the structure are different from squares.
  * 
@@ -62,8 +65,8 @@ public class Ocean {
 
 	/** the ocean panel */
 	private OceanPanel oceanPanel;
-	/** the number of evolution steps */
-	private int step;
+	/** the clock of the simulation, running all subsystems tick by tick (one tick is one evolution step) */
+	private SimulationClock clock;
 	/** a counter to count down the steps until a status text will vanish */
 	private int statusLineChangeStopCounter;
 	/** the number of columns of the ocean */
@@ -72,10 +75,16 @@ public class Ocean {
 	private int cellRows;
 	/** if false, only one of each kind of organism is created */
 	private boolean hasManyOrganisms;
-	/** the image of the ocean where all the simulation is displayed */
-	private BufferedImage image;
+	/** the image of the ocean where all the simulation is displayed, null if headless */
+	private OceanRaster raster;
+	/** the render snapshots of the organisms displayed over the image of the ocean, null if headless */
+	private RenderBuffer renderBuffer;
+	/** the areas of the ocean image changed since the last repaint, null if headless */
+	private DirtyRegions dirtyRegions;
+	/** the areas of the markers of the last render snapshot */
+	private ArrayList<Rectangle> lastMarkerAreas;
 	/** all pixels of the ocean */
-	private Pixel pixels[][];
+	private OceanGrid grid;
 	/** the sunshine manager */
 	private Sunshine sunshine;
 	/** the borders of the ocean: water close to rock */
@@ -88,10 +97,16 @@ public class Ocean {
 	private Diffusion diffusion;	
 	/** the amount of organic matter in the ocean should stay constant, this is the reservoir */
 	private int organicMatterReservoir;
+	/** the master seed of all random streams of the simulation (see FastRandom) */
+	private long seed;
 	/** the manager for all organisms */
 	private OrganismMgr organismMgr;
 	/** the controller of displaying organisms */
 	private OrganismDisplayCtlr orgDisplayCtlr;
+	/** saves the simulation in the background, periodically and on request */
+	private Autosave autosave;
+	/** the checkpoint journal of the simulation, to recover it after a crash */
+	private CheckpointJournal journal;
 	/** a SwingWorker performing all the simulation on another thred */
 	private SwingWorker<Object, Object> oceanSimSwingWorker;
 	/** set to true to stop SwingWoker forever */
@@ -112,37 +127,63 @@ public class Ocean {
 	 */
 	public Ocean(int cellColumns, int cellRows, BufferedImage bufferedImage, boolean hasManyOrganisms) {
 
+		this(cellColumns, cellRows, bufferedImage, hasManyOrganisms, System.nanoTime());
+	}
+
+	/**
+	 * Construct the ocean with a seeded random generator: the same seed creates the same ocean 
+	 * (e.g. the fixture of benchmarks). An ocean of a simulation file uses the seed stored in the file 
+	 * instead, if any: continuing the same file performs the same simulation.
+	 * 
+	 * @param cellRows 			number of rows for cells
+	 * @param cellColumns 		number of columns for cells
+	 * @param bufferedImage 	a buffered image of the ocean
+	 * @param hasManyOrganisms 	if true, many organisms are created, on 
+	 * 							false create only one for each species 
+	 * @param seed				the master seed of the random streams
+	 */
+	public Ocean(int cellColumns, int cellRows, BufferedImage bufferedImage, boolean hasManyOrganisms, long seed) {
+
 		this.cellColumns = cellColumns;
 		this.cellRows = cellRows;
 		this.hasManyOrganisms = hasManyOrganisms;
-		new FastRandom();									// needs initialization
-		pixels = new Pixel[cellColumns][cellRows];			// an ocean contains an array of pixels
+		JSONObject jsonSimObj = Main.getData().getSimObject();
+		if (jsonSimObj != null) {
+			// older simulation files do not contain a seed
+			seed = jsonSimObj.getJSONObject(Keys.OCEAN).optLong(Keys.RANDOM_SEED, seed);
+		}
+		this.seed = seed;
+		FastRandom.init(seed);								// before any subsystem gets its random stream
+		grid = new OceanGrid(cellColumns, cellRows);		// an ocean contains a grid of pixels
+		if (!GraphicsEnvironment.isHeadless()) {
+			dirtyRegions = new DirtyRegions(cellColumns * 2, cellRows * 2);
+			lastMarkerAreas = new ArrayList<>();
+		}
 		// scale the image
 		if (bufferedImage != null) {
-	       	image = new BufferedImage(cellColumns * 2, cellRows * 2, bufferedImage.getType());
-	        Graphics2D g2d = image.createGraphics();
-	        g2d.drawImage(bufferedImage, 0, 0, cellColumns * 2, cellRows * 2, null);
-	        g2d.dispose();
+	       	raster = new OceanRaster(cellColumns, cellRows, bufferedImage);
 	        // create the pixels from image
 			for (int col = 0; col < cellColumns; col++) {
 				for (int row = 0; row < cellRows; row++) {
-					int rgb = image.getRGB(col * 2, row * 2) & 0xffffff;
+					int rgb = raster.getRGB(col, row);
 					if (rgb == 0) {
-						pixels[col][row] = new Water(col, row);
+						grid.setWater(col, row);
 						setPixelRGB(col, row,  Water.RGB_DEFAULT);
 					} else {
-						pixels[col][row] = new Rock(col, row, rgb);
+						grid.setRock(col, row);
 					}
 				}
 			}
 		} else {
-			image = new BufferedImage(cellColumns * 2, cellRows * 2, BufferedImage.TYPE_INT_RGB);
+			raster = new OceanRaster(cellColumns, cellRows);
 			createRockAndWater();
 			// fill in the image
+			fillPixelsRGB(0, 0, cellColumns - 1, cellRows - 1, Color.WHITE.getRGB());
 			for (int col = 0; col < cellColumns; col++) {
 				for (int row = 0; row < cellRows; row++) {
-					int rgb = pixels[col][row] instanceof Water ? Color.WHITE.getRGB() : Rock.RGB_DEFAULT;
-					setPixelRGB(col, row,  rgb);
+					if (!grid.isWater(col, row)) {
+						setPixelRGB(col, row,  Rock.RGB_DEFAULT);
+					}
 				}
 			}
 		}
@@ -150,11 +191,10 @@ public class Ocean {
 		int lastCol = cellColumns - 1;
 		for (int col = 0; col < 2; col++) {
 			for (int row = 0; row < cellRows; row++) {
-				pixels[col][row] = new Rock(col, row);
-				pixels[lastCol - col][row] = new Rock(col, row);
+				grid.setRock(col, row);
+				grid.setRock(lastCol - col, row);
 			}
 		}
-		JSONObject jsonSimObj = Main.getData().getSimObject();
 		// the amount of organic matter in the ocean should stay constant, initialize the reservoir
 		if (jsonSimObj == null) {
 			// create as a new simulation
@@ -171,7 +211,19 @@ public class Ocean {
 		organismMgr = new OrganismMgr(this);
 		algaeProducer = new SurfaceAlgaeProducer(this);
 		orgDisplayCtlr = Main.getOrgDisplayCtlr();
-		initMatterValues();
+		if (!readSubstances()) {
+			initMatterValues();				// a new simulation or an older file without substances
+		}
+		if (GraphicsEnvironment.isHeadless()) {
+			raster = null;				// nothing is displayed, do not pay for image updates
+		} else {
+			renderBuffer = new RenderBuffer(cellColumns, cellRows);
+		}
+		clock = new SimulationClock(SimulationClock.Mode.REAL_TIME);
+		autosave = new Autosave(this, Main.getArgs().getAutosaveMinutes(), Main.getArgs().getAutosaveBackups());
+		journal = new CheckpointJournal(this, CheckpointJournal.JOURNAL_FILE_NAME, Main.getArgs().getCheckpointSeconds());
+		scheduleSubsystems();
+		Main.getData().releaseSimulationData();		// the ocean has been created, the file is not needed any more
 	}
 
 	/**
@@ -199,15 +251,15 @@ public class Ocean {
 		for (int row = 0; row < cellRows; row++) {
 			// left side (rock)
 			for (int col = 0; col < left; col++) {
-				pixels[col][row] = new Rock(col, row);
+				grid.setRock(col, row);
 			}
 			// middle (water)
 			for (int col = left; col < cellColumns - right; col++) {
-				pixels[col][row] = new Water(col, row);
+				grid.setWater(col, row);
 			}
 			// right side (rock)
 			for (int col = cellColumns - right; col < cellColumns; col++) {
-				pixels[col][row] = new Rock(col, row);
+				grid.setRock(col, row);
 			}
 			// vary the rock thickness left and right
 			left = nextThickness(left, maxWidening, maxThickness, minThickness);
@@ -219,12 +271,56 @@ public class Ocean {
 		int bottom = FastRandom.nextIntStat(7) + 1;						// bottom rock thickness
 		for (int col = 0; col < cellColumns; col++) {
 			for (int row = 2; row < bottom; row++) {
-				pixels[col][cellRows - row] = new Rock(col, row);
+				grid.setRock(col, cellRows - row);
 			}
 			bottom = nextThickness(bottom, maxWidening, maxThickness, minThickness);
 		}
 	}
 
+	/**
+	 * Fills a rectangle of the buffered image (only, this does not change the ocean's pixel array).
+	 * 
+	 * @param left			the left column
+	 * @param top			the top row
+	 * @param right			the right column (inclusive)
+	 * @param bottom		the bottom row (inclusive)
+	 * @param rgb			the RGB value of the image pixels
+	 */
+	public void fillPixelsRGB(int left, int top, int right, int bottom, int rgb) {
+		
+		if (raster == null) {
+			return;				// headless
+		}
+		raster.fill(left, top, right, bottom, rgb);
+		if (dirtyRegions != null) {
+			dirtyRegions.mark(left * 2, top * 2, (right - left + 1) * 2, (bottom - top + 1) * 2);
+		}
+	}
+
+	/**
+	 * @return the autosave, saving the simulation in the background
+	 */
+	public Autosave getAutosave() {
+
+		return autosave;
+	}
+
+	/**
+	 * @return the checkpoint journal of the simulation
+	 */
+	public CheckpointJournal getJournal() {
+
+		return journal;
+	}
+
+	/**
+	 * @return the areas of the ocean image changed since the last repaint, null if headless
+	 */
+	public DirtyRegions getDirtyRegions() {
+		
+		return dirtyRegions;
+	}
+
 	/**
 	 * @return the organicMatterReservoir
 	 */
@@ -234,11 +330,11 @@ public class Ocean {
 	}
 
 	/**
-	 * @return the image
+	 * @return the image, null if headless
 	 */
 	public BufferedImage getImage() {
 		
-		return image;
+		return raster == null ? null : raster.getImage();
 	}
 	/**
 	 * @return the oceanBorders
@@ -257,11 +353,55 @@ public class Ocean {
 	}
 
 	/**
-	 * @return the pixels of the ocean
+	 * @return the manager of the diffusion of the substances
 	 */
-	public Pixel[][] getPixels() {
+	public Diffusion getDiffusion() {
 		
-		return pixels;
+		return diffusion;
+	}
+
+	/**
+	 * @return the grid containing all pixels of the ocean
+	 */
+	public OceanGrid getGrid() {
+		
+		return grid;
+	}
+
+	/**
+	 * Returns a view of a pixel of the ocean, either Water or Rock.
+	 * 
+	 * @param col		the column of the pixel
+	 * @param row		the row of the pixel
+	 * @return the pixel view
+	 */
+	public Pixel getPixel(int col, int row) {
+		
+		return grid.getPixel(col, row);
+	}
+
+	/**
+	 * @return the profiler of the simulation steps (disabled by default)
+	 */
+	public StepProfiler getProfiler() {
+		
+		return clock.getProfiler();
+	}
+
+	/**
+	 * @return the render snapshots of the organisms, null if headless
+	 */
+	public RenderBuffer getRenderBuffer() {
+		
+		return renderBuffer;
+	}
+
+	/**
+	 * @return the master seed of all random streams of the simulation
+	 */
+	public long getSeed() {
+
+		return seed;
 	}
 
 	/**
@@ -272,12 +412,20 @@ public class Ocean {
 		return smokers;
 	}
 
+	/**
+	 * @return the clock of the simulation
+	 */
+	public SimulationClock getClock() {
+		
+		return clock;
+	}
+
 	/**
 	 * @return the current simulation step
 	 */
 	public int getStep() {
 		
-		return step;
+		return (int) clock.getTick();
 	}
 	
 	/**
@@ -303,12 +451,10 @@ public class Ocean {
 	 */
 	public void initMatterValues() {
 		
+		WaterIndex waterIndex = grid.getWaterIndex();
 		for (int col = 0; col < cellColumns; col++) {
-			for (int row = 0; row < cellRows; row++) {
-				Pixel pixel = pixels[col][row];
-				if (pixel instanceof Water) {
-					((Water) pixel).initMatterValues();
-				}
+			for (int index : waterIndex.getWaterIndices(col)) {
+				grid.initMatterValues(index);
 			}
 		}
 	}
@@ -322,7 +468,7 @@ public class Ocean {
 	 */
 	public boolean isWater(int col, int row) {
 
-		if (!(pixels[col][row] instanceof Water)) {
+		if (!grid.isWater(col, row)) {
 			return false;
 		}
 		// a cell in any organism?
@@ -339,9 +485,9 @@ public class Ocean {
 		try {
 			int x = event.getPoint().x;
 			int y = event.getPoint().y;
-			Pixel pixel = pixels[x / 2][y / 2];
+			Pixel pixel = grid.getPixel(x / 2, y / 2);
 			if (SwingUtilities.isLeftMouseButton(event)) {
-				Main.instance().getMainView().setStatusText("Step: " + step + "     " + pixel.toString());
+				Main.instance().getMainView().setStatusText("Step: " + getStep() + "     " + pixel.toString());
 				statusLineChangeStopCounter = 5;
 			} else if (SwingUtilities.isRightMouseButton(event)) {
 				organismMgr.findAndDisplayNearestOrganism(pixel);
@@ -378,14 +524,102 @@ public class Ocean {
 	 */
     public void setPixelRGB(int column, int row, int rgb) {
     	
-		int imgCol = column * 2;
-		int imgRow = row * 2;
-		image.setRGB(imgCol, imgRow, rgb);
-		image.setRGB(imgCol + 1, imgRow, rgb);
-		image.setRGB(imgCol, imgRow + 1, rgb);
-		image.setRGB(imgCol + 1, imgRow + 1, rgb);
+    	if (raster == null) {
+    		return;				// headless
+    	}
+    	raster.setRGB(column, row, rgb);
+    	if (dirtyRegions != null) {
+    		dirtyRegions.markPixel(column, row);
+    	}
     }
 
+	/**
+	 * Performs simulation steps as fast as possible without any rendering (headless mode), 
+	 * on the calling thread.
+	 * 
+	 * @param steps		the number of steps to perform
+	 */
+	public void runHeadless(long steps) {
+
+		clock.setMode(SimulationClock.Mode.AS_FAST_AS_POSSIBLE);
+		for (long i = 0; i < steps; i++) {
+			clock.nextTick();
+			if (clock.getTick() % 10_000 == 0) {
+				Util.verbose("Step: " + clock.getTick() + ", organisms: " + organismMgr.getOrganismCount());
+			}
+		}
+		if (clock.getProfiler().isEnabled()) {
+			clock.getProfiler().publish();
+		}
+	}
+
+	/**
+	 * Captures the organisms after the current step and publishes the render snapshot for the panel.
+	 */
+	private void publishRenderSnapshot() {
+
+		RenderSnapshot snapshot = renderBuffer.getBack();
+		snapshot.clear(clock.getTick());
+		organismMgr.capture(snapshot);
+		Organism marked = orgDisplayCtlr.getMarkedOrganism();
+		if (marked != null) {
+			snapshot.setFollowed(marked);
+		}
+		// the markers of the last and of this snapshot have to be repainted
+		ArrayList<Rectangle> markerAreas = snapshot.getMarkerAreas();
+		lastMarkerAreas.forEach(area -> dirtyRegions.mark(area));
+		markerAreas.forEach(area -> dirtyRegions.mark(area));
+		lastMarkerAreas = markerAreas;
+		renderBuffer.publish();
+	}
+
+	/**
+	 * Publishes the render snapshot and repaints the areas of the ocean panel changed since the last repaint.
+	 */
+	private void repaintDirtyRegions() {
+
+		publishRenderSnapshot();
+		oceanPanel.repaintRegions(dirtyRegions.collect());
+	}
+
+	/**
+	 * Reads the substance planes of the simulation file the ocean is created from, if any.
+	 * 
+	 * @return true if the substances have been read, false if they have to be initialized
+	 */
+	private boolean readSubstances() {
+
+		SimReader simReader = Main.getData().getSimReader();
+		if (simReader == null) {
+			return false;
+		}
+		try {
+			return simReader.readSubstances(grid);
+		} catch (IOException e) {
+			String message = "Cellolution: error reading the substances of the simulation file, "
+					+ "they are initialized:\n" + e.getMessage();
+			Main.exceptionCaught(message, e);
+			// just display the exception and go further with initialized substances
+			return false;
+		}
+	}
+
+	/**
+	 * Schedules all subsystems of the ocean at the clock, in the order they are performed within a tick.
+	 */
+	private void scheduleSubsystems() {
+
+		clock.schedule("Sunshine", Sunshine.PERIOD_TICKS, tick -> sunshine.next(cellColumns, grid, tick));
+		clock.schedule("Smokers", Smokers.PERIOD_TICKS, tick -> smokers.smoke(tick));
+		clock.schedule("Algae producer", SurfaceAlgaeProducer.PERIOD_TICKS, tick -> algaeProducer.plungeAlgae(tick));
+		clock.schedule("Move", OrganismMgr.MOVE_PERIOD_TICKS, tick -> organismMgr.moveOrganisms(tick));
+		clock.schedule("Step of life", 1, tick -> organismMgr.organismsOneStepOfLife(tick));
+		clock.schedule("Slow update", OrganismMgr.SLOW_UPDATE_PERIOD_TICKS, tick -> organismMgr.slowUpdate(tick));
+		clock.schedule("Diffusion", 1, tick -> diffusion.nextOceanDiffusionStep((int) tick));
+		clock.schedule("Autosave", Autosave.PERIOD_TICKS, tick -> autosave.tick(tick));	// at the tick boundary
+		clock.schedule("Checkpoint journal", CheckpointJournal.PERIOD_TICKS, tick -> journal.tick(tick));
+	}
+
 	/**
 	 * Start the simulation ON a SwingWorker thread.
 	 */
@@ -395,42 +629,44 @@ public class Ocean {
 		swingWorkerPause = false;
 		long lastTimeRepainted = System.currentTimeMillis();
 		long lastTimeOrgDisplayUpdated = lastTimeRepainted;
-		oceanPanel.repaint();
-		for (step = 1; ; step++) {
+		StepProfiler profiler = clock.getProfiler();
+		int repaintPhase = profiler.addPhase("Repaint");
+		dirtyRegions.markAll();
+		repaintDirtyRegions();
+		clock.restartPacing();
+		for (;;) {
+			clock.nextTick();				// performs all subsystems due at this step
+			int step = getStep();
 			long time = System.currentTimeMillis();
 			if (step % 50 == 0) {
 				if (statusLineChangeStopCounter > 0) {
 					statusLineChangeStopCounter--;
 				} else {
 					Main.getMainView().setStatusText("Step: " + step);
-					
-//					Runtime rt = Runtime.getRuntime();
-//					System.out.println("Mem: " + (rt.totalMemory() - rt.freeMemory()));
-					
 				}
 			}
-			sunshine.next(cellColumns, pixels, time);
-			smokers.smoke(time);
-			algaeProducer.plungeAlgae(time);
-			organismMgr.moveOrganisms(time);
-			organismMgr.organismsOneStepOfLife(time);
-			organismMgr.slowUpdate(time);
-			diffusion.nextOceanDiffusionStep(step);
-			if (step % 3 == 0) {
-				// be polite to the others
+			if (step % 3 == 0 && clock.getMode() == SimulationClock.Mode.AS_FAST_AS_POSSIBLE) {
+				// be polite to the others (real-time pacing is waiting anyway)
 				Util.sleep(1);
 			}
 			if (time - lastTimeRepainted > 100) {
-				oceanPanel.repaint();
+				profiler.begin();
+				repaintDirtyRegions();
+				profiler.end(repaintPhase);
 				lastTimeRepainted = time;
 			}
 			if (time - lastTimeOrgDisplayUpdated > 400) {
-				orgDisplayCtlr.displayAndRepaint();
+				// displayed from the render snapshot (captured by repaintDirtyRegions())
+				SwingUtilities.invokeLater(() -> orgDisplayCtlr.displayAndRepaint());
 				lastTimeOrgDisplayUpdated = time;
 			}
-			while (swingWorkerPause) {
-				swingWorkerIsPaused = true;
-				Util.sleep(50);
+			if (swingWorkerPause) {
+				while (swingWorkerPause) {
+					swingWorkerIsPaused = true;
+					autosave.serveRequests();		// saving while paused
+					Util.sleep(50);
+				}
+				clock.restartPacing();
 			}
 			swingWorkerIsPaused = false;
 			if (swingWorkerStop) {
@@ -449,6 +685,14 @@ public class Ocean {
 		
 		this.oceanPanel = oceanPanel;
 		orgDisplayCtlr = Main.getOrgDisplayCtlr();		// due to late instantiation
+		if (Main.getArgs().isFast()) {
+			clock.setMode(SimulationClock.Mode.AS_FAST_AS_POSSIBLE);
+		}
+		if (Main.getArgs().isProfile() || oceanPanel.isStatisticsVisible()) {
+			// the statistics remain visible for a new ocean
+			clock.getProfiler().setEnabled(true);
+			oceanPanel.setStatisticsVisible(true);
+		}
 		oceanPanel.set(this, smokers, organismMgr, orgDisplayCtlr);
 		oceanSimSwingWorker = new SwingWorker() {
 			@Override
@@ -474,6 +718,8 @@ public class Ocean {
 		for (int i = 0; i < 5000; i++) {
 			if (oceanSimSwingWorker.isDone()) {
 				Util.verbose(Main.APP_NAME + " - simulation stopped, saving results ...");
+				autosave.serveRequests();			// saves requested before stopping
+				journal.close();
 				return;
 			}
 			Util.sleep(1);
@@ -512,7 +758,9 @@ public class Ocean {
 		
 		JSONObject jsonOcean = new JSONObject();
 		jsonOcean.put(Keys.ORGANIC_MATTER_RESERVOIR, organicMatterReservoir);
+		jsonOcean.put(Keys.RANDOM_SEED, seed);
 		jsonOcean.put(Keys.SMOKERS, smokers.toJSONArray());
+		jsonOcean.put(Keys.SUBSTANCES, Base64.getEncoder().encodeToString(grid.encodeSubstances()));
 		JSONArray jsonOrganisms = organismMgr.toJSONArray();
 		jsonOcean.put(Keys.ORGANISMS, jsonOrganisms);
 		return jsonOcean;
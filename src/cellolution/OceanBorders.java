@@ -51,14 +51,14 @@ public class OceanBorders {
 		
 		int cellColumns = Main.getCellColumns();
 		int cellRows = Main.getCellRows();
-		Pixel pixels[][] = ocean.getPixels();
+		OceanGrid grid = ocean.getGrid();
 		// left side
 		leftBorderCols = new int[cellRows];
 		for (int row = 0; row < cellRows; row++) {
-			pixels[0][row] = new Rock(0, row);									// borders are always rock
+			grid.setRock(0, row);												// borders are always rock
 			boolean found = false;
 			for (int col = 1; col < cellColumns; col++) {
-				if (pixels[col][row] instanceof Water) {
+				if (grid.isWater(col, row)) {
 					leftBorderCols[row] = col;
 					found = true;
 					break;
@@ -72,10 +72,10 @@ public class OceanBorders {
 		// right side
 		rigthBorderCols = new int[cellRows];
 		for (int row = 0; row < cellRows; row++) {
-			pixels[cellColumns - 1][row] = new Rock(cellColumns - 1, row);		// borders are always rock
+			grid.setRock(cellColumns - 1, row);									// borders are always rock
 			boolean found = false;
 			for (int col = cellColumns - 2; col >= 0; col--) {
-				if (pixels[col][row] instanceof Water) {
+				if (grid.isWater(col, row)) {
 					rigthBorderCols[row] = col;
 					found = true;
 					break;
@@ -89,10 +89,10 @@ public class OceanBorders {
 		// bottom
 		bottomBorderRows = new int[cellColumns];
 		for (int col = 0; col < cellColumns; col++) {
-			pixels[col][cellRows - 1] = new Rock(col, cellRows - 1);	// borders are always rock
+			grid.setRock(col, cellRows - 1);			// borders are always rock
 			bottomBorderRows[col] = -1;				// in case there is only rock within this column
 			for (int row = cellRows - 2; row >= 0; row--) {
-				if (pixels[col][row] instanceof Water) {
+				if (grid.isWater(col, row)) {
 					bottomBorderRows[col] = row;
 					break;
 				}
@@ -0,0 +1,388 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.io.*;
+
+import cellolution.util.*;
+
+/**
+ * The storage of the ocean pixels: a structure of primitive arrays instead of a Pixel object for each pixel.
+ * 
+ * Each pixel of the ocean has an index into the arrays (planes). The index is column major, so the pixels 
+ * of a column are stored one after the other, as the diffusion runs column by column:
+ * 
+ * <pre>
+ * index = column * cellRows + row
+ * 
+ * neighbour above/below:		index - 1, index + 1
+ * neighbour left/right:		index - cellRows, index + cellRows
+ * </pre>
+ * 
+ * There is one plane for the type of a pixel (water or rock) and one plane for each dissolved substance 
+ * (see Water.CO2, Water.CaCO3, Water.H2S, Water.ORGANIC). Water and Rock objects are only views 
+ * (flyweights) of a pixel, created on demand by getPixel().
+ * 
+ * The WaterIndex of the grid lists all water pixels and their neighbors, it is updated when pixels 
+ * change to rock or water.
+ * 
+ * The substance planes are double buffered: the diffusion reads the current planes and writes the 
+ * next planes, which become the current planes by swapPlanes(). Never keep a reference to a plane 
+ * across diffusion steps.
+ */
+public class OceanGrid {
+
+	/** cell type of a pixel: water */
+	public static final byte WATER = 0;
+	/** cell type of a pixel: rock */
+	public static final byte ROCK = 1;
+
+	/** the number of columns of the ocean */
+	private final int cellColumns;
+	/** the number of rows of the ocean */
+	private final int cellRows;
+	/** the number of pixels of the ocean */
+	private final int size;
+	/** the type of each pixel: WATER or ROCK */
+	private final byte cellType[];
+	/** the planes of dissolved substances, one plane for each substance, indexed by Water.CO2 etc. */
+	private byte substances[][];
+	/** the planes of dissolved substances of the next diffusion step, see swapPlanes() */
+	private byte nextSubstances[][];
+	/** the intensity of a sunbeam flowing through a water pixel, if any */
+	private final short sunbeamIntensity[];
+	/** the topology of the hexagon pixels */
+	private final HexGrid hexGrid;
+	/** the index of all water pixels */
+	private final WaterIndex waterIndex;
+
+	/**
+	 * Construction, all pixels are water.
+	 * 
+	 * @param cellColumns		the number of columns of the ocean
+	 * @param cellRows			the number of rows of the ocean
+	 */
+	public OceanGrid(int cellColumns, int cellRows) {
+
+		this.cellColumns = cellColumns;
+		this.cellRows = cellRows;
+		size = cellColumns * cellRows;
+		cellType = new byte[size];
+		substances = new byte[Water.SUBSTANCES_SIZE][size];
+		nextSubstances = new byte[Water.SUBSTANCES_SIZE][size];
+		sunbeamIntensity = new short[size];
+		hexGrid = new HexGrid(cellColumns, cellRows);
+		waterIndex = new WaterIndex(this);
+	}
+
+	/**
+	 * Adds a value to a substance of a pixel.
+	 * 
+	 * @param matterIndexConstant		one of the defined constants (e.g. Water.CO2)
+	 * @param index						the index of the pixel
+	 * @param value						the value to add (or subtract, if negative)
+	 */
+	public void addMatterValue(int matterIndexConstant, int index, int value) {
+
+		substances[matterIndexConstant][index] += value;
+	}
+
+	/**
+	 * Decodes the substance planes of all pixels, encoded by encodeSubstances(), into the current planes. 
+	 * The planes are decoded into temporary planes first: if the encoding is corrupt, the current planes 
+	 * are unchanged (e.g. the rock pixels, not initialized again).
+	 * 
+	 * @param encoded		the encoded substance planes
+	 * @throws IOException if the encoding is corrupt or of an ocean with another size
+	 */
+	public void decodeSubstances(byte encoded[]) throws IOException {
+
+		byte decoded[][] = new byte[substances.length][substances[0].length];
+		PlaneCodec.decode(encoded, decoded);
+		for (int i = 0; i < substances.length; i++) {
+			System.arraycopy(decoded[i], 0, substances[i], 0, decoded[i].length);
+		}
+	}
+
+	/**
+	 * Encodes the current substance planes of all pixels compactly (see PlaneCodec), e.g. to be saved.
+	 * 
+	 * @return the encoded substance planes
+	 */
+	public byte[] encodeSubstances() {
+
+		return PlaneCodec.encode(substances);
+	}
+
+	/**
+	 * @return the type of all pixels, WATER or ROCK
+	 */
+	public byte[] getCellTypes() {
+
+		return cellType;
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	public int getCellColumns() {
+
+		return cellColumns;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int getCellRows() {
+
+		return cellRows;
+	}
+
+	/**
+	 * Returns a view of the pixel, either a Water or a Rock object. 
+	 * The view is created on demand, changes of a Water view change the grid.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @return a Water or a Rock view of the pixel
+	 */
+	public Pixel getPixel(int col, int row) {
+
+		if (cellType[index(col, row)] == WATER) {
+			return new Water(this, col, row);
+		}
+		return new Rock(col, row);
+	}
+
+	/**
+	 * @return the topology of the hexagon pixels (neighbors)
+	 */
+	public HexGrid getHexGrid() {
+
+		return hexGrid;
+	}
+
+	/**
+	 * Returns the plane of a substance, containing the values of all pixels.
+	 * 
+	 * @param matterIndexConstant		one of the defined constants (e.g. Water.CO2)
+	 * @return the plane of the substance
+	 */
+	public byte[] getPlane(int matterIndexConstant) {
+
+		return substances[matterIndexConstant];
+	}
+
+	/**
+	 * @return the planes of all substances, indexed by Water.CO2 etc.
+	 */
+	public byte[][] getPlanes() {
+
+		return substances;
+	}
+
+	/**
+	 * Returns the planes of all substances of the next diffusion step. 
+	 * They contain no valid values until they are written by the diffusion.
+	 * 
+	 * @return the next planes of all substances, indexed by Water.CO2 etc.
+	 */
+	public byte[][] getNextPlanes() {
+
+		return nextSubstances;
+	}
+
+	/**
+	 * @return the number of pixels
+	 */
+	public int getSize() {
+
+		return size;
+	}
+
+	/**
+	 * @param index		the index of the pixel
+	 * @return the sunbeam intensity of a pixel
+	 */
+	public short getSunbeamIntensity(int index) {
+
+		return sunbeamIntensity[index];
+	}
+
+	/**
+	 * Returns the index of all water pixels, rebuilding the changed columns if necessary.
+	 * 
+	 * @return the index of all water pixels
+	 */
+	public WaterIndex getWaterIndex() {
+
+		waterIndex.update();
+		return waterIndex;
+	}
+
+	/**
+	 * Returns a Water view of a pixel, or null if the pixel is rock.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @return the Water view of the pixel or null
+	 */
+	public Water getWater(int col, int row) {
+
+		if (cellType[index(col, row)] == WATER) {
+			return new Water(this, col, row);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the index of a pixel within the planes.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @return the index of a pixel
+	 */
+	public int index(int col, int row) {
+
+		return col * cellRows + row;
+	}
+
+	/**
+	 * Initialize the values of dissolved substances of a water pixel, depending on its depth.
+	 * 
+	 * @param index		the index of the pixel
+	 */
+	public void initMatterValues(int index) {
+
+		int row = index % cellRows;
+		byte deeperMoreVal = (byte) (80 * row / cellRows);
+		byte deeperLessVal = (byte) (100 - deeperMoreVal);
+		substances[Water.CO2][index] = deeperLessVal;
+		substances[Water.CaCO3][index] = (byte) (deeperMoreVal / 3 + 23);
+		substances[Water.H2S][index] = (byte) (10 + deeperMoreVal / 2 + 1);
+		substances[Water.ORGANIC][index] = (byte) 20;
+	}
+
+	/**
+	 * Return true if the pixel is rock.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @return true if the pixel is rock, false otherwise
+	 */
+	public boolean isRock(int col, int row) {
+
+		return cellType[index(col, row)] == ROCK;
+	}
+
+	/**
+	 * Return true if the pixel is water (regardless of any cells on it).
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @return true if the pixel is water, false otherwise
+	 */
+	public boolean isWater(int col, int row) {
+
+		return cellType[index(col, row)] == WATER;
+	}
+
+	/**
+	 * Return true if the pixel is water (regardless of any cells on it).
+	 * 
+	 * @param index		the index of the pixel
+	 * @return true if the pixel is water, false otherwise
+	 */
+	public boolean isWater(int index) {
+
+		return cellType[index] == WATER;
+	}
+
+	/**
+	 * Returns the amount of a substance dissolved within a pixel.
+	 * 
+	 * @param matterIndexConstant		one of the defined constants (e.g. Water.CO2)
+	 * @param index						the index of the pixel
+	 * @return the amount of the substance
+	 */
+	public int matterValue(int matterIndexConstant, int index) {
+
+		return substances[matterIndexConstant][index];
+	}
+
+	/**
+	 * Set a substance of a pixel.
+	 * 
+	 * @param matterIndexConstant		one of the defined constants (e.g. Water.CO2)
+	 * @param index						the index of the pixel
+	 * @param value						a value ranging from 0 to 100
+	 */
+	public void setMatterValue(int matterIndexConstant, int index, byte value) {
+
+		substances[matterIndexConstant][index] = value;
+	}
+
+	/**
+	 * Makes a pixel rock, dissolved substances are cleared.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 */
+	public void setRock(int col, int row) {
+
+		int index = index(col, row);
+		cellType[index] = ROCK;
+		waterIndex.markDirty(col);
+		for (int i = 0; i < substances.length; i++) {
+			substances[i][index] = 0;
+		}
+		sunbeamIntensity[index] = 0;
+	}
+
+	/**
+	 * Swaps the current and the next planes of the substances, after the next planes have been 
+	 * written completely (by the diffusion).
+	 */
+	public void swapPlanes() {
+
+		byte planes[][] = substances;
+		substances = nextSubstances;
+		nextSubstances = planes;
+	}
+
+	/**
+	 * @param index					the index of the pixel
+	 * @param sunbeamIntensity 		the amount of energy within this pixel if 
+	 * 								there is a sunbeam flowing through it
+	 */
+	public void setSunbeamIntensity(int index, int sunbeamIntensity) {
+
+		this.sunbeamIntensity[index] = (short) sunbeamIntensity;
+	}
+
+	/**
+	 * Makes a pixel water.
+	 * 
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 */
+	public void setWater(int col, int row) {
+
+		cellType[index(col, row)] = WATER;
+		waterIndex.markDirty(col);
+	}
+}
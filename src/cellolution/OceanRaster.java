@@ -0,0 +1,135 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+/**
+ * The image of the ocean, each pixel of the ocean is displayed as a block of 2*2 image dots.
+ * 
+ * The image is a TYPE_INT_RGB BufferedImage, the int array of its DataBufferInt is fetched once 
+ * and written directly, instead of BufferedImage.setRGB() converting each dot through the ColorModel.
+ * The alpha bits of the RGB values are ignored.
+ */
+public class OceanRaster {
+
+	/** the image of the ocean */
+	private BufferedImage image;
+	/** the dots of the image, row by row */
+	private int[] dots;
+	/** the number of columns of the ocean */
+	private int cellColumns;
+	/** the number of rows of the ocean */
+	private int cellRows;
+	/** the width of the image (number of dots in a row) */
+	private int width;
+
+	/**
+	 * Construct an empty (black) raster.
+	 * 
+	 * @param cellColumns		the number of columns of the ocean
+	 * @param cellRows			the number of rows of the ocean
+	 */
+	public OceanRaster(int cellColumns, int cellRows) {
+
+		this.cellColumns = cellColumns;
+		this.cellRows = cellRows;
+		width = cellColumns * 2;
+		image = new BufferedImage(width, cellRows * 2, BufferedImage.TYPE_INT_RGB);
+		dots = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Construct a raster showing an image, scaled to the size of the ocean.
+	 * 
+	 * @param cellColumns		the number of columns of the ocean
+	 * @param cellRows			the number of rows of the ocean
+	 * @param sourceImage		the image
+	 */
+	public OceanRaster(int cellColumns, int cellRows, BufferedImage sourceImage) {
+
+		this(cellColumns, cellRows);
+        Graphics2D g2d = image.createGraphics();
+        g2d.drawImage(sourceImage, 0, 0, width, cellRows * 2, null);
+        g2d.dispose();
+	}
+
+	/**
+	 * Fills a rectangle of ocean pixels with a RGB value.
+	 * 
+	 * @param left			the left column
+	 * @param top			the top row
+	 * @param right			the right column (inclusive)
+	 * @param bottom		the bottom row (inclusive)
+	 * @param rgb			the RGB value
+	 */
+	public void fill(int left, int top, int right, int bottom, int rgb) {
+
+		left = Math.max(left, 0);
+		top = Math.max(top, 0);
+		right = Math.min(right, cellColumns - 1);
+		bottom = Math.min(bottom, cellRows - 1);
+		if (left > right || top > bottom) {
+			return;
+		}
+		int firstDot = left * 2;
+		int endDot = right * 2 + 2;
+		for (int dotRow = top * 2; dotRow <= bottom * 2 + 1; dotRow++) {
+			int rowStart = dotRow * width;
+			Arrays.fill(dots, rowStart + firstDot, rowStart + endDot, rgb);
+		}
+	}
+
+	/**
+	 * @return the image of the ocean
+	 */
+	public BufferedImage getImage() {
+
+		return image;
+	}
+
+	/**
+	 * Returns the RGB value of an ocean pixel (its top left image dot).
+	 * 
+	 * @param column		the column of the pixel
+	 * @param row			the row of the pixel
+	 * @return the RGB value, without alpha bits
+	 */
+	public int getRGB(int column, int row) {
+
+		return dots[row * 2 * width + column * 2] & 0xffffff;
+	}
+
+	/**
+	 * Sets the RGB value of an ocean pixel (all of its 2*2 image dots).
+	 * 
+	 * @param column		the column of the pixel
+	 * @param row			the row of the pixel
+	 * @param rgb			the RGB value
+	 */
+	public void setRGB(int column, int row, int rgb) {
+
+		int index = row * 2 * width + column * 2;
+		dots[index] = rgb;
+		dots[index + 1] = rgb;
+		index += width;
+		dots[index] = rgb;
+		dots[index + 1] = rgb;
+	}
+}
@@ -0,0 +1,90 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.awt.image.*;
+import java.util.*;
+
+/**
+ * The organism layer of the ocean: an ARGB image with all cells of the organisms, transparent elsewhere.
+ * 
+ * The simulation thread rasterizes the cells into the int array of the image (a block of 3*3 dots 
+ * for each cell, starting at the top left dot of its pixel), the ocean panel draws the layer 
+ * over the ocean image with one drawImage(), instead of painting each cell with Graphics2D calls.
+ */
+public class OrganismOverlay {
+
+	/** the image of the layer */
+	private BufferedImage image;
+	/** the dots of the image, row by row */
+	private int[] dots;
+	/** the width of the image (number of dots in a row) */
+	private int width;
+	/** the height of the image (number of dot rows) */
+	private int height;
+
+	/**
+	 * Construct an empty (transparent) layer.
+	 * 
+	 * @param cellColumns		the number of columns of the ocean
+	 * @param cellRows			the number of rows of the ocean
+	 */
+	public OrganismOverlay(int cellColumns, int cellRows) {
+
+		width = cellColumns * 2;
+		height = cellRows * 2;
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		dots = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Clears the layer, all dots are transparent.
+	 */
+	public void clear() {
+
+		Arrays.fill(dots, 0);
+	}
+
+	/**
+	 * Sets the ARGB value of a cell (a block of 3*3 dots, clipped at the border of the image).
+	 * 
+	 * @param column		the column of the cell
+	 * @param row			the row of the cell
+	 * @param argb			the ARGB value
+	 */
+	public void fillCell(int column, int row, int argb) {
+
+		int x = column << 1;
+		int y = row << 1;
+		int endX = Math.min(x + 3, width);
+		int endY = Math.min(y + 3, height);
+		for (; y < endY; y++) {
+			int rowStart = y * width;
+			for (int dotX = x; dotX < endX; dotX++) {
+				dots[rowStart + dotX] = argb;
+			}
+		}
+	}
+
+	/**
+	 * @return the image of the layer
+	 */
+	public BufferedImage getImage() {
+
+		return image;
+	}
+}
@@ -110,36 +110,9 @@ public abstract class Pixel {
 	 */
 	public void move(int direction) {
 		
-		boolean isEvenCol = (column & 1) == 0;				// even: column 0, 2, ...      odd:   column 1, 3, ...
-		int colAboveBelowLeft = isEvenCol ? column - 1 : column;
-		int colAboveBelowRight = colAboveBelowLeft + 1;
-
-//		System.out.print("\ndir " + direction + ", col " + column + ", row " + row);
-		
-		// compute row/column deltas for an even or odd column
-		if (direction < 60) {			
-			// 0 .. 60 degrees, right above
-			column = (short) colAboveBelowRight;
-			row--;
-		} else if (direction < 120) {	
-			// right
-			column++;
-		} else if (direction < 180) {	
-			// right below
-			column = (short) colAboveBelowRight;
-			row++;
-		} else if (direction < 240) {	
-			// left below
-			column = (short) colAboveBelowLeft;
-			row++;
-		} else if (direction < 300) {	
-			// left 
-			column--;
-		} else {						
-			// left above
-			column = (short) colAboveBelowLeft;
-			row--;
-		}
-//		System.out.print(", new col " + column + ", new row " + row);
+		// 0 .. 60 degrees is right above (neighbor 1), 60 .. 120 degrees right (neighbor 2) etc.
+		int neighborNr = HexGrid.neighborNr(direction);
+		column = (short) HexGrid.neighborColumn(column, neighborNr);
+		row = (short) HexGrid.neighborRow(row, neighborNr);
 	}
 }
@@ -0,0 +1,94 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A triple buffer of render snapshots between the simulation thread (the producer) and the 
+ * event dispatch thread (the consumer), neither of them ever waits for the other.
+ * 
+ * The simulation captures into the back snapshot and publishes it, which exchanges it with 
+ * the middle one. The panel takes the middle snapshot only if it has been published since the 
+ * last take, exchanging it with the front one. Each snapshot is owned by exactly one thread 
+ * at a time, the AtomicReference makes the captured content visible to the panel.
+ * 
+ * <pre>
+ * Usage:
+ * 		simulation thread:					event dispatch thread:
+ * 		RenderSnapshot back = getBack();	RenderSnapshot front = takeLatest();
+ * 		... capture into back ...			... paint front ...
+ * 		publish();
+ * </pre>
+ */
+public class RenderBuffer {
+
+	/** the snapshot the simulation captures into, owned by the simulation thread */
+	private RenderSnapshot back;
+	/** the snapshot in exchange between the threads */
+	private AtomicReference<RenderSnapshot> middle;
+	/** the snapshot displayed by the panel, owned by the event dispatch thread */
+	private RenderSnapshot front;
+
+	/**
+	 * Construct a buffer with three empty snapshots.
+	 * 
+	 * @param cellColumns		the number of columns of the ocean
+	 * @param cellRows			the number of rows of the ocean
+	 */
+	public RenderBuffer(int cellColumns, int cellRows) {
+
+		back = new RenderSnapshot(cellColumns, cellRows);
+		middle = new AtomicReference<>(new RenderSnapshot(cellColumns, cellRows));
+		front = new RenderSnapshot(cellColumns, cellRows);
+	}
+
+	/**
+	 * Simulation thread: returns the snapshot to capture into, until the next publish().
+	 * 
+	 * @return the back snapshot
+	 */
+	public RenderSnapshot getBack() {
+
+		return back;
+	}
+
+	/**
+	 * Simulation thread: publishes the captured back snapshot, a snapshot not yet taken 
+	 * by the panel is dropped.
+	 */
+	public void publish() {
+
+		back.isFresh = true;
+		back = middle.getAndSet(back);
+	}
+
+	/**
+	 * Event dispatch thread: returns the latest published snapshot, the snapshot stays unchanged 
+	 * until the next call.
+	 * 
+	 * @return the front snapshot
+	 */
+	public RenderSnapshot takeLatest() {
+
+		if (middle.get().isFresh) {
+			front = middle.getAndSet(front);
+			front.isFresh = false;
+		}
+		return front;
+	}
+}
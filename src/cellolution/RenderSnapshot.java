@@ -0,0 +1,341 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+import cellolution.cell.*;
+import cellolution.ui.*;
+
+/**
+ * A compact render snapshot of the organisms, captured by the simulation thread after a step: 
+ * the organism layer (cells with their colors), the markers of the marked organisms and 
+ * the position and the data of the followed organism.
+ * 
+ * Snapshots are exchanged through a RenderBuffer: a published snapshot is never changed 
+ * while the panel displays it, therefore painting needs no access to the organisms.
+ */
+public class RenderSnapshot {
+
+	/** the number of ints of a marker within the markers array: x, y, ARGB */
+	private static final int MARKER_INTS = 3;
+
+	/** the organism layer */
+	private OrganismOverlay overlay;
+	/** the markers of the marked organisms: x, y and ARGB of each marker */
+	private int[] markers;
+	/** the number of markers */
+	private int markerCount;
+	/** the simulation step of the snapshot, -1 if nothing has been captured yet */
+	private long step;
+	/** true if an organism is followed (and its position is known) */
+	private boolean hasFollowed;
+	/** the x value of the center of the followed organism */
+	private int followedX;
+	/** the y value of the center of the followed organism */
+	private int followedY;
+	/** the data of the followed organism to be displayed */
+	private FollowedOrganism followed;
+	/** true if published, but not yet taken by the panel (see RenderBuffer) */
+	boolean isFresh;
+
+	/**
+	 * Construct an empty snapshot.
+	 * 
+	 * @param cellColumns		the number of columns of the ocean
+	 * @param cellRows			the number of rows of the ocean
+	 */
+	public RenderSnapshot(int cellColumns, int cellRows) {
+
+		overlay = new OrganismOverlay(cellColumns, cellRows);
+		markers = new int[16 * MARKER_INTS];
+		followed = new FollowedOrganism();
+		step = -1;
+	}
+
+	/**
+	 * Adds the marker of a marked organism.
+	 * 
+	 * @param x				the x value of the center of the organism
+	 * @param y				the y value of the center of the organism
+	 * @param argb			the ARGB value of the marker
+	 */
+	public void addMarker(int x, int y, int argb) {
+
+		int index = markerCount * MARKER_INTS;
+		if (index + MARKER_INTS > markers.length) {
+			markers = Arrays.copyOf(markers, markers.length * 2);
+		}
+		markers[index] = x;
+		markers[index + 1] = y;
+		markers[index + 2] = argb;
+		markerCount++;
+	}
+
+	/**
+	 * Clears the snapshot for a new capture.
+	 * 
+	 * @param step				the simulation step to be captured
+	 */
+	public void clear(long step) {
+
+		this.step = step;
+		overlay.clear();
+		markerCount = 0;
+		hasFollowed = false;
+	}
+
+	/**
+	 * Returns the areas (in dots) of the markers of the marked organisms and the followed organism.
+	 * 
+	 * @return the areas of the markers
+	 */
+	public ArrayList<Rectangle> getMarkerAreas() {
+
+		ArrayList<Rectangle> areas = new ArrayList<>();
+		for (int i = 0; i < markerCount * MARKER_INTS; i += MARKER_INTS) {
+			areas.add(markerArea(markers[i], markers[i + 1]));
+		}
+		if (hasFollowed) {
+			areas.add(markerArea(followedX, followedY));
+		}
+		return areas;
+	}
+
+	/**
+	 * @return the organism layer
+	 */
+	public OrganismOverlay getOverlay() {
+
+		return overlay;
+	}
+
+	/**
+	 * @return the simulation step of the snapshot, -1 if nothing has been captured yet
+	 */
+	public long getStep() {
+
+		return step;
+	}
+
+	/**
+	 * @return the data of the followed organism, null if no organism is followed
+	 */
+	public FollowedOrganism getFollowed() {
+
+		return hasFollowed ? followed : null;
+	}
+
+	/**
+	 * @return the x value of the center of the followed organism
+	 */
+	public int getFollowedX() {
+
+		return followedX;
+	}
+
+	/**
+	 * @return the y value of the center of the followed organism
+	 */
+	public int getFollowedY() {
+
+		return followedY;
+	}
+
+	/**
+	 * @return true if an organism is followed (and its position is known)
+	 */
+	public boolean hasFollowed() {
+
+		return hasFollowed;
+	}
+
+	/**
+	 * Draws the snapshot: the organism layer and the markers of the marked organisms.
+	 * 
+	 * @param g2d				the Graphics2D object
+	 */
+	public void paint(Graphics2D g2d) {
+
+		g2d.drawImage(overlay.getImage(), null, 0, 0);
+		for (int i = 0; i < markerCount * MARKER_INTS; i += MARKER_INTS) {
+			int x = markers[i];
+			int y = markers[i + 1];
+			g2d.setColor(new Color(markers[i + 2], true));
+			g2d.drawArc(x - OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS + 1, y - OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS + 1, 
+					OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS * 2, OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS * 2, 0, 360);
+		}
+	}
+
+	/**
+	 * Returns the area of a marker circle (in dots), including its outline.
+	 * 
+	 * @param x				the x value of the center of the marker
+	 * @param y				the y value of the center of the marker
+	 * @return the area of the marker
+	 */
+	private static Rectangle markerArea(int x, int y) {
+
+		int radius = OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS;
+		return new Rectangle(x - radius, y - radius, radius * 2 + 3, radius * 2 + 3);
+	}
+
+	/**
+	 * Captures the position and the data of the followed organism.
+	 * 
+	 * @param organism		the followed organism
+	 */
+	public void setFollowed(Organism organism) {
+
+		hasFollowed = true;
+		followedX = organism.getCenterX();
+		followedY = organism.getCenterY();
+		followed.capture(organism);
+	}
+
+	/**
+	 * The data of the followed organism to be displayed, copied from the organism and its cells, 
+	 * the arrays are reused by the next captures.
+	 */
+	public static class FollowedOrganism {
+
+		/** the number of the organism */
+		private int number;
+		/** the center column of the organism */
+		private int centerColumn;
+		/** the center row of the organism */
+		private int centerRow;
+		/** the state of the organism */
+		private OrgState state;
+		/** the energy of the organism */
+		private int energy;
+		/** the amount of organic matter of the organism */
+		private int organicAmount;
+		/** the number of cells of the organism */
+		private int cellCount;
+		/** the cell type names of the cells */
+		private String cellTypeNames[] = new String[0];
+		/** copies of the properties of the cells */
+		private int cellProperties[][] = new int[0][];
+
+		/**
+		 * Copies the data of an organism and its cells.
+		 * 
+		 * @param organism		the organism
+		 */
+		private void capture(Organism organism) {
+
+			number = organism.getNumber();
+			centerColumn = organism.getCenterColumn();
+			centerRow = organism.getCenterRow();
+			state = organism.getState();
+			energy = organism.getProperty(Organism.PROP_ENERGY);
+			organicAmount = organism.getOrganicAmount();
+			cellCount = organism.getCellCount();
+			if (cellTypeNames.length < cellCount) {
+				cellTypeNames = Arrays.copyOf(cellTypeNames, cellCount);
+				cellProperties = Arrays.copyOf(cellProperties, cellCount);
+			}
+			ArrayList<AbstractCell> cells = organism.getCells();
+			for (int i = 0; i < cellCount; i++) {
+				AbstractCell cell = cells.get(i);
+				int props[] = cell.getProperties();
+				cellTypeNames[i] = cell.getCellTypeName();
+				if (cellProperties[i] == null || cellProperties[i].length != props.length) {
+					cellProperties[i] = new int[props.length];
+				}
+				System.arraycopy(props, 0, cellProperties[i], 0, props.length);
+			}
+		}
+
+		/**
+		 * @return the number of the organism
+		 */
+		public int getNumber() {
+
+			return number;
+		}
+
+		/**
+		 * @return the center column of the organism
+		 */
+		public int getCenterColumn() {
+
+			return centerColumn;
+		}
+
+		/**
+		 * @return the center row of the organism
+		 */
+		public int getCenterRow() {
+
+			return centerRow;
+		}
+
+		/**
+		 * @return the state of the organism
+		 */
+		public OrgState getState() {
+
+			return state;
+		}
+
+		/**
+		 * @return the energy of the organism
+		 */
+		public int getEnergy() {
+
+			return energy;
+		}
+
+		/**
+		 * @return the amount of organic matter of the organism
+		 */
+		public int getOrganicAmount() {
+
+			return organicAmount;
+		}
+
+		/**
+		 * @return the number of cells of the organism
+		 */
+		public int getCellCount() {
+
+			return cellCount;
+		}
+
+		/**
+		 * @param index		the index of the cell
+		 * @return the cell type name of the cell
+		 */
+		public String getCellTypeName(int index) {
+
+			return cellTypeNames[index];
+		}
+
+		/**
+		 * @param index		the index of the cell
+		 * @return the properties of the cell (a copy, do not change)
+		 */
+		public int[] getCellProperties(int index) {
+
+			return cellProperties[index];
+		}
+	}
+}
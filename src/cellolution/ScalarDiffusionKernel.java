@@ -0,0 +1,121 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+/**
+ * The scalar diffusion kernel, computing pixel by pixel and substance by substance. 
+ * This is the reference for all other kernels. Only water pixels are computed, using the 
+ * neighbors of the WaterIndex (see there for the hexagon neighbors).
+ */
+public class ScalarDiffusionKernel implements DiffusionKernel {
+
+	/** the divider of the diffusion: half of the neighbor count plus the current cell */
+	private static final int DIFFUSION_DIVIDER = Diffusion.DIFFUSION_DIVIDER;
+
+	/** all pixels of the ocean */
+	private OceanGrid grid;
+	/** the number of rows of the ocean */
+	private int cellRows;
+	/** the index of all water pixels and their neighbors */
+	private WaterIndex waterIndex;
+	/** rounding probability if there are remainders of the diffusion division */
+	private int rounding[];	
+	/** the current planes of the dissolved substances of the ocean, read during a diffusion step */
+	private byte substances[][];
+	/** the next planes of the dissolved substances of the ocean, written during a diffusion step */
+	private byte nextSubstances[][];
+
+	/**
+	 * @param grid		all pixels of the ocean
+	 */
+	public ScalarDiffusionKernel(OceanGrid grid) {
+
+		this.grid = grid;
+		cellRows = grid.getCellRows();
+	}
+
+	@Override
+	public void computeColumn(int col, int rowBottom) {
+
+		int colIndex = grid.index(col, 0);
+		copyToNext(colIndex, colIndex + cellRows);			// rock keeps its substances, water is overwritten below
+		int indices[] = waterIndex.getWaterIndices(col);
+		int neighbors[] = waterIndex.getNeighbors(col);
+		int lastIndex = colIndex + rowBottom;
+		for (int i = 0; i < indices.length && indices[i] <= lastIndex; i++) {
+			computeWater(indices[i], neighbors, i * WaterIndex.NEIGHBOR_COUNT);
+		}
+	}
+
+	/**
+	 * Compute the diffusion for one Water pixel, also used by other kernels for single pixels.
+	 * The values are written into the next planes.
+	 * 
+	 * @param index				the index of the Water pixel
+	 * @param neighbors			the neighbor indices of the water pixels of the column (see WaterIndex)
+	 * @param neighborOffset	the offset of the neighbors of this Water pixel within neighbors
+	 */
+	void computeWater(int index, int neighbors[], int neighborOffset) {
+
+		int difference, delta, remainder;
+		for (int i = 0; i < substances.length; i++) {
+			byte plane[] = substances[i];
+			int value = plane[index];
+			for (int n = neighborOffset; n < neighborOffset + WaterIndex.NEIGHBOR_COUNT; n++) {
+				int neighborIndex = neighbors[n];
+				if (neighborIndex == WaterIndex.NO_NEIGHBOR) {
+					continue;						// rock, no diffusion
+				}
+				difference = plane[neighborIndex] - plane[index];
+				remainder = difference % DIFFUSION_DIVIDER;
+				delta = difference / DIFFUSION_DIVIDER + (remainder >= 0 ? 
+						rounding[remainder] : -rounding[-remainder]);		
+				value += delta;
+			}
+			nextSubstances[i][index] = (byte) value;		// update value
+		}
+	}
+
+	/**
+	 * Copy the substances of an index range from the current planes into the next planes, 
+	 * used for pixels without any diffusion.
+	 * 
+	 * @param fromIndex			the first index (inclusive)
+	 * @param toIndex			the last index (exclusive)
+	 */
+	void copyToNext(int fromIndex, int toIndex) {
+
+		for (int i = 0; i < substances.length; i++) {
+			System.arraycopy(substances[i], fromIndex, nextSubstances[i], fromIndex, toIndex - fromIndex);
+		}
+	}
+
+	@Override
+	public String getName() {
+
+		return "scalar";
+	}
+
+	@Override
+	public void nextStep(int rounding[]) {
+
+		this.rounding = rounding;
+		substances = grid.getPlanes();
+		nextSubstances = grid.getNextPlanes();
+		waterIndex = grid.getWaterIndex();
+	}
+}
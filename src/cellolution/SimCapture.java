@@ -0,0 +1,202 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.io.*;
+import java.util.*;
+
+import cellolution.cell.*;
+import cellolution.util.*;
+
+/**
+ * A consistent copy of a simulation, captured at a tick boundary on the simulation thread: 
+ * copies of the substance planes, the snapshot record of each organism to save (its raw props 
+ * and the raw props of its cells, see Organism.writeTo()) and the few values of the ocean. 
+ * Capturing copies arrays only, the encoding (substances, JSON, binary snapshot) is done later 
+ * from the capture, e.g. on the background thread of the Autosave, while the simulation continues.
+ * 
+ * <pre>
+ * Usage:
+ * 
+ * 	SimCapture capture = new SimCapture(ocean);		// at a tick boundary
+ * 	...
+ * 	SimSnapshot.write(stream, capture);				// any thread
+ * </pre>
+ */
+public class SimCapture {
+
+	/** the number of columns of the ocean */
+	private final int cellColumns;
+	/** the number of rows of the ocean */
+	private final int cellRows;
+	/** the seed of the random generators */
+	private final long seed;
+	/** the organic matter reservoir of the ocean */
+	private final int organicMatterReservoir;
+	/** the smokers: column, row and RGB of each smoker */
+	private final int smokers[];
+	/** copies of the substance planes */
+	private final byte planes[][];
+	/** the organisms to save, to identify them only (they are changed by the simulation) */
+	private final ArrayList<Organism> organisms;
+	/** the snapshot records of the organisms to save, in the same order */
+	private final ArrayList<byte[]> records;
+
+	/**
+	 * Captures the simulation, called at a tick boundary on the simulation thread (or while 
+	 * the simulation is paused or stopped).
+	 * 
+	 * @param ocean				the ocean of the simulation
+	 * @throws IOException on an IO error
+	 */
+	public SimCapture(Ocean ocean) throws IOException {
+
+		OceanGrid grid = ocean.getGrid();
+		cellColumns = grid.getCellColumns();
+		cellRows = grid.getCellRows();
+		seed = ocean.getSeed();
+		organicMatterReservoir = ocean.getOrganicMatterReservoir();
+		List<Rock> smokerList = ocean.getSmokers().getSmokerList();
+		smokers = new int[smokerList.size() * 3];
+		for (int i = 0; i < smokerList.size(); i++) {
+			Rock smoker = smokerList.get(i);
+			smokers[i * 3] = smoker.getColumn();
+			smokers[i * 3 + 1] = smoker.getRow();
+			smokers[i * 3 + 2] = smoker.getRgb();
+		}
+		byte substances[][] = grid.getPlanes();
+		planes = new byte[substances.length][];
+		for (int i = 0; i < substances.length; i++) {
+			planes[i] = substances[i].clone();
+		}
+		organisms = ocean.getOrganismMgr().getOrganismsToSave();
+		records = new ArrayList<>(organisms.size());
+		ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+		DataOutputStream recordOut = new DataOutputStream(recordBytes);
+		for (Organism organism : organisms) {
+			recordBytes.reset();
+			organism.writeTo(recordOut);
+			records.add(recordBytes.toByteArray());
+		}
+	}
+
+	/**
+	 * Encodes the substance planes compactly (see PlaneCodec).
+	 * 
+	 * @return the encoded substance planes
+	 */
+	public byte[] encodeSubstances() {
+
+		return PlaneCodec.encode(planes);
+	}
+
+	/**
+	 * @return the number of columns of the ocean
+	 */
+	public int getCellColumns() {
+
+		return cellColumns;
+	}
+
+	/**
+	 * @return the number of rows of the ocean
+	 */
+	public int getCellRows() {
+
+		return cellRows;
+	}
+
+	/**
+	 * @return the organic matter reservoir of the ocean
+	 */
+	public int getOrganicMatterReservoir() {
+
+		return organicMatterReservoir;
+	}
+
+	/**
+	 * Returns the organisms to save, in the order of their records. They may be used to identify 
+	 * the organisms only (e.g. as keys of an IdentityHashMap), their data is within the records.
+	 * 
+	 * @return the organisms to save
+	 */
+	public ArrayList<Organism> getOrganisms() {
+
+		return organisms;
+	}
+
+	/**
+	 * @return the copies of the substance planes
+	 */
+	public byte[][] getPlanes() {
+
+		return planes;
+	}
+
+	/**
+	 * @return the snapshot records of the organisms to save, see Organism.writeTo()
+	 */
+	public ArrayList<byte[]> getRecords() {
+
+		return records;
+	}
+
+	/**
+	 * @return the seed of the random generators
+	 */
+	public long getSeed() {
+
+		return seed;
+	}
+
+	/**
+	 * @return the smokers: column, row and RGB of each smoker
+	 */
+	public int[] getSmokers() {
+
+		return smokers;
+	}
+
+	/**
+	 * Writes the ocean of the captured simulation to a JSON stream, the same way as Ocean.toJSONObject(), 
+	 * but without building a JSONObject tree.
+	 * 
+	 * @param json			the JSON stream
+	 * @throws IOException on an IO error
+	 */
+	public void writeJSON(JsonStreamWriter json) throws IOException {
+
+		json.beginObject();
+		json.key(Keys.ORGANIC_MATTER_RESERVOIR).value(organicMatterReservoir);
+		json.key(Keys.RANDOM_SEED).value(seed);
+		json.key(Keys.SMOKERS).beginArray(smokers.length / 3);
+		for (int i = 0; i < smokers.length; i += 3) {
+			json.beginObject();
+			JsonUtil.writeColRow(json, smokers[i], smokers[i + 1]);
+			JsonUtil.writeColor(json, smokers[i + 2]);
+			json.endObject();
+		}
+		json.endArray();
+		json.key(Keys.SUBSTANCES).value(Base64.getEncoder().encodeToString(encodeSubstances()));
+		json.key(Keys.ORGANISMS).beginArray(records.size());
+		for (byte record[] : records) {
+			Organism.writeJSON(json, new DataInputStream(new ByteArrayInputStream(record)));
+		}
+		json.endArray();
+		json.endObject();
+	}
+}
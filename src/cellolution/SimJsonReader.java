@@ -0,0 +1,261 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.json.*;
+
+import cellolution.cell.*;
+import cellolution.util.*;
+
+/**
+ * A pull parser reading a JSON simulation file incrementally, instead of reading the whole file 
+ * into one JSONObject: the members of the simulation are parsed up to the organisms array of the ocean, 
+ * which is read later on one organism at a time (see readOrganisms()). Each organism is a small 
+ * JSONObject, released after it has been added to the ocean. Therefore the peak memory of reading 
+ * is about the size of the live simulation, not the size of the JSON tree of the file. 
+ * 
+ * Cellolution writes the organisms as the last member of the ocean, after the members needed 
+ * to create the ocean. Members after the organisms (e.g. the substances of a file written by 
+ * another tool) are read after the organisms into the JSON simulation object. If a member needed 
+ * before the organisms follows them, the organisms are read into the JSON simulation object 
+ * like any other member. The random seed is optional (older files do not contain it), a seed 
+ * following the organisms is read too late to create the ocean: it is ignored, with a warning.
+ */
+public class SimJsonReader implements SimReader {
+
+	/** the reader of the file, null after closing */
+	private Reader reader;
+	/** the pull parser of the file */
+	private JSONTokener tokener;
+	/** the JSON simulation object without the organisms */
+	private JSONObject jsonObjSim;
+	/** the JSON ocean object without the organisms */
+	private JSONObject jsonOcean;
+	/** true if the parser is positioned within the organisms array, waiting for readOrganisms() */
+	private boolean isOrganismsPending;
+
+	/**
+	 * Opens a JSON simulation file and parses all up to the organisms.
+	 * 
+	 * @param fileName			the name of the JSON simulation file
+	 * @throws IOException on an IO error
+	 * @throws JSONException on malformed JSON
+	 */
+	public SimJsonReader(String fileName) throws IOException {
+
+		reader = Files.newBufferedReader(Path.of(fileName));
+		tokener = new JSONTokener(reader);
+		try {
+			readUpToOrganisms();
+		} catch (JSONException e) {
+			close();
+			throw e;
+		}
+		if (!isOrganismsPending) {
+			close();								// all has been read already
+		}
+	}
+
+	/**
+	 * Closes the file, if still open.
+	 */
+	@Override
+	public void close() {
+
+		if (reader == null) {
+			return;
+		}
+		try {
+			reader.close();
+		} catch (IOException e) {
+			// nothing to do, the file has been read already
+		}
+		reader = null;
+		tokener = null;
+		isOrganismsPending = false;
+	}
+
+	/**
+	 * Checks for the members needed to create the ocean before the organisms are read: 
+	 * they have to be read before the organisms. The random seed is optional (see Ocean).
+	 * 
+	 * @return true if the reading of the organisms may be postponed
+	 */
+	private boolean canPostponeOrganisms() {
+
+		return jsonObjSim.has(Keys.VERSION) 
+				&& jsonOcean.has(Keys.ORGANIC_MATTER_RESERVOIR) 
+				&& jsonOcean.has(Keys.SMOKERS);
+	}
+
+	/**
+	 * Expects a character, skipping white space.
+	 * 
+	 * @param expected		the expected character
+	 * @throws JSONException if another character has been read
+	 */
+	private void expect(char expected) {
+
+		if (tokener.nextClean() != expected) {
+			throw tokener.syntaxError("Expected a '" + expected + "'");
+		}
+	}
+
+	@Override
+	public JSONObject getSimObject() {
+
+		return jsonObjSim;
+	}
+
+	/**
+	 * Reads the next key of an object including the colon.
+	 * 
+	 * @return the key or null at the end of the object
+	 * @throws JSONException on malformed JSON
+	 */
+	private String nextKey() {
+
+		char c = tokener.nextClean();
+		if (c == ',') {
+			c = tokener.nextClean();						// the separator after the previous member
+		}
+		if (c == '}') {
+			return null;
+		}
+		tokener.back();
+		String key = tokener.nextValue().toString();
+		expect(':');
+		return key;
+	}
+
+	/**
+	 * Reads the members after the organisms array: the remaining members of the ocean and 
+	 * of the simulation. A random seed is ignored, the ocean has been created already.
+	 * 
+	 * @throws JSONException on malformed JSON
+	 */
+	private void readMembersAfterOrganisms() {
+
+		String key;
+		while ((key = nextKey()) != null) {
+			Object value = tokener.nextValue();
+			if (key.equals(Keys.RANDOM_SEED)) {
+				Util.verbose("Cellolution: the random seed follows the organisms, it is ignored: " + value);
+				continue;
+			}
+			jsonOcean.put(key, value);
+		}
+		while ((key = nextKey()) != null) {
+			jsonObjSim.put(key, tokener.nextValue());
+		}
+	}
+
+	/**
+	 * Reads the ocean members up to the organisms array.
+	 * 
+	 * @return true if the parser is positioned within the organisms array
+	 * @throws JSONException on malformed JSON
+	 */
+	private boolean readOceanUpToOrganisms() {
+
+		expect('{');
+		String key;
+		while ((key = nextKey()) != null) {
+			if (key.equals(Keys.ORGANISMS) && canPostponeOrganisms()) {
+				expect('[');
+				return true;
+			}
+			jsonOcean.put(key, tokener.nextValue());
+		}
+		return false;
+	}
+
+	@Override
+	public void readOrganisms(OrganismMgr organismMgr) throws IOException {
+
+		try {
+			if (isOrganismsPending) {
+				char c = tokener.nextClean();
+				if (c != ']') {
+					tokener.back();
+					do {
+						organismMgr.addOrganismFrom((JSONObject) tokener.nextValue());
+						c = tokener.nextClean();
+					} while (c == ',');
+					if (c != ']') {
+						throw tokener.syntaxError("Expected a ',' or ']'");
+					}
+				}
+				readMembersAfterOrganisms();			// e.g. the substances, read after the organisms
+			} else if (jsonOcean != null && jsonOcean.has(Keys.ORGANISMS)) {
+				JSONArray jsonOrganisms = (JSONArray) jsonOcean.remove(Keys.ORGANISMS);
+				for (int i = 0; i < jsonOrganisms.length(); i++) {
+					organismMgr.addOrganismFrom(jsonOrganisms.getJSONObject(i));
+				}
+			}
+		} catch (ClassCastException e) {
+			throw new IOException("JSON parser: an organism is not a JSON object", e);
+		} catch (JSONException e) {
+			throw new IOException("JSON parser: " + e.getMessage(), e);
+		} finally {
+			close();
+		}
+	}
+
+	@Override
+	public boolean readSubstances(OceanGrid grid) throws IOException {
+
+		if (jsonOcean == null || !jsonOcean.has(Keys.SUBSTANCES)) {
+			return false;
+		}
+		try {
+			grid.decodeSubstances(Base64.getDecoder().decode(jsonOcean.getString(Keys.SUBSTANCES)));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("JSON parser: the substances are not Base64 encoded", e);
+		}
+		jsonOcean.remove(Keys.SUBSTANCES);				// release the encoding
+		return true;
+	}
+
+	/**
+	 * Reads the members of the simulation up to the organisms array of the ocean.
+	 * 
+	 * @throws JSONException on malformed JSON
+	 */
+	private void readUpToOrganisms() {
+
+		jsonObjSim = new JSONObject();
+		expect('{');
+		String key;
+		while ((key = nextKey()) != null) {
+			if (key.equals(Keys.OCEAN)) {
+				jsonOcean = new JSONObject();
+				jsonObjSim.put(Keys.OCEAN, jsonOcean);
+				if (readOceanUpToOrganisms()) {
+					isOrganismsPending = true;
+					return;
+				}
+			} else {
+				jsonObjSim.put(key, tokener.nextValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.io.*;
+
+import org.json.*;
+
+import cellolution.cell.*;
+
+/**
+ * A reader of a simulation file, used while a new ocean is created from the file: 
+ * the small parts of the simulation (version, seed, smokers, ...) are provided as JSON simulation object, 
+ * the organisms are read one at a time by the OrganismMgr, without keeping them in memory, 
+ * the substance planes are decoded directly into the grid.
+ * 
+ * @see SimJsonReader
+ * @see SimSnapshot
+ */
+public interface SimReader extends Closeable {
+
+	/**
+	 * Closes the file, if still open.
+	 */
+	@Override
+	public void close();
+
+	/**
+	 * Gets the JSON simulation object containing everything but the organisms.
+	 * 
+	 * @return the JSON simulation object
+	 */
+	public JSONObject getSimObject();
+
+	/**
+	 * Reads the organisms and adds them one at a time to the ocean, then closes the file.
+	 * 
+	 * @param organismMgr		the manager of all organisms
+	 * @throws IOException on an IO error
+	 */
+	public void readOrganisms(OrganismMgr organismMgr) throws IOException;
+
+	/**
+	 * Reads the substance planes of all pixels into the grid, if the file contains them. 
+	 * Called after readOrganisms(), the substances may follow the organisms within the file.
+	 * 
+	 * @param grid				the grid of the ocean
+	 * @return true if the substances have been read, false if the file has none (older files)
+	 * @throws IOException on an IO error or if the substances do not fit to the grid
+	 */
+	public boolean readSubstances(OceanGrid grid) throws IOException;
+}
@@ -0,0 +1,471 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.json.*;
+
+import cellolution.cell.*;
+import cellolution.util.*;
+
+/**
+ * A versioned binary snapshot of a simulation (file extension ".cellsim"), an alternative to the 
+ * JSON simulation file: much smaller and much faster to write and read, since no JSON tree is built. 
+ * JSON files are kept for interchange.
+ * 
+ * The file is written and read through buffered NIO channels, all values are big endian:
+ * <pre>
+ * header:		magic "CSIM", format version, application version (major, minor, release), 
+ * 				columns, rows, random seed, organic matter reservoir
+ * tables:		the names of the organism states and of the cell and genome types, 
+ * 				the records refer to them by index (the ordinals may change between releases)
+ * smokers:		count, then column, row and RGB of each smoker
+ * substances:	the length in bytes, then the substance planes of all pixels (see PlaneCodec), 
+ * 				since format version 2
+ * organisms:	count, the length of the section in bytes, then each organism as a record 
+ * 				prefixed by its length (see Organism.writeTo() and AbstractCell.writeTo()), 
+ * 				the props of organisms and cells are written as raw ints
+ * </pre>
+ * 
+ * Reading is done in two steps (see SimReader): the header and the smokers are read into a JSON 
+ * simulation object, the same way a JSON file would be read. The OrganismMgr reads the organisms 
+ * section later on, directly from the file, the encoded substances are decoded into the grid 
+ * by readSubstances().
+ */
+public class SimSnapshot implements SimReader {
+
+	/** the file extension of binary snapshots */
+	public static final String FILE_EXTENSION = ".cellsim";
+	/** the version of the binary format, increase it for incompatible changes */
+	public static final int FORMAT_VERSION = 2;
+
+	/** the magic number at the start of a snapshot file: "CSIM" */
+	private static final int MAGIC = 0x4353494D;
+	/** the size of the buffers of the channel streams */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** the extension of the temporary file, replacing the snapshot file after writing */
+	static final String TEMP_EXTENSION = ".tmp";
+	/** the names of cell and genome types, written to the header, index 0 means none */
+	private static final String TYPE_NAMES[] = {"", 
+			SingleAlgaeCell.CLASS_NAME, 
+			SingleH2sEaterCell.CLASS_NAME, 
+			StemCell.CLASS_NAME, 
+			SimpleSingleCellGenome.CLASS_NAME};
+
+	/** the name of the snapshot file */
+	private String fileName;
+	/** the input of the file during reading, null after the organisms have been read */
+	private DataInputStream in;
+	/** the JSON simulation object of the header and the smokers */
+	private JSONObject jsonObjSim;
+	/** the organism states of the file, by index */
+	private OrgState states[];
+	/** the cell and genome type names of the file, by index */
+	private String typeNames[];
+	/** the encoded substance planes of the file, null if none or decoded already */
+	private byte substances[];
+
+	/**
+	 * Opens a snapshot file and reads all but the organisms.
+	 * 
+	 * @param fileName			the name of the snapshot file
+	 * @throws IOException on an IO error or if the file is no (compatible) snapshot
+	 */
+	public SimSnapshot(String fileName) throws IOException {
+
+		this(fileName, new BufferedInputStream(
+				Channels.newInputStream(FileChannel.open(Path.of(fileName), StandardOpenOption.READ)), BUFFER_SIZE));
+	}
+
+	/**
+	 * Opens a snapshot from a stream and reads all but the organisms, e.g. the base snapshot 
+	 * of a checkpoint journal.
+	 * 
+	 * @param fileName			the name of the file containing the snapshot, for messages
+	 * @param stream			the input stream positioned at the start of the snapshot
+	 * @throws IOException on an IO error or if the stream contains no (compatible) snapshot
+	 */
+	public SimSnapshot(String fileName, InputStream stream) throws IOException {
+
+		this.fileName = fileName;
+		in = new DataInputStream(stream);
+		try {
+			readHeader();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the file, if still open.
+	 */
+	@Override
+	public void close() {
+
+		if (in == null) {
+			return;
+		}
+		try {
+			in.close();
+		} catch (IOException e) {
+			// nothing to do, the file has been read already
+		}
+		in = null;
+	}
+
+	/**
+	 * Decodes the substance planes of the snapshot into new planes, instead of the grid of an ocean.
+	 * 
+	 * @return the substance planes, null if the snapshot has none (format version 1)
+	 * @throws IOException if the substances are corrupt
+	 */
+	public byte[][] decodeSubstances() throws IOException {
+
+		if (substances == null) {
+			return null;
+		}
+		byte planes[][] = PlaneCodec.decode(substances);
+		substances = null;							// release the encoding
+		return planes;
+	}
+
+	/**
+	 * Gets the JSON simulation object containing version, seed, organic matter reservoir and smokers, 
+	 * but no organisms.
+	 * 
+	 * @return the JSON simulation object
+	 */
+	@Override
+	public JSONObject getSimObject() {
+
+		return jsonObjSim;
+	}
+
+	/**
+	 * Resolves an organism state of the file.
+	 * 
+	 * @param index			the index of the state in the file, -1 if none
+	 * @return the state or null if none
+	 * @throws IOException if the index is out of range
+	 */
+	public OrgState getState(int index) throws IOException {
+
+		if (index < 0) {
+			return null;
+		}
+		if (index >= states.length) {
+			throw new IOException("Snapshot '" + fileName + "': unknown organism state " + index);
+		}
+		return states[index];
+	}
+
+	/**
+	 * Resolves a cell or genome type name of the file.
+	 * 
+	 * @param index			the index of the type name in the file
+	 * @return the type name, an empty string if none
+	 * @throws IOException if the index is out of range
+	 */
+	public String getTypeName(int index) throws IOException {
+
+		if (index >= typeNames.length) {
+			throw new IOException("Snapshot '" + fileName + "': unknown type " + index);
+		}
+		return typeNames[index];
+	}
+
+	/**
+	 * Checks the file name for the extension of snapshots.
+	 * 
+	 * @param fileName		the name of the file
+	 * @return true if the file is a binary snapshot, false otherwise (a JSON file)
+	 */
+	public static boolean isSnapshotFile(String fileName) {
+
+		return fileName.toLowerCase().endsWith(FILE_EXTENSION);
+	}
+
+	/**
+	 * Reads the header, the tables, the smokers and the substances, and creates the JSON simulation object from them.
+	 * 
+	 * @throws IOException on an IO error or if the file is no (compatible) snapshot
+	 */
+	private void readHeader() throws IOException {
+
+		if (in.readInt() != MAGIC) {
+			throw new IOException("'" + fileName + "' is not a Cellolution snapshot");
+		}
+		int formatVersion = in.readInt();
+		if (formatVersion > FORMAT_VERSION) {
+			throw new IOException("Snapshot '" + fileName + "' has format version " + formatVersion 
+					+ ", this release supports up to " + FORMAT_VERSION);
+		}
+		jsonObjSim = new JSONObject();
+		JSONObject jsonVersion = new JSONObject();
+		jsonVersion.put(Keys.VERSION_MAJOR, in.readInt());
+		jsonVersion.put(Keys.VERSION_MINOR, in.readInt());
+		jsonVersion.put(Keys.VERSION_RELEASE, in.readInt());
+		jsonVersion.put(Keys.VERSION, jsonVersion.get(Keys.VERSION_MAJOR) + "." 
+				+ jsonVersion.get(Keys.VERSION_MINOR) + "." + jsonVersion.get(Keys.VERSION_RELEASE));
+		jsonObjSim.put(Keys.VERSION, jsonVersion);
+		int cellColumns = in.readInt();
+		int cellRows = in.readInt();
+		if (cellColumns != Main.getCellColumns() || cellRows != Main.getCellRows()) {
+			throw new IOException("Snapshot '" + fileName + "' has an ocean of " + cellColumns + "x" + cellRows 
+					+ ", the ocean is " + Main.getCellColumns() + "x" + Main.getCellRows());
+		}
+		JSONObject jsonOcean = new JSONObject();
+		jsonOcean.put(Keys.RANDOM_SEED, in.readLong());
+		jsonOcean.put(Keys.ORGANIC_MATTER_RESERVOIR, in.readInt());
+		String stateNames[] = readStrings();
+		states = new OrgState[stateNames.length];
+		for (int i = 0; i < stateNames.length; i++) {
+			try {
+				states[i] = OrgState.valueOf(stateNames[i]);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Snapshot '" + fileName + "' has the unknown organism state '" 
+						+ stateNames[i] + "'", e);
+			}
+		}
+		typeNames = readStrings();
+		// smokers, in the same representation as in a JSON file
+		JSONArray jsonSmokers = new JSONArray();
+		int smokerCount = in.readInt();
+		for (int i = 0; i < smokerCount; i++) {
+			JSONObject jsonSmoker = new JSONObject();
+			JsonUtil.addColRowTo(jsonSmoker, in.readShort(), in.readShort());
+			JsonUtil.addColorTo(jsonSmoker, in.readInt());
+			jsonSmokers.put(jsonSmoker);
+		}
+		jsonOcean.put(Keys.SMOKERS, jsonSmokers);
+		jsonObjSim.put(Keys.OCEAN, jsonOcean);
+		if (formatVersion >= 2) {
+			substances = new byte[in.readInt()];
+			in.readFully(substances);
+		}
+	}
+
+	/**
+	 * Reads the organisms section and adds the organisms to the ocean, then closes the file.
+	 * 
+	 * @param organismMgr		the manager of all organisms
+	 * @throws IOException on an IO error
+	 */
+	@Override
+	public void readOrganisms(OrganismMgr organismMgr) throws IOException {
+
+		if (in == null) {
+			return;									// read already
+		}
+		try {
+			int organismCount = in.readInt();
+			in.readLong();							// the length of the section, to skip it
+			for (int i = 0; i < organismCount; i++) {
+				in.readInt();						// the length of the record, to skip it
+				organismMgr.addOrganismFrom(in, this);
+			}
+		} finally {
+			close();
+		}
+	}
+
+	@Override
+	public boolean readSubstances(OceanGrid grid) throws IOException {
+
+		if (substances == null) {
+			return false;
+		}
+		grid.decodeSubstances(substances);
+		substances = null;							// release the encoding
+		return true;
+	}
+
+	/**
+	 * Reads the organisms section as raw records (see Organism.writeTo()) instead of adding 
+	 * the organisms to an ocean, then closes the file. The records can be added later on 
+	 * by OrganismMgr.addOrganismFrom(DataInput, SimSnapshot).
+	 * 
+	 * @return the records of the organisms
+	 * @throws IOException on an IO error
+	 */
+	public ArrayList<byte[]> readOrganismRecords() throws IOException {
+
+		ArrayList<byte[]> records = new ArrayList<>();
+		if (in == null) {
+			return records;							// read already
+		}
+		try {
+			int organismCount = in.readInt();
+			in.readLong();							// the length of the section
+			for (int i = 0; i < organismCount; i++) {
+				byte record[] = new byte[in.readInt()];
+				in.readFully(record);
+				records.add(record);
+			}
+		} finally {
+			close();
+		}
+		return records;
+	}
+
+	/**
+	 * Reads a table of strings.
+	 * 
+	 * @return the strings
+	 * @throws IOException on an IO error
+	 */
+	private String[] readStrings() throws IOException {
+
+		String strings[] = new String[in.readUnsignedShort()];
+		for (int i = 0; i < strings.length; i++) {
+			byte bytes[] = new byte[in.readUnsignedShort()];
+			in.readFully(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	/**
+	 * Gets the index of a cell or genome type name, as written by this release.
+	 * 
+	 * @param typeName		the simple class name of a cell or genome
+	 * @return the index of the type name
+	 */
+	public static int typeIndexOf(String typeName) {
+
+		for (int i = 1; i < TYPE_NAMES.length; i++) {
+			if (TYPE_NAMES[i].equals(typeName)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Snapshot: unexpected type name: " + typeName);
+	}
+
+	/**
+	 * Returns the type name of a type index of a snapshot record, see typeIndexOf().
+	 * 
+	 * @param typeIndex		the type index
+	 * @return the simple class name of the type
+	 */
+	public static String typeNameOf(int typeIndex) {
+
+		if (typeIndex < 1 || typeIndex >= TYPE_NAMES.length) {
+			throw new IllegalArgumentException("Snapshot: unexpected type index: " + typeIndex);
+		}
+		return TYPE_NAMES[typeIndex];
+	}
+
+	/**
+	 * Writes a simulation to a snapshot file, the file is created or replaced. The snapshot is 
+	 * written to a temporary file first, which replaces the file atomically, therefore an error 
+	 * (or a crash) while writing keeps the previous file.
+	 * 
+	 * @param fileName			the name of the file
+	 * @param capture			the captured simulation
+	 * @throws IOException on an IO error
+	 */
+	public static void write(String fileName, SimCapture capture) throws IOException {
+
+		Path tempFile = Path.of(fileName + TEMP_EXTENSION);
+		try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, 
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			write(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), capture);
+			channel.force(true);			// on disk before it replaces the file
+		}
+		Util.replaceFile(tempFile, Path.of(fileName));
+	}
+
+	/**
+	 * Writes a captured simulation as snapshot to a stream, e.g. a file or a byte array. 
+	 * The capture is not changed by the simulation, therefore any thread may write it 
+	 * (see Autosave). The stream is flushed, but not closed.
+	 * 
+	 * @param stream			the output stream
+	 * @param capture			the captured simulation
+	 * @throws IOException on an IO error
+	 */
+	public static void write(OutputStream stream, SimCapture capture) throws IOException {
+
+		DataOutputStream out = new DataOutputStream(stream);
+		// header
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(Version.getMajor());
+		out.writeInt(Version.getMinor());
+		out.writeInt(Version.getRelease());
+		out.writeInt(capture.getCellColumns());
+		out.writeInt(capture.getCellRows());
+		out.writeLong(capture.getSeed());
+		out.writeInt(capture.getOrganicMatterReservoir());
+		// tables
+		OrgState orgStates[] = OrgState.values();
+		String stateNames[] = new String[orgStates.length];
+		for (int i = 0; i < orgStates.length; i++) {
+			stateNames[i] = orgStates[i].name();
+		}
+		writeStrings(out, stateNames);
+		writeStrings(out, TYPE_NAMES);
+		// smokers
+		int smokers[] = capture.getSmokers();
+		out.writeInt(smokers.length / 3);
+		for (int i = 0; i < smokers.length; i += 3) {
+			out.writeShort(smokers[i]);
+			out.writeShort(smokers[i + 1]);
+			out.writeInt(smokers[i + 2]);
+		}
+		// substances
+		byte encodedSubstances[] = capture.encodeSubstances();
+		out.writeInt(encodedSubstances.length);
+		out.write(encodedSubstances);
+		// organisms
+		ArrayList<byte[]> records = capture.getRecords();
+		long sectionSize = 0;
+		for (byte record[] : records) {
+			sectionSize += 4 + record.length;
+		}
+		out.writeInt(records.size());
+		out.writeLong(sectionSize);
+		for (byte record[] : records) {
+			out.writeInt(record.length);
+			out.write(record);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes a table of strings: the count, then each string as length and UTF-8 bytes.
+	 * 
+	 * @param out			the output
+	 * @param strings		the strings
+	 * @throws IOException on an IO error
+	 */
+	private static void writeStrings(DataOutput out, String strings[]) throws IOException {
+
+		out.writeShort(strings.length);
+		for (String string : strings) {
+			byte bytes[] = string.getBytes(StandardCharsets.UTF_8);
+			out.writeShort(bytes.length);
+			out.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,226 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.util.*;
+
+import cellolution.util.*;
+
+/**
+ * The clock of the simulation: counts simulation ticks and runs the subsystems of the ocean 
+ * (sunshine, smokers, organisms, diffusion, ...) when their period of ticks has elapsed.
+ * 
+ * The simulation does not depend on the wall clock: the same ticks perform the same work, 
+ * regardless of the host load. The clock is either paced in real time (one tick every 
+ * TICK_MILLIS milliseconds, if the host is fast enough), or runs as fast as possible 
+ * (e.g. to simulate a long period of time on a batch machine).
+ * 
+ * Each scheduled task is a phase of the step profiler of the clock.
+ * 
+ * <pre>
+ * Usage:
+ * 		clock.schedule("Sunshine", Sunshine.PERIOD_TICKS, tick -> sunshine.next(cellColumns, grid, tick));
+ * 		...
+ * 		for (;;) {
+ * 			clock.nextTick();			// runs all subsystems due at the next tick
+ * 		}
+ * </pre>
+ */
+public class SimulationClock {
+
+	/** the nominal duration of one simulation tick in milliseconds (used by real-time pacing) */
+	public static final int TICK_MILLIS = 20;
+	/** real-time pacing: if the simulation is late by more ticks, it does not try to catch up */
+	private static final int MAX_LATE_TICKS = 10;
+
+	/**
+	 * The pacing of the simulation.
+	 */
+	public enum Mode {
+		/** one tick every TICK_MILLIS milliseconds */
+		REAL_TIME,
+		/** no waiting between the ticks */
+		AS_FAST_AS_POSSIBLE
+	}
+
+	/**
+	 * A subsystem of the simulation, running every period of ticks.
+	 */
+	public interface Task {
+
+		/**
+		 * Performs the work of the subsystem.
+		 * 
+		 * @param tick		the current simulation tick
+		 */
+		void run(long tick);
+	}
+
+	/** the current simulation tick, zero before the first tick */
+	private long tick;
+	/** the pacing of the simulation */
+	private Mode mode;
+	/** the scheduled tasks, in the order of execution within a tick */
+	private ArrayList<ScheduledTask> tasks;
+	/** real-time pacing: the tick the pacing started with */
+	private long pacingTick;
+	/** real-time pacing: the System.nanoTime() the pacing started with */
+	private long pacingNanos;
+	/** the profiler measuring the scheduled tasks, disabled by default */
+	private StepProfiler profiler;
+
+	/**
+	 * Construct a clock.
+	 * 
+	 * @param mode		the pacing of the simulation
+	 */
+	public SimulationClock(Mode mode) {
+
+		this.mode = mode;
+		tasks = new ArrayList<>();
+		profiler = new StepProfiler();
+		restartPacing();
+	}
+
+	/**
+	 * @return the pacing of the simulation
+	 */
+	public Mode getMode() {
+
+		return mode;
+	}
+
+	/**
+	 * @return the profiler measuring the scheduled tasks
+	 */
+	public StepProfiler getProfiler() {
+
+		return profiler;
+	}
+
+	/**
+	 * @return the current simulation tick, zero before the first tick
+	 */
+	public long getTick() {
+
+		return tick;
+	}
+
+	/**
+	 * Advances the clock by one tick and runs all tasks due at this tick, in the order of scheduling.
+	 * In real-time mode, this waits until the tick is due.
+	 */
+	public void nextTick() {
+
+		if (mode == Mode.REAL_TIME) {
+			waitForTick(tick + 1);
+		}
+		tick++;
+		for (ScheduledTask task : tasks) {
+			if (tick - task.lastTick >= task.periodTicks) {
+				task.lastTick = tick;
+				profiler.begin();
+				task.task.run(tick);
+				profiler.end(task.phase);
+			}
+		}
+		profiler.stepDone();
+	}
+
+	/**
+	 * Restarts the real-time pacing at the current tick, e.g. after a pause.
+	 */
+	public void restartPacing() {
+
+		pacingTick = tick;
+		pacingNanos = System.nanoTime();
+	}
+
+	/**
+	 * Schedules a task: it runs at the next tick and then every period of ticks.
+	 * 
+	 * @param name				the name of the task (the name of its profiler phase)
+	 * @param periodTicks		the period in simulation ticks, one for every tick
+	 * @param task				the task
+	 */
+	public void schedule(String name, int periodTicks, Task task) {
+
+		if (periodTicks < 1) {
+			throw new IllegalArgumentException("Period must be at least one tick: " + periodTicks);
+		}
+		tasks.add(new ScheduledTask(periodTicks, task, tick - periodTicks + 1, profiler.addPhase(name)));
+	}
+
+	/**
+	 * Sets the pacing of the simulation.
+	 * 
+	 * @param mode 		the pacing of the simulation
+	 */
+	public void setMode(Mode mode) {
+
+		this.mode = mode;
+		restartPacing();
+	}
+
+	/**
+	 * Real-time pacing: waits until a tick is due. If the simulation is late too much, 
+	 * the pacing restarts instead of running the late ticks without a break.
+	 * 
+	 * @param nextTick		the tick to wait for
+	 */
+	private void waitForTick(long nextTick) {
+
+		long dueNanos = pacingNanos + (nextTick - pacingTick) * TICK_MILLIS * 1_000_000L;
+		long waitMillis = (dueNanos - System.nanoTime()) / 1_000_000L;
+		if (waitMillis > 0) {
+			Util.sleep(waitMillis);
+		} else if (waitMillis < -MAX_LATE_TICKS * TICK_MILLIS) {
+			restartPacing();
+		}
+	}
+
+	/**
+	 * A task with its period.
+	 */
+	private static class ScheduledTask {
+
+		/** the period in simulation ticks */
+		private final int periodTicks;
+		/** the task */
+		private final Task task;
+		/** the tick of the last run */
+		private long lastTick;
+		/** the phase of the task within the profiler */
+		private final int phase;
+
+		/**
+		 * Construction.
+		 * 
+		 * @param periodTicks		the period in simulation ticks
+		 * @param task				the task
+		 * @param lastTick			the tick of the (virtual) last run
+		 * @param phase				the phase of the task within the profiler
+		 */
+		private ScheduledTask(int periodTicks, Task task, long lastTick, int phase) {
+
+			this.periodTicks = periodTicks;
+			this.task = task;
+			this.lastTick = lastTick;
+			this.phase = phase;
+		}
+	}
+}
@@ -32,16 +32,18 @@ public class Smokers {
 	public static Color SMOKER_COLOR = new Color(80, 70, 70);
 	public static int SMOKER_COLOR_RGB = SMOKER_COLOR.getRGB();
 	public static int SMOKER_BUBBLE_SIZE_MAX = 18;
+	/** the period of smoking in simulation ticks */
+	public static final int PERIOD_TICKS = 6;
 
 	private Ocean ocean;
-	private Pixel pixels[][];
+	private OceanGrid grid;
 	private int cellColumns;
 	private int cellRows;
-	private long lastTimeSmokedVisible;
 	private ArrayList<Rock> smokers;
 	private ArrayList<Rock> smokerRocks;
 	private int[] smokerBubbleSize;
 	private int emittedH2sEaterCount;
+	private FastRandom random;						// the random stream of spawning
 
 	/**
 	 * Smoker creation.
@@ -51,9 +53,10 @@ public class Smokers {
 	public Smokers(Ocean ocean, int smokerCount) {
 		
 		this.ocean = ocean;
+		random = FastRandom.get(FastRandom.Stream.SPAWNING);
 		cellColumns = Main.getCellColumns();
 		cellRows = Main.getCellRows();
-		pixels = ocean.getPixels();
+		grid = ocean.getGrid();
 		smokers = new ArrayList<Rock>();
 		smokerRocks = new ArrayList<Rock>();
 		// read in old simulation or create anew one
@@ -64,7 +67,7 @@ public class Smokers {
 			int distance = cellColumns / (smokerCount + 1);
 			for (int i = 0; i < smokerCount; i++) {
 				createSmoker(i, distance);
-				smokerBubbleSize[i] = -FastRandom.nextIntStat(10) - 1;		// negative to start at different times
+				smokerBubbleSize[i] = -random.nextInt(10) - 1;		// negative to start at different times
 			}
 		} else {
 			// create from an existing simulation (file)
@@ -89,14 +92,14 @@ public class Smokers {
 	 */
 	private void createSmoker(int number, int distance) {
 
-		int col = 30 + number * distance + distance / 2 + FastRandom.nextIntStat(distance / 4);
+		int col = 30 + number * distance + distance / 2 + random.nextInt(distance / 4);
 		// search for a good place for the smoker
 		boolean found = false;
 		for (int i = 0; i < 30 && !found; i++) {
 			int rowFound = -1;
 			int row = cellRows - 1;
 			for ( ; row > 10; row--) {
-				if (pixels[col][row] instanceof Water) {
+				if (grid.isWater(col, row)) {
 					rowFound = row;
 					break;
 				}
@@ -106,12 +109,12 @@ public class Smokers {
 			}
 			// good place?
 			if (rowFound > 0 
-					&& pixels[col - 1][rowFound - 7] instanceof Water
-					&& pixels[col + 1][rowFound - 7] instanceof Water
-					&& pixels[col][rowFound - 8] instanceof Water
-					&& pixels[col][rowFound + 1] instanceof Rock
-					&& pixels[col - 1][rowFound + 2] instanceof Rock
-					&& pixels[col + 1][rowFound + 2] instanceof Rock) {
+					&& grid.isWater(col - 1, rowFound - 7)
+					&& grid.isWater(col + 1, rowFound - 7)
+					&& grid.isWater(col, rowFound - 8)
+					&& grid.isRock(col, rowFound + 1)
+					&& grid.isRock(col - 1, rowFound + 2)
+					&& grid.isRock(col + 1, rowFound + 2)) {
 				rowFound -= 7;
 				createSmokerAt(col, rowFound, SMOKER_COLOR_RGB);
 				break;
@@ -133,7 +136,7 @@ public class Smokers {
 		Rock rock = new Rock(col, rowFound, rgb);
 		smokers.add(rock);
 		smokerRocks.add(rock);
-		pixels[col][rowFound] = rock;
+		grid.setRock(col, rowFound);
 		int colLeftSide = (col & 1) == 0 ? col - 1 : col;
 		int row = rowFound + 1;
 		int width = 2;
@@ -147,14 +150,15 @@ public class Smokers {
 		colLeftSide -= 4;
 		for (int j = 0; j < 8 && row < cellRows - 3; j++) {
 			for (int k = 0; k < width; k++) {
-				if (pixels[colLeftSide + k][row]  instanceof Water) {
+				if (grid.isWater(colLeftSide + k, row)) {
 					rock = new Rock(colLeftSide + k, row, rgb);
-					pixels[colLeftSide + k][row] = rock;
+					grid.setRock(colLeftSide + k, row);
 					smokerRocks.add(rock);
 				}
 			}
 			row++;
 		}
+		grid.getWaterIndex().update();					// rebuild the changed columns only
 	}
 
 	/**
@@ -168,7 +172,7 @@ public class Smokers {
 		
 		for (int i = 0; i < count; i++) {
 			Rock rock = new Rock(col + i, row, SMOKER_COLOR_RGB);
-			pixels[col + i][row] = rock;
+			grid.setRock(col + i, row);
 			smokerRocks.add(rock);
 		}
 	}
@@ -185,13 +189,13 @@ public class Smokers {
 			return;
 		}
 		Rock smoker = smokers.get(index); 
-		int row = smoker.row - 3 - FastRandom.nextIntStat(20);
-		if (pixels[smoker.column][row] instanceof Water) {
+		int row = smoker.row - 3 - random.nextInt(20);
+		if (grid.isWater(smoker.column, row)) {
 			// for testing under "real" life conditions
 			// H2S eaters have a lot of speed and energy when pushed out of a smoker
-			SingleH2sEaterCell cell = SingleH2sEaterCell.create(smoker.column, row, 19000 + FastRandom.nextIntStat(9)* 3000);
+			SingleH2sEaterCell cell = SingleH2sEaterCell.create(smoker.column, row, 19000 + random.nextInt(9)* 3000);
 			Organism organism = cell.getOrganism();
-			organism.setSpeedAndDirection(5 + FastRandom.nextIntStat(30), -20 + FastRandom.nextIntStat(41));	// -20 to +20 degrees
+			organism.setSpeedAndDirection(5 + random.nextInt(30), -20 + random.nextInt(41));	// -20 to +20 degrees
 			emittedH2sEaterCount++;
 		}
 	}
@@ -201,24 +205,18 @@ public class Smokers {
 	 */
 	public void emitSubstances() {
 
+		byte h2s[] = grid.getPlane(Water.H2S);
+		byte caCO3[] = grid.getPlane(Water.CaCO3);
 		for (int i = 0; i < smokers.size(); i++) {
 			Rock smoker = smokers.get(i);
 			for (int j = 1; j < 10; j++) {
-				Water waterpixel = (Water) pixels[smoker.column][smoker.row - j];
-				waterpixel.setMatterValue(Water.H2S, (byte) 90);
-				waterpixel.setMatterValue(Water.CaCO3, (byte) 80);
-				waterpixel = (Water) pixels[smoker.column - 1][smoker.row - j];
-				waterpixel.setMatterValue(Water.H2S, (byte) 90);
-				waterpixel.setMatterValue(Water.CaCO3, (byte) 80);
-				waterpixel = (Water) pixels[smoker.column - 2][smoker.row - j];
-				waterpixel.setMatterValue(Water.H2S, (byte) 90);
-				waterpixel.setMatterValue(Water.CaCO3, (byte) 80);
-				waterpixel = (Water) pixels[smoker.column + 1][smoker.row - j];
-				waterpixel.setMatterValue(Water.H2S, (byte) 90);
-				waterpixel.setMatterValue(Water.CaCO3, (byte) 80);
-				waterpixel = (Water) pixels[smoker.column + 2][smoker.row - j];
-				waterpixel.setMatterValue(Water.H2S, (byte) 90);
-				waterpixel.setMatterValue(Water.CaCO3, (byte) 80);
+				// the smoker and two pixels to the left and the right side
+				int index = grid.index(smoker.column - 2, smoker.row - j);
+				for (int k = 0; k < 5; k++) {
+					h2s[index] = (byte) 90;
+					caCO3[index] = (byte) 80;
+					index += cellRows;
+				}
 			}
 		}
 	}
@@ -245,28 +243,41 @@ public class Smokers {
 	/**
 	 * Visually smoking and pushing H2sEater out.
 	 * 
-	 * @param time				the current time
+	 * @param tick				the current simulation tick (called every PERIOD_TICKS)
 	 */
-	public void smoke(long time) {
+	public void smoke(long tick) {
 
-		if (time - lastTimeSmokedVisible > 100) {
-			for (int i = 0; i < smokers.size(); i++) {
-				smokerBubbleSize[i]++;
-				if (smokerBubbleSize[i] > SMOKER_BUBBLE_SIZE_MAX) {
-					smokerBubbleSize[i] = -FastRandom.nextIntStat(70);
-				}
-				if (FastRandom.nextIntStat(10) == 0 && smokerBubbleSize[i] > 5) {
-					if (emittedH2sEaterCount < 20) {
-						emitH2sEater(i);
-					} else if (FastRandom.nextIntStat(10) == 0) {
-						emitH2sEater(i);
-					}
+		DirtyRegions dirtyRegions = ocean.getDirtyRegions();
+		for (int i = 0; i < smokers.size(); i++) {
+			if (dirtyRegions != null) {
+				// the area of all bubble sizes
+				Rock smoker = smokers.get(i);
+				dirtyRegions.mark((smoker.column << 1) - SMOKER_BUBBLE_SIZE_MAX / 2 - 1, 
+						(smoker.row << 1) - SMOKER_BUBBLE_SIZE_MAX * 3 / 2 - 1, 
+						SMOKER_BUBBLE_SIZE_MAX + 3, SMOKER_BUBBLE_SIZE_MAX * 3 / 2 + 3);
+			}
+			smokerBubbleSize[i]++;
+			if (smokerBubbleSize[i] > SMOKER_BUBBLE_SIZE_MAX) {
+				smokerBubbleSize[i] = -random.nextInt(70);
+			}
+			if (random.nextInt(10) == 0 && smokerBubbleSize[i] > 5) {
+				if (emittedH2sEaterCount < 20) {
+					emitH2sEater(i);
+				} else if (random.nextInt(10) == 0) {
+					emitH2sEater(i);
 				}
 			}
-			lastTimeSmokedVisible = time;
 		}
 	}
 
+	/**
+	 * @return the smoker rocks, one for each smoker
+	 */
+	public java.util.List<Rock> getSmokerList() {
+		
+		return smokers;
+	}
+
 	/**
 	 * Creates a JSONArray from this object.
 	 * 
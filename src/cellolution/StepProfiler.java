@@ -0,0 +1,358 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * A low-overhead profiler of the simulation steps: measures the time (and the memory allocated) of 
+ * each phase of a step, e.g. sunshine, organism movements or diffusion.
+ * 
+ * Each phase keeps its last RING_SIZE measurements in ring buffers, a step does not allocate any objects.
+ * Every PUBLISH_MILLIS milliseconds the statistics (mean, 99th percentile, steps per second) are computed 
+ * on the simulation thread and published, they can be read from any thread (e.g. by a status overlay).
+ * If the profiler is disabled, measuring costs a flag check only.
+ * 
+ * Allocated bytes are measured for the simulation thread only: memory allocated by worker 
+ * threads (e.g. a parallel diffusion) is not included.
+ * 
+ * <pre>
+ * Usage (all calls on the simulation thread):
+ * 		int phase = profiler.addPhase("Repaint");
+ * 		...
+ * 		profiler.begin();
+ * 		repaint();
+ * 		profiler.end(phase);
+ * 		...
+ * 		profiler.stepDone();
+ * </pre>
+ */
+public class StepProfiler {
+
+	/** the number of measurements kept for each phase (a power of two) */
+	public static final int RING_SIZE = 1024;
+	/** the interval to compute and publish the statistics in milliseconds */
+	public static final int PUBLISH_MILLIS = 500;
+	/** the mask to compute the index within a ring buffer */
+	private static final int RING_MASK = RING_SIZE - 1;
+
+	/** flag if the profiler measures the phases */
+	private volatile boolean isEnabled;
+	/** the names of the phases, in the order of adding */
+	private ArrayList<String> phaseNames;
+	/** the ring buffers of the duration of the phases in nanoseconds, one per phase */
+	private ArrayList<long[]> phaseNanos;
+	/** the ring buffers of the bytes allocated by the phases, one per phase */
+	private ArrayList<long[]> phaseBytes;
+	/** the number of measurements of the phases (not limited to RING_SIZE), one per phase */
+	private long phaseRuns[];
+	/** the ring buffer of the System.nanoTime() at the end of the steps */
+	private long stepNanos[];
+	/** the number of measured steps (not limited to RING_SIZE) */
+	private long stepCount;
+	/** the System.nanoTime() of the beginning of the current phase, zero if no phase has begun */
+	private long beginNanos;
+	/** the allocated bytes of the simulation thread at the beginning of the current phase */
+	private long beginBytes;
+	/** the System.nanoTime() of the last publishing of the statistics */
+	private long publishedNanos;
+	/** the MXBean to measure allocated bytes, null if not supported by the JVM */
+	private com.sun.management.ThreadMXBean threadBean;
+	/** the published statistics of all phases */
+	private volatile List<PhaseStatistics> statistics;
+	/** the published number of steps per second */
+	private volatile double stepsPerSecond;
+
+	/**
+	 * Construction of a disabled profiler.
+	 */
+	public StepProfiler() {
+
+		phaseNames = new ArrayList<>();
+		phaseNanos = new ArrayList<>();
+		phaseBytes = new ArrayList<>();
+		phaseRuns = new long[0];
+		stepNanos = new long[RING_SIZE];
+		statistics = Collections.emptyList();
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean 
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+	/**
+	 * Adds a phase to measure.
+	 * 
+	 * @param name		the name of the phase, displayed with the statistics
+	 * @return the number of the phase, to be passed to end()
+	 */
+	public int addPhase(String name) {
+
+		phaseNames.add(name);
+		phaseNanos.add(new long[RING_SIZE]);
+		phaseBytes.add(new long[RING_SIZE]);
+		phaseRuns = Arrays.copyOf(phaseRuns, phaseNames.size());
+		return phaseNames.size() - 1;
+	}
+
+	/**
+	 * @return the allocated bytes of the current thread, zero if not supported
+	 */
+	private long allocatedBytes() {
+
+		return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : 0;
+	}
+
+	/**
+	 * Begins the measurement of a phase, does nothing if the profiler is disabled.
+	 */
+	public void begin() {
+
+		if (isEnabled) {
+			beginBytes = allocatedBytes();
+			beginNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Ends the measurement of a phase started with begin(), does nothing if the measurement 
+	 * has not begun (the profiler was disabled).
+	 * 
+	 * @param phase		the number of the phase (see addPhase())
+	 */
+	public void end(int phase) {
+
+		if (beginNanos != 0) {
+			long nanos = System.nanoTime() - beginNanos;
+			long bytes = allocatedBytes() - beginBytes;
+			int i = (int) (phaseRuns[phase]++ & RING_MASK);
+			phaseNanos.get(phase)[i] = nanos;
+			phaseBytes.get(phase)[i] = bytes;
+			beginNanos = 0;
+		}
+	}
+
+	/**
+	 * @return the statistics of all phases, published at most PUBLISH_MILLIS milliseconds ago (from any thread)
+	 */
+	public List<PhaseStatistics> getStatistics() {
+
+		return statistics;
+	}
+
+	/**
+	 * @return the number of simulation steps per second, published at most PUBLISH_MILLIS milliseconds ago (from any thread)
+	 */
+	public double getStepsPerSecond() {
+
+		return stepsPerSecond;
+	}
+
+	/**
+	 * @return true if the profiler measures the phases
+	 */
+	public boolean isEnabled() {
+
+		return isEnabled;
+	}
+
+	/**
+	 * Computes the statistics of all phases and publishes them now, e.g. at the end of a 
+	 * headless simulation (on the simulation thread).
+	 */
+	public void publish() {
+
+		publish(System.nanoTime());
+	}
+
+	/**
+	 * Computes the statistics of all phases and publishes them.
+	 * 
+	 * @param now		the current System.nanoTime()
+	 */
+	private void publish(long now) {
+
+		ArrayList<PhaseStatistics> list = new ArrayList<>(phaseNames.size());
+		for (int phase = 0; phase < phaseNames.size(); phase++) {
+			int n = (int) Math.min(phaseRuns[phase], RING_SIZE);
+			long nanos[] = Arrays.copyOf(phaseNanos.get(phase), n);
+			long bytes[] = phaseBytes.get(phase);
+			long sumNanos = 0;
+			long sumBytes = 0;
+			for (int i = 0; i < n; i++) {
+				sumNanos += nanos[i];
+				sumBytes += bytes[i];
+			}
+			Arrays.sort(nanos);
+			list.add(new PhaseStatistics(phaseNames.get(phase), phaseRuns[phase], 
+					n == 0 ? 0 : sumNanos / n, 
+					n == 0 ? 0 : nanos[(n - 1) * 99 / 100], 
+					n == 0 ? 0 : sumBytes / n));
+		}
+		int n = (int) Math.min(stepCount, RING_SIZE);
+		if (n > 1) {
+			long first = stepNanos[(int) ((stepCount - n) & RING_MASK)];
+			long last = stepNanos[(int) ((stepCount - 1) & RING_MASK)];
+			stepsPerSecond = last > first ? (n - 1) * 1e9 / (last - first) : 0;
+		}
+		statistics = Collections.unmodifiableList(list);
+		publishedNanos = now;
+	}
+
+	/**
+	 * Clears all measurements and statistics (the phases remain).
+	 */
+	public void reset() {
+
+		for (int phase = 0; phase < phaseNames.size(); phase++) {
+			phaseRuns[phase] = 0;
+		}
+		stepCount = 0;
+		stepsPerSecond = 0;
+		statistics = Collections.emptyList();
+	}
+
+	/**
+	 * Enables or disables the profiler (from any thread). The measurements are cleared 
+	 * at the next step after disabling.
+	 * 
+	 * @param isEnabled		true to measure the phases
+	 */
+	public void setEnabled(boolean isEnabled) {
+
+		this.isEnabled = isEnabled;
+	}
+
+	/**
+	 * A step of the simulation is done: counts the step and publishes the statistics, if due.
+	 * Does nothing if the profiler is disabled.
+	 */
+	public void stepDone() {
+
+		if (!isEnabled) {
+			if (stepCount != 0) {
+				reset();					// stale measurements must not be mixed with new ones
+			}
+			return;
+		}
+		long now = System.nanoTime();
+		stepNanos[(int) (stepCount++ & RING_MASK)] = now;
+		if (now - publishedNanos > PUBLISH_MILLIS * 1_000_000L) {
+			publish(now);
+		}
+	}
+
+	/**
+	 * Returns a summary of the published statistics (e.g. at the end of a headless simulation).
+	 * 
+	 * @return the summary, one line per phase
+	 */
+	public String summary() {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Steps/s: %.1f", stepsPerSecond));
+		for (PhaseStatistics phaseStatistics : statistics) {
+			sb.append(System.lineSeparator()).append(phaseStatistics);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The statistics of one phase, over the last RING_SIZE measurements (immutable).
+	 */
+	public static class PhaseStatistics {
+
+		/** the name of the phase */
+		private final String name;
+		/** the number of measurements since the profiler has been enabled */
+		private final long runs;
+		/** the mean duration in nanoseconds */
+		private final long meanNanos;
+		/** the 99th percentile of the duration in nanoseconds */
+		private final long p99Nanos;
+		/** the mean allocated bytes of the simulation thread */
+		private final long meanAllocatedBytes;
+
+		/**
+		 * Construction.
+		 * 
+		 * @param name					the name of the phase
+		 * @param runs					the number of measurements since the profiler has been enabled
+		 * @param meanNanos				the mean duration in nanoseconds
+		 * @param p99Nanos				the 99th percentile of the duration in nanoseconds
+		 * @param meanAllocatedBytes	the mean allocated bytes of the simulation thread
+		 */
+		private PhaseStatistics(String name, long runs, long meanNanos, long p99Nanos, long meanAllocatedBytes) {
+
+			this.name = name;
+			this.runs = runs;
+			this.meanNanos = meanNanos;
+			this.p99Nanos = p99Nanos;
+			this.meanAllocatedBytes = meanAllocatedBytes;
+		}
+
+		/**
+		 * @return the mean allocated bytes of the simulation thread
+		 */
+		public long getMeanAllocatedBytes() {
+
+			return meanAllocatedBytes;
+		}
+
+		/**
+		 * @return the mean duration in nanoseconds
+		 */
+		public long getMeanNanos() {
+
+			return meanNanos;
+		}
+
+		/**
+		 * @return the name of the phase
+		 */
+		public String getName() {
+
+			return name;
+		}
+
+		/**
+		 * @return the 99th percentile of the duration in nanoseconds
+		 */
+		public long getP99Nanos() {
+
+			return p99Nanos;
+		}
+
+		/**
+		 * @return the number of measurements since the profiler has been enabled
+		 */
+		public long getRuns() {
+
+			return runs;
+		}
+
+		@Override
+		public String toString() {
+
+			return String.format("%-18s mean %8.3f ms  p99 %8.3f ms  %9d B", 
+					name, meanNanos / 1e6, p99Nanos / 1e6, meanAllocatedBytes);
+		}
+	}
+}
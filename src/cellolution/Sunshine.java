@@ -28,10 +28,11 @@ public class Sunshine {
 	public static int MAX_INTENSITY = 1500;
 	public static int MAX_SUNBEAM_PIXELS = 100;
 	public static int BEAM_LENGTH = 5;
+	/** the period of sunshine steps in simulation ticks */
+	public static final int PERIOD_TICKS = 5;
 
 	private Ocean ocean;
 	private HashSet<Water> sunbeamPixels;
-	private long lastTime;
 	private int maxSunbeamPixels;
 
 	/**
@@ -43,7 +44,6 @@ public class Sunshine {
 		
 		sunbeamPixels = new HashSet<>();
 		this.ocean = ocean;
-		lastTime = System.currentTimeMillis();
 	}
 
 	/**
@@ -54,9 +54,9 @@ public class Sunshine {
 	 * @param row
 	 * @param colIncrease
 	 * @param rowIncrease
-	 * @param pixels 
+	 * @param grid 
 	 */
-	private void beam(int sunbeamIntensity, int col, int row, int colIncrease, int rowIncrease, Pixel[][] pixels) {
+	private void beam(int sunbeamIntensity, int col, int row, int colIncrease, int rowIncrease, OceanGrid grid) {
 		
 		for (int i = 1; i <= BEAM_LENGTH; i++) {
 			int nextCol = col - colIncrease * i;
@@ -64,7 +64,7 @@ public class Sunshine {
 			if (nextCol < 0 || nextRow < 0) {
 				break;
 			}			
-			Water waterpixel = (Water) pixels[nextCol][nextRow];	
+			Water waterpixel = grid.getWater(nextCol, nextRow);	
 			sunbeamIntensity = i == BEAM_LENGTH - 1 ? 0 : sunbeamIntensity * 80 / 100;
 			waterpixel.setSunbeamIntensity(sunbeamIntensity);
 			ocean.setPixelRGB(nextCol, nextRow, waterpixel.getSunshineRGB());
@@ -76,7 +76,7 @@ public class Sunshine {
 	 */
 	private void glideDeeper() {
 
-		Pixel pixels[][] = ocean.getPixels();
+		OceanGrid grid = ocean.getGrid();
 		ArrayList<Water> newSunbeamPixels = new ArrayList<Water>();
 		ArrayList<Water> sunbeamPixelsToRemove = new ArrayList<Water>();
 		sunbeamPixels.forEach(waterpixel -> {
@@ -86,10 +86,9 @@ public class Sunshine {
 			int rowIncrease = 3;
 			int nextCol = col + colIncrease;
 			int nextRow = row + rowIncrease;
-			Pixel nextPixel = pixels[nextCol][nextRow];			
 			// if the next pixel is not a rock, the beam will get weaker and will vanish a short time later
-			if (nextPixel instanceof Water) {
-				Water nextWaterPixel = (Water) nextPixel;
+			if (grid.isWater(nextCol, nextRow)) {
+				Water nextWaterPixel = grid.getWater(nextCol, nextRow);
 				int sunbeamIntensity = waterpixel.getSunIntensity();
 				if (sunbeamIntensity > 600) {
 					// decrease the sunshine energy
@@ -97,12 +96,13 @@ public class Sunshine {
 					newSunbeamPixels.add(nextWaterPixel);
 					ocean.setPixelRGB(nextCol, nextRow, nextWaterPixel.getSunshineRGB());
 					// display some beam simulation
-					beam(sunbeamIntensity, col, row, colIncrease, rowIncrease, pixels);
+					beam(sunbeamIntensity, col, row, colIncrease, rowIncrease, grid);
 				} else {
-					beam(0, nextCol, nextRow, colIncrease, rowIncrease, pixels);
+					beam(0, nextCol, nextRow, colIncrease, rowIncrease, grid);
 				}
-			} else if (nextPixel instanceof Rock) {
-				beam(0, nextCol, nextRow, colIncrease, rowIncrease, pixels);
+			} else {
+				// rock
+				beam(0, nextCol, nextRow, colIncrease, rowIncrease, grid);
 //				} else if (nextPixel instanceof Cell) {
 				
 				// TODO if we hit a cell, let it absorb the energy if "suneater"
@@ -120,15 +120,11 @@ public class Sunshine {
 	 * Lets the sun create some energy that shines through the water, gliding into the deep.
 	 * 
 	 * @param cellColumns 
-	 * @param pixels 
-	 * @param time 
+	 * @param grid 
+	 * @param tick 				the current simulation tick (called every PERIOD_TICKS)
 	 */
-	public void next(int cellColumns, Pixel[][] pixels, long time) {
+	public void next(int cellColumns, OceanGrid grid, long tick) {
 
-		if (time - lastTime < 100) {
-			return;					// next sunshine step: only from time to time
-		}
-		lastTime = time;
 		// let the sunshine beams glide deeper
 		glideDeeper();
 		// add some new sunhsine beams at the surface
@@ -138,9 +134,8 @@ public class Sunshine {
 			// this is called only if there are less than MAX_SUNSHINE_PIXELS beams, it will create a new beam
 			int intensity = MAX_INTENSITY * 2 / 3 + FastRandom.nextIntStat(MAX_INTENSITY / 3);
 			int column = (FastRandom.nextIntStat(cellColumns) * 7877) % cellColumns;
-			Pixel pixel = pixels[column][0];
-			if (pixel instanceof Water) {
-				Water waterPixel = (Water) pixel;
+			if (grid.isWater(column, 0)) {
+				Water waterPixel = grid.getWater(column, 0);
 				waterPixel.setSunbeamIntensity(intensity);
 				sunbeamPixels.add(waterPixel);
 				ocean.setPixelRGB(waterPixel.getColumn(), waterPixel.getRow(), waterPixel.getSunshineRGB());
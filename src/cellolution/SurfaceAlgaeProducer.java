@@ -24,13 +24,16 @@ import cellolution.util.*;
  */
 public class SurfaceAlgaeProducer {
 
+	/** the period of (maybe) dropping an algae cell in simulation ticks */
+	public static final int PERIOD_TICKS = 6;
+
 	private Ocean ocean;
-	private Pixel pixels[][];
+	private OceanGrid grid;
 	private OrganismMgr organismMgr;
 	private int cellColumns;
 	private int cellRows;
-	private long lastTimeAlgaeDropped;
 	private int droppedAlgaeCount;
+	private FastRandom random;						// the random stream of spawning
 
 	/**
 	 * Producer construction.
@@ -40,11 +43,11 @@ public class SurfaceAlgaeProducer {
 	public SurfaceAlgaeProducer(Ocean ocean) {
 		
 		this.ocean = ocean;
+		random = FastRandom.get(FastRandom.Stream.SPAWNING);
 		cellColumns = Main.getCellColumns();
 		cellRows = Main.getCellRows();
-		pixels = ocean.getPixels();
+		grid = ocean.getGrid();
 		organismMgr = ocean.getOrganismMgr();
-		lastTimeAlgaeDropped = System.currentTimeMillis();
 	}
 
 	/**
@@ -57,33 +60,30 @@ public class SurfaceAlgaeProducer {
 			return;
 		}
 		int row = 1;
-		int col = 10 + FastRandom.nextIntStat(cellColumns - 20);
+		int col = 10 + random.nextInt(cellColumns - 20);
 		for (;;) {
-			if (pixels[col][row] instanceof Water && !organismMgr.hasCellOn(col, row)) {
-				SingleAlgaeCell cell = SingleAlgaeCell.create(col, row, 18000 + FastRandom.nextIntStat(30000));
-				cell.getProperties()[AbstractCell.PROP_ORGANIC] = 300 + FastRandom.nextIntStat(2500);
+			if (grid.isWater(col, row) && !organismMgr.hasCellOn(col, row)) {
+				SingleAlgaeCell cell = SingleAlgaeCell.create(col, row, 18000 + random.nextInt(30000));
+				cell.getProperties()[AbstractCell.PROP_ORGANIC] = 300 + random.nextInt(2500);
 				Organism organism = cell.getOrganism();
-				organism.setSpeedAndDirection(3 + FastRandom.nextIntStat(5), 120 + FastRandom.nextIntStat(121));	// 120 to 240 degrees
+				organism.setSpeedAndDirection(3 + random.nextInt(5), 120 + random.nextInt(121));	// 120 to 240 degrees
 				droppedAlgaeCount++;
 				break;
 			}
-			col = 10 + FastRandom.nextIntStat(cellColumns - 20);
+			col = 10 + random.nextInt(cellColumns - 20);
 		}
 	}
 
 	/**
 	 * Drop anm algae cell from time to time at the surface of the ocean.
 	 * 
-	 * @param time
+	 * @param tick			the current simulation tick (called every PERIOD_TICKS)
 	 */
-	public void plungeAlgae(long time) {
+	public void plungeAlgae(long tick) {
 
-		if (time - lastTimeAlgaeDropped > 100) {
-			if (droppedAlgaeCount < 5 || (droppedAlgaeCount < 25 && FastRandom.nextIntStat(70) == 0) 
-					|| FastRandom.nextIntStat(300) == 0) {
-				dropAlgaeOrganism();
-			}
-			lastTimeAlgaeDropped = time;
+		if (droppedAlgaeCount < 5 || (droppedAlgaeCount < 25 && random.nextInt(70) == 0) 
+				|| random.nextInt(300) == 0) {
+			dropAlgaeOrganism();
 		}
 	}
 }
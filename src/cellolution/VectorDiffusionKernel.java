@@ -0,0 +1,176 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+import java.util.*;
+
+import jdk.incubator.vector.*;
+
+/**
+ * A diffusion kernel using the Java Vector API (module jdk.incubator.vector): the pixels of a 
+ * column are computed as vectors of rows, one substance plane after the other. 
+ * Since the hexagon neighbors of all pixels of a column have the same index offsets, each of the 
+ * six neighbors is a vector load at a fixed offset.
+ * 
+ * The results are exactly the same as the ones of the ScalarDiffusionKernel:
+ * <pre>
+ * |difference| / DIFFUSION_DIVIDER		multiply with a reciprocal and shift, exact for |difference| &lt;= 255
+ * rounding[remainder]				a bit of roundingBits, as the rounding is either 0 or 1
+ * </pre>
+ * The first row and the rows at the bottom not filling a whole vector are computed by the scalar kernel.
+ * 
+ * The vectors have the preferred shape of the platform, the bytes are loaded with a quarter of it. 
+ * Platforms with vectors of less than 8 int lanes (e.g. 128 bits) use the scalar kernel, as there is 
+ * no byte shape for less than 8 lanes.
+ * 
+ * The class is loaded by Diffusion.createVectorKernel() only, the Java runtime needs the option 
+ * "--add-modules jdk.incubator.vector", otherwise the scalar kernel is used.
+ */
+public class VectorDiffusionKernel implements DiffusionKernel {
+
+	/** the int lanes for the computation, the preferred shape of the platform */
+	private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+	/** the number of lanes (rows) of a vector */
+	private static final int LANES = INT_SPECIES.length();
+	/** the byte lanes for loading and storing, same lane count as INT_SPECIES (if there are at least 8 lanes) */
+	private static final VectorSpecies<Byte> BYTE_SPECIES = VectorSpecies.of(byte.class, 
+			VectorShape.forBitSize(Math.max(LANES * Byte.SIZE, VectorShape.S_64_BIT.vectorBitSize())));
+	/** the divider of the diffusion: half of the neighbor count plus the current cell */
+	private static final int DIFFUSION_DIVIDER = Diffusion.DIFFUSION_DIVIDER;
+	/** the shift of the reciprocal of the diffusion divider */
+	private static final int RECIPROCAL_SHIFT = 16;
+	/** the reciprocal of the diffusion divider, shifted by RECIPROCAL_SHIFT */
+	private static final int RECIPROCAL = (1 << RECIPROCAL_SHIFT) / DIFFUSION_DIVIDER + 1;
+
+	/** all pixels of the ocean */
+	private OceanGrid grid;
+	/** the number of rows of the ocean */
+	private int cellRows;
+	/** the kernel computing the pixels not filling a whole vector */
+	private ScalarDiffusionKernel scalarKernel;
+	/** the index of all water pixels and their neighbors */
+	private WaterIndex waterIndex;
+	/** the rounding of all remainders as bits: bit n is rounding[n] */
+	private int roundingBits;
+	/** the current planes of the dissolved substances of the ocean, read during a diffusion step */
+	private byte substances[][];
+	/** the next planes of the dissolved substances of the ocean, written during a diffusion step */
+	private byte nextSubstances[][];
+
+	/**
+	 * @param grid		all pixels of the ocean
+	 * @throws UnsupportedOperationException if the vectors of the platform have less than 8 int lanes
+	 */
+	public VectorDiffusionKernel(OceanGrid grid) {
+
+		if (BYTE_SPECIES.length() != LANES) {
+			throw new UnsupportedOperationException("Vector kernel: " + LANES + " lanes are too few");
+		}
+		this.grid = grid;
+		cellRows = grid.getCellRows();
+		scalarKernel = new ScalarDiffusionKernel(grid);
+	}
+
+	@Override
+	public void computeColumn(int col, int rowBottom) {
+
+		int offsets[] = grid.getHexGrid().getIndexOffsets(col);			// index offsets of the neighbors
+		byte cellTypes[] = grid.getCellTypes();
+		int colIndex = grid.index(col, 0);
+		scalarKernel.copyToNext(colIndex, colIndex + cellRows);		// rock keeps its substances, water is overwritten below
+		// the first row has no neighbors above, it is computed by the scalar kernel (as the bottom rows)
+		int endRow = 1 + rowBottom / LANES * LANES;
+		// the columns are computed by several threads, the masks are local
+		ArrayList<VectorMask<Integer>> neighborMasks = new ArrayList<>(offsets.length);
+		for (int n = 0; n < offsets.length; n++) {
+			neighborMasks.add(null);
+		}
+		for (int row = 1; row < endRow; row += LANES) {
+			int index = colIndex + row;
+			// the neighbors are taken into account if both, pixel and neighbor, are water
+			VectorMask<Byte> isWater = ByteVector.fromArray(BYTE_SPECIES, cellTypes, index).eq(OceanGrid.WATER);
+			for (int n = 0; n < offsets.length; n++) {
+				neighborMasks.set(n, ByteVector.fromArray(BYTE_SPECIES, cellTypes, index + offsets[n])
+						.eq(OceanGrid.WATER).and(isWater).cast(INT_SPECIES));
+			}
+			for (int i = 0; i < substances.length; i++) {
+				computeVector(substances[i], nextSubstances[i], index, offsets, neighborMasks);
+			}
+		}
+		// the water pixels of the first row and the bottom rows not filling a whole vector
+		int indices[] = waterIndex.getWaterIndices(col);
+		int neighbors[] = waterIndex.getNeighbors(col);
+		if (indices.length > 0 && indices[0] == colIndex) {
+			scalarKernel.computeWater(colIndex, neighbors, 0);
+		}
+		for (int i = indices.length - 1; i >= 0 && indices[i] >= colIndex + endRow; i--) {
+			if (indices[i] <= colIndex + rowBottom) {
+				scalarKernel.computeWater(indices[i], neighbors, i * WaterIndex.NEIGHBOR_COUNT);
+			}
+		}
+	}
+
+	/**
+	 * Compute the diffusion of one substance for a vector of rows.
+	 * Pixels which are not water get no differences, they are copied unchanged.
+	 * 
+	 * @param plane				the current plane of the substance
+	 * @param nextPlane			the next plane of the substance
+	 * @param index				the index of the first pixel
+	 * @param offsets			the index offsets of the neighbors
+	 * @param neighborMasks		the lanes with water pixels and water neighbors, for each neighbor
+	 */
+	private void computeVector(byte plane[], byte nextPlane[], int index, 
+			int offsets[], List<VectorMask<Integer>> neighborMasks) {
+
+		IntVector value = (IntVector) ByteVector.fromArray(BYTE_SPECIES, plane, index).castShape(INT_SPECIES, 0);
+		IntVector sum = IntVector.zero(INT_SPECIES);
+		for (int n = 0; n < offsets.length; n++) {
+			IntVector neighbor = (IntVector) ByteVector.fromArray(BYTE_SPECIES, plane, index + offsets[n])
+					.castShape(INT_SPECIES, 0);
+			IntVector difference = neighbor.sub(value);
+			IntVector absDifference = difference.abs();
+			IntVector quotient = absDifference.mul(RECIPROCAL).lanewise(VectorOperators.ASHR, RECIPROCAL_SHIFT);
+			IntVector remainder = absDifference.sub(quotient.mul(DIFFUSION_DIVIDER));
+			IntVector round = IntVector.broadcast(INT_SPECIES, roundingBits)
+					.lanewise(VectorOperators.LSHR, remainder).and(1);
+			IntVector delta = quotient.add(round);
+			delta = delta.blend(delta.neg(), difference.compare(VectorOperators.LT, 0));
+			sum = sum.add(delta, neighborMasks.get(n));
+		}
+		((ByteVector) value.add(sum).castShape(BYTE_SPECIES, 0)).intoArray(nextPlane, index);
+	}
+
+	@Override
+	public String getName() {
+
+		return "vector (" + LANES + " lanes)";
+	}
+
+	@Override
+	public void nextStep(int rounding[]) {
+
+		scalarKernel.nextStep(rounding);
+		substances = grid.getPlanes();
+		nextSubstances = grid.getNextPlanes();
+		waterIndex = grid.getWaterIndex();
+		roundingBits = 0;
+		for (int i = 0; i < rounding.length; i++) {
+			roundingBits |= (rounding[i] & 1) << i;			// the rounding is either 0 or 1
+		}
+	}
+}
@@ -18,72 +18,74 @@ package cellolution;
 
 import java.awt.*;
 
+import cellolution.util.*;
+
 /**
  * A pixel containing water in the ocean.
  * Water can dissolve matter in the range of 0 to 100 (for each material): salts (e.g. NaCl, lime), gases (O2, H2S).
  * It also has a certain brightness used by algae cells, dependig on the depth.
+ * 
+ * A Water object is a view of a pixel stored in the OceanGrid, all values are read from and written to the grid.
  */
 public class Water extends Pixel {
 
 	public static int RGB_DEFAULT = new Color(147, 167, 187).getRGB();
 	
-	// due to memory savings: matter defintion as follows: indices and byte[]
+	// due to memory savings: matter defintion as follows: indices of the substance planes in OceanGrid
 	public static int CO2 = 0;							// carbon dioxide, for "plant breathing"
 	public static int CaCO3 = 1;						// lime, to build hard matter
 	public static int H2S = 2;							// hydrogen sulfide, as energy in the deep
 	public static int ORGANIC = 3;						// organic matter, to build cells and cell parts
 	public static int SUBSTANCES_SIZE = ORGANIC + 1;
 
-	private byte[] substances = new byte[SUBSTANCES_SIZE];
+	/** the colors by sun beam intensity, precomputed */
+	private static final Palette SUNSHINE_PALETTE = new Palette(Sunshine.MAX_INTENSITY, 1, Water::sunshineRGB);
 
-	private short sunbeamIntensity;
+	/** the grid containing the values of this pixel */
+	private final OceanGrid grid;
+	/** the index of this pixel within the grid */
+	private final int index;
 
 	/**
-	 * @param column
-	 * @param row
+	 * @param grid		the grid containing the values of this pixel
+	 * @param column	the column of the pixel within the ocean
+	 * @param row		the row of the pixel within the ocean
 	 */
-	public Water(int column, int row) {
+	public Water(OceanGrid grid, int column, int row) {
 
 		super(column, row);
+		this.grid = grid;
+		index = grid.index(column, row);
 	}
 
 	/**
-	 * Add the computed substance differences for this water pixel and clear the 
-	 * differences for the next difference computation.
+	 * Copy the substances of another water pixel into this pixel.
 	 * 
-	 * @param difference		the computed difference for this water pixel
+	 * @param water		the water pixel
 	 */
-	public void addAndZeroDifference(Water difference) {
+	public void copyFrom(Water water) {
 		
-		byte[] diffSubstances = difference.substances;
-		for (int i = 0; i < substances.length; i++) {
-			substances[i] += diffSubstances[i];
-			diffSubstances[i] = 0;				// clear it for the next difference computation
+		for (int i = 0; i < SUBSTANCES_SIZE; i++) {
+			grid.setMatterValue(i, index, (byte) water.matterValue(i));
 		}
 	}
 
-	/**
-	 * Copy the properties of another water pixel into this pixel.
-	 * 
-	 * @param water		the water pixel
-	 */
-	public void copyFrom(Water water) {
-		
-		column = water.column;
-		row = water.row;
-//		sunIntensity = water.sunIntensity;
-		substances[CO2] = water.substances[CO2];
-		substances[CaCO3] = water.substances[CaCO3];
-		substances[H2S] = water.substances[H2S];
-		substances[ORGANIC] = water.substances[ORGANIC];
+	@Override
+	public boolean equals(Object obj) {
+
+		if (!(obj instanceof Water)) {
+			return false;
+		}
+		Water other = (Water) obj;
+		return index == other.index && grid == other.grid;
 	}
 
 	/**
-	 * @return the substances
+	 * @return the index of this pixel within the grid
 	 */
-	public byte[] getSubstances() {
+	public int getIndex() {
 		
-		return substances;
+		return index;
 	}
 
 	/**
@@ -91,7 +93,13 @@ public class Water extends Pixel {
 	 */
 	public short getSunIntensity() {
 		
-		return sunbeamIntensity;
+		return grid.getSunbeamIntensity(index);
+	}
+
+	@Override
+	public int hashCode() {
+
+		return index;
 	}
 
 	/**
@@ -99,13 +107,7 @@ public class Water extends Pixel {
 	 */
 	public void initMatterValues() {
 		
-		int depth = Main.getCellRows();
-		byte deeperMoreVal = (byte) (80 * row / depth);
-		byte deeperLessVal = (byte) (100 - deeperMoreVal);
-		substances[CO2] = deeperLessVal;
-		substances[CaCO3] = (byte) (deeperMoreVal / 3 + 23);
-		substances[H2S] = (byte) (10 + deeperMoreVal / 2 + 1);
-		substances[ORGANIC] = (byte) 20;
+		grid.initMatterValues(index);
 	}
 
 	/**
@@ -113,7 +115,7 @@ public class Water extends Pixel {
 	 */
 	public void increaseOrganicMatter() {
 		
-		substances[ORGANIC]++;
+		grid.addMatterValue(ORGANIC, index, 1);
 	}
 	
 	/**
@@ -123,7 +125,7 @@ public class Water extends Pixel {
 	 */
 	public int matterValue(int matterIndexConstant) {
 		
-		return substances[matterIndexConstant];
+		return grid.matterValue(matterIndexConstant, index);
 	}
 
 	/**
@@ -131,11 +133,7 @@ public class Water extends Pixel {
 	 */
 	public int getSunshineRGB() {
 		
-		if (sunbeamIntensity == 0) {
-			return RGB_DEFAULT;
-		}
-		int value = sunbeamIntensity * 100 / Sunshine.MAX_INTENSITY;	// 250: green/blue value (yellow), 2000: greater than maximum intensity
-		return new Color(value + 150, value + 130, 10).getRGB();
+		return SUNSHINE_PALETTE.getRGB(grid.getSunbeamIntensity(index));
 	}
 
 	/**
@@ -146,7 +144,7 @@ public class Water extends Pixel {
 	 */
 	public void setMatterValue(int matterIndexConstant, byte value) {
 		
-		substances[matterIndexConstant] = value;
+		grid.setMatterValue(matterIndexConstant, index, value);
 	}
 
 	/**
@@ -155,16 +153,31 @@ public class Water extends Pixel {
 	 */
 	public void setSunbeamIntensity(int sunbeamIntensity) {
 		
-		this.sunbeamIntensity = (short) sunbeamIntensity;
+		grid.setSunbeamIntensity(index, sunbeamIntensity);
+	}
+
+	/**
+	 * Computes the color of water with a sun beam of a certain intensity, used to fill SUNSHINE_PALETTE.
+	 * 
+	 * @param sunbeamIntensity		the intensity of the sun beam, 0 if there is none
+	 * @return the RGB value
+	 */
+	private static int sunshineRGB(int sunbeamIntensity) {
+		
+		if (sunbeamIntensity == 0) {
+			return RGB_DEFAULT;
+		}
+		int value = sunbeamIntensity * 100 / Sunshine.MAX_INTENSITY;	// 250: green/blue value (yellow)
+		return new Color(value + 150, value + 130, 10).getRGB();
 	}
 
 	@Override
 	public String toString() {
 		
-		return "Water (" + column + "/" + row + ")   [CO2=" + substances[CO2] 
-				+ ", CaCO3=" + substances[CaCO3] 
-				+ ", H2S=" + substances[H2S] 
-				+ ", Organic=" + substances[ORGANIC] 
+		return "Water (" + column + "/" + row + ")   [CO2=" + matterValue(CO2) 
+				+ ", CaCO3=" + matterValue(CaCO3) 
+				+ ", H2S=" + matterValue(H2S) 
+				+ ", Organic=" + matterValue(ORGANIC) 
 				+ ", sunshine brightness=" + computeSunshineBrightness(Main.getCellRows()) + "]";
 	}
 
@@ -173,8 +186,8 @@ public class Water extends Pixel {
 	 */
 	public void zeroSubstances() {
 
-		for (int i = 0; i < substances.length; i++) {
-			substances[i] = 0;
+		for (int i = 0; i < SUBSTANCES_SIZE; i++) {
+			grid.setMatterValue(i, index, (byte) 0);
 		}
 	}
 }
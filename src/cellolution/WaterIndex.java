@@ -0,0 +1,187 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution;
+
+/**
+ * A compact index of all water pixels of the ocean, column by column, including the indices of 
+ * the six hexagon neighbors of each water pixel. Whole-ocean sweeps (e.g. the diffusion) iterate 
+ * this index instead of testing each pixel for rock.
+ * 
+ * The index belongs to the OceanGrid: changing a pixel to rock or water marks its column dirty, 
+ * only dirty columns and their left and right columns are rebuilt by the next update(), 
+ * e.g. after a smoker has been created.
+ * 
+ * <pre>
+ * neighbors of a water pixel, NEIGHBOR_COUNT values for each water pixel (in the order of the hexagon numbers):
+ * 
+ * hexagon neighbour cells:		6 1			neighbors[i * NEIGHBOR_COUNT + 0] = index of 1 
+ *                             5 C 2		...
+ *                              4 3			neighbors[i * NEIGHBOR_COUNT + 5] = index of 6
+ * 
+ * the value is NO_NEIGHBOR if the neighbor is rock or outside of the ocean
+ * </pre>
+ * The neighbors are computed by the HexGrid of the OceanGrid.
+ */
+public class WaterIndex {
+
+	/** the number of neighbors of a pixel, using hexagons */
+	public static final int NEIGHBOR_COUNT = HexGrid.NEIGHBOR_COUNT;
+	/** the neighbor value of a rock neighbor or a neighbor outside the ocean */
+	public static final int NO_NEIGHBOR = HexGrid.NO_NEIGHBOR;
+
+	/** all pixels of the ocean */
+	private OceanGrid grid;
+	/** the number of columns of the ocean */
+	private int cellColumns;
+	/** the number of rows of the ocean */
+	private int cellRows;
+	/** the indices of the water pixels of each column, ascending */
+	private int waterIndices[][];
+	/** the indices of the neighbors of the water pixels of each column, NEIGHBOR_COUNT for each water pixel */
+	private int neighbors[][];
+	/** true for each column which has been changed since the last update */
+	private boolean dirtyColumns[];
+	/** true if any column has been changed since the last update */
+	private boolean isDirty;
+	/** the number of water pixels */
+	private int count;
+
+	/**
+	 * Construction, all columns are dirty and are built by the first update().
+	 * 
+	 * @param grid		all pixels of the ocean
+	 */
+	public WaterIndex(OceanGrid grid) {
+
+		this.grid = grid;
+		cellColumns = grid.getCellColumns();
+		cellRows = grid.getCellRows();
+		waterIndices = new int[cellColumns][];
+		neighbors = new int[cellColumns][];
+		dirtyColumns = new boolean[cellColumns];
+		for (int col = 0; col < cellColumns; col++) {
+			waterIndices[col] = new int[0];
+			neighbors[col] = new int[0];
+			dirtyColumns[col] = true;
+		}
+		isDirty = true;
+	}
+
+	/**
+	 * @return the number of water pixels
+	 */
+	public int getCount() {
+
+		return count;
+	}
+
+	/**
+	 * Returns the neighbor indices of the water pixels of a column, NEIGHBOR_COUNT values for 
+	 * each water pixel in the order of getWaterIndices(). The array must not be changed.
+	 * 
+	 * @param col		the column
+	 * @return the neighbor indices, NO_NEIGHBOR for rock or outside the ocean
+	 */
+	public int[] getNeighbors(int col) {
+
+		return neighbors[col];
+	}
+
+	/**
+	 * Returns the indices of the water pixels of a column, ascending. The array must not be changed.
+	 * 
+	 * @param col		the column
+	 * @return the indices of the water pixels
+	 */
+	public int[] getWaterIndices(int col) {
+
+		return waterIndices[col];
+	}
+
+	/**
+	 * Marks a column as changed, called by OceanGrid.
+	 * 
+	 * @param col		the column
+	 */
+	void markDirty(int col) {
+
+		dirtyColumns[col] = true;
+		isDirty = true;
+	}
+
+	/**
+	 * Rebuilds the water pixels and their neighbors of a column.
+	 * 
+	 * @param col		the column
+	 */
+	private void rebuildColumn(int col) {
+
+		int colIndex = grid.index(col, 0);
+		int waterCount = 0;
+		for (int row = 0; row < cellRows; row++) {
+			if (grid.isWater(colIndex + row)) {
+				waterCount++;
+			}
+		}
+		int indices[] = new int[waterCount];
+		int colNeighbors[] = new int[waterCount * NEIGHBOR_COUNT];
+		HexGrid hexGrid = grid.getHexGrid();
+		int i = 0;
+		for (int row = 0; row < cellRows; row++) {
+			if (!grid.isWater(colIndex + row)) {
+				continue;
+			}
+			indices[i] = colIndex + row;
+			for (int n = 0; n < NEIGHBOR_COUNT; n++) {
+				int neighborIndex = hexGrid.neighborIndex(col, row, n + 1);
+				if (neighborIndex != HexGrid.NO_NEIGHBOR && !grid.isWater(neighborIndex)) {
+					neighborIndex = NO_NEIGHBOR;				// rock
+				}
+				colNeighbors[i * NEIGHBOR_COUNT + n] = neighborIndex;
+			}
+			i++;
+		}
+		count += waterCount - waterIndices[col].length;
+		waterIndices[col] = indices;
+		neighbors[col] = colNeighbors;
+	}
+
+	/**
+	 * Rebuilds the dirty columns and their left and right columns (the neighbors have changed).
+	 */
+	public void update() {
+
+		if (!isDirty) {
+			return;
+		}
+		boolean rebuild[] = new boolean[cellColumns];
+		for (int col = 0; col < cellColumns; col++) {
+			if (dirtyColumns[col]) {
+				rebuild[col] = true;
+				rebuild[Math.max(col - 1, 0)] = true;
+				rebuild[Math.min(col + 1, cellColumns - 1)] = true;
+				dirtyColumns[col] = false;
+			}
+		}
+		for (int col = 0; col < cellColumns; col++) {
+			if (rebuild[col]) {
+				rebuildColumn(col);
+			}
+		}
+		isDirty = false;
+	}
+}
@@ -16,7 +16,7 @@
  */
 package cellolution.cell;
 
-import java.awt.*;
+import java.io.*;
 
 import org.json.*;
 
@@ -85,10 +85,18 @@ public abstract class AbstractCell extends Pixel {
 	
 	/** a reference to the organism this cell belongs to */
 	protected Organism organism;
-	/** the current color of the cell */
-	protected Color color;
 	/** the current color of the cell, as RGB value */
 	private int colorRGB;
+	/** the state of the organism paintARGB has been computed for, null if not computed */
+	private OrgState paintState;
+	/** the ARGB value to paint the cell, cached for paintState */
+	private int paintARGB;
+	/** the column the cell has been rasterized at the last time, -1 if not rasterized */
+	private int rasterizedColumn = -1;
+	/** the row the cell has been rasterized at the last time */
+	private int rasterizedRow;
+	/** the ARGB value the cell has been rasterized with the last time */
+	private int rasterizedARGB;
 	
 	/**
 	 * Construction of a cell.
@@ -96,14 +104,13 @@ public abstract class AbstractCell extends Pixel {
 	 * @param column		the column of the cell within the ocean
 	 * @param row			the row of the cell within the ocean
 	 * @param energy 		the energy of this cell
-	 * @param color			the color to display the cell
+	 * @param colorRGB		the color to display the cell, as RGB value
 	 * @param organism		the organism the cell belongs to
 	 */
-	protected AbstractCell(int column, int row, int energy, Color color, Organism organism) {
+	protected AbstractCell(int column, int row, int energy, int colorRGB, Organism organism) {
 		
 		super(column, row);
-		this.color = color;
-		colorRGB = color.getRGB();
+		this.colorRGB = colorRGB;
 		this.organism = organism;
 		props[PROP_ENERGY] = energy;
 		adjustColorByEnergy();								// superclass will do that
@@ -126,29 +133,34 @@ public abstract class AbstractCell extends Pixel {
 	 * Adsorb some substances of the underlying water pixel.
 	 * In general, substances are within the range of [0..100].
 	 * 
-	 * @param substances 		substances to adsorb
+	 * @param substances 		the substance planes of the ocean (see OceanGrid)
+	 * @param index				the index of the underlying water pixel
 	 */
-	public void adsorbSustances(byte substances[]) {
+	public void adsorbSustances(byte substances[][], int index) {
 
 		// water substances in general: 0..100
-		int value = substances[Water.CO2] * props[PROP_CO2_ADSORBTION_RATE] / 100;	
+		byte plane[] = substances[Water.CO2];
+		int value = plane[index] * props[PROP_CO2_ADSORBTION_RATE] / 100;	
 		value = props[PROP_CO2] + value > 10000 ? 10000 - props[PROP_CO2] : value;
-		substances[Water.CO2] -= value;
+		plane[index] -= value;
 		props[PROP_CO2] += value;
 		props[PROP_ENERGY] -= value / props[PROP_CO2_ADSORB_ENERGY];	// energy consumption when adsorbing, e.g. 5: => 1/5 = 20%
-		value = substances[Water.CaCO3] * props[PROP_CaCO3_ADSORBTION_RATE] / 100;
+		plane = substances[Water.CaCO3];
+		value = plane[index] * props[PROP_CaCO3_ADSORBTION_RATE] / 100;
 		value = props[PROP_CaCO3] + value > 10000 ? 10000 - props[PROP_CaCO3] : value;
-		substances[Water.CaCO3] -= value;
+		plane[index] -= value;
 		props[PROP_CaCO3] += value;
 		props[PROP_ENERGY] -= value / props[PROP_CaCO3_ADSORB_ENERGY];	// energy consumption when adsorbing, e.g. 5: => 1/5 = 20%
-		value = substances[Water.H2S] * props[PROP_H2S_ADSORBTION_RATE] / 100;
+		plane = substances[Water.H2S];
+		value = plane[index] * props[PROP_H2S_ADSORBTION_RATE] / 100;
 		value = props[PROP_H2S] + value > 10000 ? 10000 - props[PROP_H2S] : value;
-		substances[Water.H2S] -= value;
+		plane[index] -= value;
 		props[PROP_H2S] += value;
 		props[PROP_ENERGY] -= value / props[PROP_H2S_ADSORB_ENERGY];	// energy consumption when adsorbing, e.g. 5: => 1/5 = 20%
-		value = substances[Water.ORGANIC] * props[PROP_ORGANIC_ADSORBTION_RATE] / 100;
+		plane = substances[Water.ORGANIC];
+		value = plane[index] * props[PROP_ORGANIC_ADSORBTION_RATE] / 100;
 		value = props[PROP_ORGANIC] + value > 10000 ? 10000 - props[PROP_ORGANIC] : value;
-		substances[Water.ORGANIC] -= value;
+		plane[index] -= value;
 		props[PROP_ORGANIC] += value;
 		props[PROP_ENERGY] -= value / props[PROP_ORGANIC_ADSORB_ENERGY];// energy consumption when adsorbing, e.g. 5: => 1/5 = 20%
 	}
@@ -177,7 +189,7 @@ public abstract class AbstractCell extends Pixel {
 		for (int i = 0; i < otherProps.length; i++) {
 			props[i] = otherProps[i];
 		}
-		setColorAndRGB(otherCell.getColor());
+		setColorRGB(otherCell.getColorRGB());
 	}
 
 	/**
@@ -197,22 +209,7 @@ public abstract class AbstractCell extends Pixel {
 		int col = jsonCell.getInt(Keys.COLUMN);
 		int row = jsonCell.getInt(Keys.ROW);
 		int energy = jsonCell.getInt(Keys.ENERGY); 
-		int colorRGB = JsonUtil.toColorRGBFrom(jsonCell);
-		// we can use java.lang.reflect here, but possibly we need to make individual decisions
-		AbstractCell cell = null;
-		switch (className) {
-		case SingleAlgaeCell.CLASS_NAME: 
-			cell = new SingleAlgaeCell(col, row, energy, organism, genome);
-			break;
-		case SingleH2sEaterCell.CLASS_NAME: 
-			cell = new SingleH2sEaterCell(col, row, energy, organism, genome);
-			break;
-		case StemCell.CLASS_NAME: 
-			cell = new StemCell(col, row, energy, organism, genome);
-			break;
-		default:
-			throw new IllegalArgumentException("Unexpected cell name: " + className);
-		}
+		AbstractCell cell = create(className, col, row, energy, organism, genome);
 		cell.props[PROP_ENERGY_CONSUMTION] = jsonCell.getInt(Keys.ENERGY_CONSUMTION);
 		cell.props[PROP_SUN_BEAM_INCREMENT] = jsonCell.getInt(Keys.SUN_BEAM_INCREMENT);
 		cell.props[PROP_H2S_TO_ENERGY] = jsonCell.getInt(Keys.H2S_TO_ENERGY);
@@ -236,6 +233,67 @@ public abstract class AbstractCell extends Pixel {
 		return cell;
 	}
 
+	/**
+	 * Creates a cell from a binary snapshot record, see SimSnapshot.
+	 * 
+	 * @param in				the input of the snapshot
+	 * @param organism 			the organism the cell belongs to
+	 * @param snapshot			the snapshot, resolving the type names of the file
+	 * @return the cell
+	 * @throws IOException on an IO error
+	 */
+	public static AbstractCell createFrom(DataInput in, Organism organism, SimSnapshot snapshot) throws IOException {
+		
+		String className = snapshot.getTypeName(in.readUnsignedByte());
+		String genomeName = snapshot.getTypeName(in.readUnsignedByte());
+		int col = in.readShort();
+		int row = in.readShort();
+		int colorRGB = in.readInt();
+		int propCount = in.readUnsignedByte();
+		int fileProps[] = new int[propCount];
+		for (int i = 0; i < propCount; i++) {
+			fileProps[i] = in.readInt();
+		}
+		Genome genome = genomeName.isEmpty() ? null : Genome.createFrom(genomeName);
+		AbstractCell cell = create(className, col, row, fileProps[PROP_ENERGY], organism, genome);
+		// props written by another release may differ in size
+		System.arraycopy(fileProps, 0, cell.props, 0, Math.min(propCount, SIZE_OF_PROPS));
+		cell.setColorRGB(colorRGB);
+		return cell;
+	}
+
+	/**
+	 * Creates a cell of a type.
+	 * 
+	 * @param className			the simple class name of the cell
+	 * @param col				the column of the cell
+	 * @param row				the row of the cell
+	 * @param energy			the energy of the cell
+	 * @param organism 			the organism the cell belongs to
+	 * @param genome			the genome of the cell, may be null
+	 * @return the cell
+	 */
+	private static AbstractCell create(String className, int col, int row, int energy, 
+			Organism organism, Genome genome) {
+		
+		// we can use java.lang.reflect here, but possibly we need to make individual decisions
+		AbstractCell cell = null;
+		switch (className) {
+		case SingleAlgaeCell.CLASS_NAME: 
+			cell = new SingleAlgaeCell(col, row, energy, organism, genome);
+			break;
+		case SingleH2sEaterCell.CLASS_NAME: 
+			cell = new SingleH2sEaterCell(col, row, energy, organism, genome);
+			break;
+		case StemCell.CLASS_NAME: 
+			cell = new StemCell(col, row, energy, organism, genome);
+			break;
+		default:
+			throw new IllegalArgumentException("Unexpected cell name: " + className);
+		}
+		return cell;
+	}
+
 	/**
 	 * Creates a key for this cell, using its coordinates.
 	 * 
@@ -265,9 +323,9 @@ public abstract class AbstractCell extends Pixel {
 		
 		// water substances in general: 0..100
 		Ocean ocean = Main.getOcean();
-		Pixel pixel[][] = ocean.getPixels();
-		Pixel p = pixel[column][row];
-		if (!(p instanceof Water)) {
+		OceanGrid grid = ocean.getGrid();
+		int index = grid.index(column, row);
+		if (!grid.isWater(index)) {
 			props[PROP_CO2] = props[PROP_CO2] * 95 / 100;
 			props[PROP_CaCO3] = props[PROP_CO2] * 95 / 100;
 			props[PROP_H2S] = props[PROP_H2S] * 95 / 100;
@@ -276,26 +334,28 @@ public abstract class AbstractCell extends Pixel {
 			ocean.addToOrganicMatterReservoir(organic - props[PROP_ORGANIC]);
 			return;
 		}
-		Water water = (Water) p;
-		byte substances[] = water.getSubstances();
+		byte plane[] = grid.getPlane(Water.CO2);
 		int diff = props[PROP_CO2] * 95 / 100;
-		diff = substances[Water.CO2] + diff > 100 ? 100 - substances[Water.CO2] : diff;
-		substances[Water.CO2] += diff;
+		diff = plane[index] + diff > 100 ? 100 - plane[index] : diff;
+		plane[index] += diff;
 		props[PROP_CO2] -= diff;
 		//
+		plane = grid.getPlane(Water.CaCO3);
 		diff = props[PROP_CaCO3] * 95 / 100;
-		diff = substances[Water.CaCO3] + diff > 100 ? 100 - substances[Water.CaCO3] : diff;
-		substances[Water.CaCO3] += diff;
+		diff = plane[index] + diff > 100 ? 100 - plane[index] : diff;
+		plane[index] += diff;
 		props[PROP_CaCO3] -= diff;
 		//
+		plane = grid.getPlane(Water.H2S);
 		diff = props[PROP_H2S] * 95 / 100;
-		diff = substances[Water.H2S] + diff > 100 ? 100 - substances[Water.H2S] : diff;
-		substances[Water.H2S] += diff;
+		diff = plane[index] + diff > 100 ? 100 - plane[index] : diff;
+		plane[index] += diff;
 		props[PROP_H2S] -= diff;
 		//
+		plane = grid.getPlane(Water.ORGANIC);
 		diff = props[PROP_ORGANIC] * 90 / 100;
-		diff = substances[Water.ORGANIC] + diff > 100 ? 100 - substances[Water.ORGANIC] : diff;
-		substances[Water.ORGANIC] += diff;
+		diff = plane[index] + diff > 100 ? 100 - plane[index] : diff;
+		plane[index] += diff;
 		props[PROP_ORGANIC] -= diff;
 	}
 
@@ -304,14 +364,6 @@ public abstract class AbstractCell extends Pixel {
 	 */
 	public abstract String getCellTypeName();
 
-	/**
-	 * @return the color
-	 */
-	public Color getColor() {
-		
-		return color;
-	}
-	
 	/**
 	 * @return the RGB value of the cells color
 	 */
@@ -337,38 +389,83 @@ public abstract class AbstractCell extends Pixel {
 	}
 
 	/**
-	 * Paint the cell.
+	 * @return the RGB value of the cells color as it is saved, see Organism.getSavedColorRGB()
+	 */
+	private int getSavedColorRGB() {
+
+		return organism != null ? organism.getSavedColorRGB(this) : colorRGB;
+	}
+
+	/**
+	 * Returns the ARGB value to paint the cell, depending on the state of its organism.
+	 * The value is cached until the state or the color of the cell changes.
 	 * 
-	 * @param g2d	the Graphics2D object
+	 * @param state		the state of the organism
+	 * @return the ARGB value
 	 */
-	protected void paint(Graphics2D g2d) {
+	protected int getPaintARGB(OrgState state) {
 		
-		OrgState state = organism.getState();
+		if (state == paintState) {
+			return paintARGB;
+		}
 		switch (state) {
 		case STARVING: 
 		case DYING: 
-			Color stateColor = state.getColor();
-			g2d.setColor(new Color((color.getRed() + stateColor.getRed()) / 2,
-					(color.getBlue() + stateColor.getBlue()) / 2,
-					(color.getGreen() + stateColor.getGreen()) / 2));
+			paintARGB = state.blendARGB(colorRGB);
 			break;
 		case DEAD: 
 		case DECOMPOSING: 
-			g2d.setColor(state.getColor());
+			paintARGB = state.getColorRGB();
 			break;
 		default:
-			g2d.setColor(color);
+			paintARGB = colorRGB;
+		}
+		paintState = state;
+		return paintARGB;
+	}
+
+	/**
+	 * Rasterizes the cell into the organism layer. If the cell has moved or changed its color 
+	 * since the last time, the old and the new dots are marked dirty.
+	 * 
+	 * @param overlay		the organism layer
+	 * @param dirtyRegions	the dirty regions of the ocean image
+	 */
+	protected void rasterize(OrganismOverlay overlay, DirtyRegions dirtyRegions) {
+		
+		int argb = getPaintARGB(organism.getState());
+		if (column != rasterizedColumn || row != rasterizedRow || argb != rasterizedARGB) {
+			if (rasterizedColumn >= 0) {
+				dirtyRegions.markCell(rasterizedColumn, rasterizedRow);
+			}
+			dirtyRegions.markCell(column, row);
+			rasterizedColumn = column;
+			rasterizedRow = row;
+			rasterizedARGB = argb;
 		}
-		g2d.fillRect(column << 1, row << 1, 3, 3);
+		overlay.fillCell(column, row, argb);
 	}
 
 	/**
-	 * @param color the color to set
+	 * The cell has been removed from the ocean: marks the dots it has been rasterized at as dirty.
+	 * 
+	 * @param dirtyRegions	the dirty regions of the ocean image
 	 */
-	public void setColorAndRGB(Color color) {
+	protected void unrasterize(DirtyRegions dirtyRegions) {
 		
-		this.color = color;
-		colorRGB = color.getRGB();
+		if (rasterizedColumn >= 0) {
+			dirtyRegions.markCell(rasterizedColumn, rasterizedRow);
+			rasterizedColumn = -1;
+		}
+	}
+
+	/**
+	 * @param colorRGB the color to set, as RGB value
+	 */
+	public void setColorRGB(int colorRGB) {
+		
+		this.colorRGB = colorRGB;
+		paintState = null;						// paint value has to be computed again
 	}
 
 	/**
@@ -403,9 +500,9 @@ public abstract class AbstractCell extends Pixel {
 	/**
 	 * Slow update for organism changes not needed to be to fast.
 	 * 
-	 * @param time		the current time
+	 * @param tick		the current simulation tick
 	 */
-	protected abstract void slowUpdate(long time);
+	protected abstract void slowUpdate(long tick);
 
 	@Override
 	public String toString() {
@@ -429,7 +526,7 @@ public abstract class AbstractCell extends Pixel {
 
 		jsonObject.put(Keys.CELL, this.getClass().getSimpleName());
 		JsonUtil.addColRowTo(jsonObject, column, row);
-		JsonUtil.addColorTo(jsonObject, colorRGB);
+		JsonUtil.addColorTo(jsonObject, getSavedColorRGB());
 		jsonObject.put(Keys.ENERGY, props[PROP_ENERGY]);
 		jsonObject.put(Keys.ENERGY_CONSUMTION, props[PROP_ENERGY_CONSUMTION]);
 		jsonObject.put(Keys.SUN_BEAM_INCREMENT, props[PROP_SUN_BEAM_INCREMENT]);
@@ -449,4 +546,73 @@ public abstract class AbstractCell extends Pixel {
 		jsonObject.put(Keys.ORGANIC_ADSORBTION_RATE, props[PROP_ORGANIC_ADSORBTION_RATE]);
 		jsonObject.put(Keys.ORGANIC_ADSORB_ENERGY, props[PROP_ORGANIC_ADSORB_ENERGY]);
 	}
+
+	/**
+	 * Writes a cell from its binary snapshot record (see writeTo()) to a JSON stream, 
+	 * the same way as toJSONObject() of the cell.
+	 * 
+	 * @param json			the JSON stream
+	 * @param record		the binary snapshot record of the cell
+	 * @throws IOException on an IO error
+	 */
+	public static void writeJSON(JsonStreamWriter json, DataInput record) throws IOException {
+		
+		String typeName = SimSnapshot.typeNameOf(record.readUnsignedByte());
+		int genomeTypeIndex = record.readUnsignedByte();
+		int column = record.readShort();
+		int row = record.readShort();
+		int rgb = record.readInt();
+		int props[] = new int[record.readUnsignedByte()];
+		for (int i = 0; i < props.length; i++) {
+			props[i] = record.readInt();
+		}
+		json.beginObject();
+		json.key(Keys.CELL).value(typeName);
+		JsonUtil.writeColRow(json, column, row);
+		JsonUtil.writeColor(json, rgb);
+		json.key(Keys.ENERGY).value(props[PROP_ENERGY]);
+		json.key(Keys.ENERGY_CONSUMTION).value(props[PROP_ENERGY_CONSUMTION]);
+		json.key(Keys.SUN_BEAM_INCREMENT).value(props[PROP_SUN_BEAM_INCREMENT]);
+		json.key(Keys.H2S_TO_ENERGY).value(props[PROP_H2S_TO_ENERGY]);
+		json.key(Keys.WEIGHT).value(props[PROP_WEIGHT]);
+		json.key(Keys.AGILITY).value(props[PROP_AGILITY]);
+		json.key(Keys.CO2).value(props[PROP_CO2]);
+		json.key(Keys.CO2_ADSORBTION_RATE).value(props[PROP_CO2_ADSORBTION_RATE]);
+		json.key(Keys.CO2_ADSORB_ENERGY).value(props[PROP_CO2_ADSORB_ENERGY]);
+		json.key(Keys.CaCO3).value(props[PROP_CaCO3]);
+		json.key(Keys.CaCO3_ADSORBTION_RATE).value(props[PROP_CaCO3_ADSORBTION_RATE]);
+		json.key(Keys.CaCO3_ADSORB_ENERGY).value(props[PROP_CaCO3_ADSORB_ENERGY]);
+		json.key(Keys.H2S).value(props[PROP_H2S]);
+		json.key(Keys.H2S_ADSORBTION_RATE).value(props[PROP_H2S_ADSORBTION_RATE]);
+		json.key(Keys.H2S_ADSORB_ENERGY).value(props[PROP_H2S_ADSORB_ENERGY]);
+		json.key(Keys.ORGANIC).value(props[PROP_ORGANIC]);
+		json.key(Keys.ORGANIC_ADSORBTION_RATE).value(props[PROP_ORGANIC_ADSORBTION_RATE]);
+		json.key(Keys.ORGANIC_ADSORB_ENERGY).value(props[PROP_ORGANIC_ADSORB_ENERGY]);
+		if (genomeTypeIndex != 0) {
+			json.key(Keys.GENOME);
+			Genome.writeJSON(json, SimSnapshot.typeNameOf(genomeTypeIndex));
+		}
+		json.endObject();
+	}
+
+	/**
+	 * Writes this cell as binary snapshot record: type, genome type, column, row, color 
+	 * and the raw props. Any change needs a review of createFrom(DataInput, Organism, SimSnapshot).
+	 * 
+	 * @param out			the output of the snapshot
+	 * @throws IOException on an IO error
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		
+		Genome genome = this instanceof StemCellCarrier ? ((StemCellCarrier) this).getGenome() : null;
+		out.writeByte(SimSnapshot.typeIndexOf(this.getClass().getSimpleName()));
+		out.writeByte(genome == null ? 0 : SimSnapshot.typeIndexOf(genome.getClass().getSimpleName()));
+		out.writeShort(column);
+		out.writeShort(row);
+		out.writeInt(getSavedColorRGB());
+		out.writeByte(props.length);
+		for (int i = 0; i < props.length; i++) {
+			out.writeInt(props[i]);
+		}
+	}
 }
@@ -16,6 +16,7 @@
  */
 package cellolution.cell;
 
+import java.io.*;
 import java.util.*;
 
 import org.json.*;
@@ -81,8 +82,18 @@ public abstract class Genome {
 		if (!jsonGenome.has(Keys.GENOME)) {
 			return null;
 		}
+		return createFrom(jsonGenome.getString(Keys.GENOME));
+	}
+
+	/**
+	 * Creates a genome from its class name.
+	 * 
+	 * @param className				the simple class name of the genome
+	 * @return the genome
+	 */
+	public static Genome createFrom(String className) {
+		
 		Genome genome = null;
-		String className = jsonGenome.getString(Keys.GENOME);
 		switch (className) {
 		case SimpleSingleCellGenome.CLASS_NAME: 
 			genome = new SimpleSingleCellGenome();
@@ -208,4 +219,19 @@ public abstract class Genome {
 		jsonGenome.put("TODO", "TODO");
 		return jsonGenome;
 	}
+
+	/**
+	 * Writes a genome to a JSON stream, the same way as toJSONObject().
+	 * 
+	 * @param json			the JSON stream
+	 * @param typeName		the simple class name of the genome
+	 * @throws IOException on an IO error
+	 */
+	public static void writeJSON(JsonStreamWriter json, String typeName) throws IOException {
+
+		json.beginObject();
+		json.key(Keys.GENOME).value(typeName);
+		json.key("TODO").value("TODO");
+		json.endObject();
+	}
 }
@@ -58,14 +58,14 @@ public class Mover {
 	 */
 	public static boolean canMoveDueToRocks(Organism organism, int minColumn, int maxColumn, int minRow, int maxRow) {
 		
-		Pixel pixels[][] = Main.getOcean().getPixels();
+		OceanGrid grid = Main.getOcean().getGrid();
 		int direction = organism.getProperty(Organism.PROP_DIRECTION);
 		// 180 .. 360 degrees, left side
 		int col = minColumn - 1;
 		if (direction >= 180) {			
 			col = col < 0 ? 0 : col;
 			for (int row = minRow; row <= maxRow; row++) {
-				if (!(pixels[col][row] instanceof Water)) {
+				if (!grid.isWater(col, row)) {
 					return false;
 				}
 			}
@@ -73,9 +73,9 @@ public class Mover {
 		// 0 .. 180 degrees, right side
 		col = maxColumn + 1;
 		if (direction <= 180) {			
-			col = col < Main.getCellColumns() ? col : Main.getCellColumns();
+			col = col < grid.getCellColumns() ? col : grid.getCellColumns() - 1;
 			for (int row = minRow; row <= maxRow; row++) {
-				if (!(pixels[col][row] instanceof Water)) {
+				if (!grid.isWater(col, row)) {
 					return false;
 				}
 			}
@@ -83,9 +83,9 @@ public class Mover {
 		// 90 .. 270 degrees, bottom
 		if (direction >= 90 && direction <= 270) {			
 			int row = maxRow + 1;
-			row = row < Main.getCellRows() ? row : Main.getCellRows();
+			row = row < grid.getCellRows() ? row : grid.getCellRows() - 1;
 			for (col = minColumn; col <= maxColumn; col++) {
-				if (!(pixels[col][row] instanceof Water)) {
+				if (!grid.isWater(col, row)) {
 					return false;
 				}
 			}
@@ -97,7 +97,7 @@ public class Mover {
 				return false;
 			}
 			for (col = minColumn; col <= maxColumn; col++) {
-				if (!(pixels[col][row] instanceof Water)) {
+				if (!grid.isWater(col, row)) {
 					return false;
 				}
 			}
@@ -116,8 +116,9 @@ public class Mover {
 	 */
 	public static int moveAndTurnWithBrownianMovement(Organism organism) {
 
+		FastRandom random = FastRandom.get(FastRandom.Stream.MOTION);
 		int cellCount = organism.getCellCount();
-		if (cellCount > 2 && FastRandom.nextIntStat(cellCount) == 0) {
+		if (cellCount > 2 && random.nextInt(cellCount) == 0) {
 			// bigger cells have less brownian movement
 			return 0;
 		}
@@ -126,21 +127,21 @@ public class Mover {
 		int weight = organism.getProperty(Organism.PROP_WEIGHT);
 		// speed an direction reduction: bigger organisms are less influenced by brownian movement
 		int reduction = cellCount < 7 ? cellCount / 2 + 1 : cellCount / 3 + 2; 
-		if (speed == 0 && FastRandom.nextIntStat(weight) > 10000) {
+		if (speed == 0 && random.nextInt(weight) > 10000) {
 			// for simplicity in Cellolution: sometimes the weight will influence more than the brownian movement
 			speed = 1;
-			direction = 170 + FastRandom.nextIntStat(21);		// down
+			direction = 170 + random.nextInt(21);		// down
 		} else {
 			// brownian movement
-			int brownianSpeed = FastRandom.nextIntStat(2) / (FastRandom.nextIntStat(reduction) + 1);
+			int brownianSpeed = random.nextInt(2) / (random.nextInt(reduction) + 1);
 			if (brownianSpeed != 0 && brownianSpeed != 0) {
 				if (speed < BROWNIAN_SPEED_MAX) {
 					// slow, brownian movement dominates
-					direction = FastRandom.nextIntStat(360);
+					direction = random.nextInt(360);
 					speed += brownianSpeed;
 				} else {
 					// browning speed is not important, but the direction may change
-					int brownianDirection = -20 + FastRandom.nextIntStat(41);
+					int brownianDirection = -20 + random.nextInt(41);
 					direction = adjustDegrees(direction + brownianDirection);
 				}
 				organism.setProperty(Organism.PROP_DIRECTION, direction);
@@ -178,9 +179,10 @@ public class Mover {
 	public static void move(Organism organism, int stepsToGo) {
 		
         int direction = organism.getProperty(Organism.PROP_DIRECTION);
+        OrganismMgr organismMgr = Main.getOcean().getOrganismMgr();
 		for (int step = 0; step < stepsToGo; step++) {
 			organism.getCells().forEach(cell -> {
-				cell.move(direction);
+				organismMgr.moveCell(organism, cell, direction);		// also updates the occupied pixels
 			});
 		}
 		
@@ -189,50 +191,23 @@ public class Mover {
 	}
 
 	/**
-	 * Find the neighbor pixel of a pixel by its number (see Pixel or Ocean comment, 1 is top right).
+	 * Find the neighbor pixel of a pixel by its number (see Pixel or HexGrid comment, 1 is top right).
+	 * If the neighbor is outside of the ocean, the mirrored neighbor is taken (e.g. at the surface 
+	 * there is nothing above, below is chosen instead).
 	 * 
 	 * @param pixel				the pixel to find a neighbor
 	 * @param neighborNr		the number of the neighbor (hexagon definition)
-	 * @param pixels			the pixels of the ocean
+	 * @param grid				the grid of the ocean pixels
 	 * @return the neighbor pixel defined by the neighbor number [1..6]
 	 */
-	public static Pixel neighbor(Pixel pixel, int neighborNr, Pixel[][] pixels) {
+	public static Pixel neighbor(Pixel pixel, int neighborNr, OceanGrid grid) {
 		
-		int col = pixel.getColumn();
-		int row = pixel.getRow();
-//		int rowAbove = row - 1;
-//		int rowBelow = row + 1;
-		int colAboveBelowLeft = (col & 1) == 0 ? col - 1 : col;		// (col & 1) == 0 ? even : odd
-		int colAboveBelowRight = colAboveBelowLeft + 1;
-		switch (neighborNr) {
-		case 1: 
-			// neighbor above right
-			if (row == 0) {
-				// at the surface, there is nothing above, choose below right instead
-				return pixels[colAboveBelowRight][row + 1];
-			}
-			return pixels[colAboveBelowRight][row - 1];
-		case 2: 
-			// neighbor to the right
-			return pixels[col + 1][row];
-		case 3: 
-			// neighbor below right
-			return pixels[colAboveBelowRight][row + 1];
-		case 4: 
-			// neighbor below left
-			return pixels[colAboveBelowLeft][row + 1];
-		case 5: 
-			// neighbor to the left
-			return pixels[col - 1][row];
-		case 6: 
-			// neighbor above left
-			if (row == 0) {
-				// at the surface, there is nothing above, choose below left instead
-				return pixels[colAboveBelowLeft][row + 1];
-			}
-			return pixels[colAboveBelowLeft][row - 1];				// TODO:  Index -1 out of bounds for length 450
-		default:
+		if (neighborNr < 1 || neighborNr > HexGrid.NEIGHBOR_COUNT) {
 			throw new IllegalArgumentException("Unexpected value: " + neighborNr);
 		}
+		int col = pixel.getColumn();
+		int row = pixel.getRow();
+		neighborNr = grid.getHexGrid().neighborNrInside(col, row, neighborNr);
+		return grid.getPixel(HexGrid.neighborColumn(col, neighborNr), HexGrid.neighborRow(row, neighborNr));
 	}
 }
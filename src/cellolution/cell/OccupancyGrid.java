@@ -0,0 +1,129 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.cell;
+
+import cellolution.*;
+
+/**
+ * The occupancy of the ocean pixels by the cells of the organisms within the ocean: for each pixel 
+ * the number of cells on it and one of the organisms. It answers hasCellOn() and getOrganismAt() 
+ * in constant time, instead of testing all organisms.
+ * 
+ * The occupancy is maintained by the OrganismMgr: adding and removing organisms, adding and removing 
+ * cells of organisms within the ocean and moving cells.
+ * Organisms may overlap, therefore a pixel may have more than one cell on it.
+ */
+public class OccupancyGrid {
+
+	/** the manager for all organisms */
+	private OrganismMgr organismMgr;
+	/** all pixels of the ocean */
+	private OceanGrid grid;
+	/** the topology of the ocean, for bounds checking */
+	private HexGrid hexGrid;
+	/** the number of cells on each pixel */
+	private short cellCounts[];
+	/** one of the organisms having a cell on a pixel, null if there is none */
+	private Organism occupants[];
+
+	/**
+	 * @param organismMgr		the manager for all organisms
+	 * @param grid				all pixels of the ocean
+	 */
+	public OccupancyGrid(OrganismMgr organismMgr, OceanGrid grid) {
+
+		this.organismMgr = organismMgr;
+		this.grid = grid;
+		hexGrid = grid.getHexGrid();
+		cellCounts = new short[grid.getSize()];
+		occupants = new Organism[grid.getSize()];
+	}
+
+	/**
+	 * Returns an organism having a cell on the given column and row.
+	 * 
+	 * @param col			the column
+	 * @param row			the row
+	 * @return an organism having a cell on the given column and row, or null if there is none
+	 */
+	public Organism getOrganismAt(int col, int row) {
+
+		if (!hexGrid.contains(col, row)) {
+			return null;
+		}
+		return occupants[grid.index(col, row)];
+	}
+
+	/**
+	 * Test if any organism has a cell on the given column and row.
+	 * 
+	 * @param col			the column
+	 * @param row			the row
+	 * @return true if there is a cell on the given column and row, false otherwise
+	 */
+	public boolean hasCellOn(int col, int row) {
+
+		if (!hexGrid.contains(col, row)) {
+			return false;
+		}
+		return cellCounts[grid.index(col, row)] > 0;
+	}
+
+	/**
+	 * A cell of an organism occupies a pixel.
+	 * 
+	 * @param organism		the organism
+	 * @param col			the column of the cell
+	 * @param row			the row of the cell
+	 */
+	public void occupy(Organism organism, int col, int row) {
+
+		if (!hexGrid.contains(col, row)) {
+			return;
+		}
+		int index = grid.index(col, row);
+		cellCounts[index]++;
+		if (occupants[index] == null) {
+			occupants[index] = organism;
+		}
+	}
+
+	/**
+	 * A cell of an organism releases a pixel (the cell has been moved or removed).
+	 * 
+	 * @param organism		the organism
+	 * @param col			the column of the cell before
+	 * @param row			the row of the cell before
+	 */
+	public void release(Organism organism, int col, int row) {
+
+		if (!hexGrid.contains(col, row)) {
+			return;
+		}
+		int index = grid.index(col, row);
+		if (cellCounts[index] <= 0) {
+			return;
+		}
+		cellCounts[index]--;
+		if (cellCounts[index] == 0) {
+			occupants[index] = null;
+		} else if (occupants[index] == organism) {
+			// overlapping organisms (rare): find the other one
+			occupants[index] = organismMgr.findOrganismWithCellOn(col, row);
+		}
+	}
+}
@@ -47,6 +47,13 @@ public enum OrgState {
 
 	/** the color of the state, if any: sometimes it is computed */
 	private Color color;
+	/** the RGB value of the color of the state, 0 if there is no color */
+	private int colorRGB;
+	/** 
+	 * lookup table to blend a cell color with the color of the state: indexed by channel * 256 + channel value, 
+	 * the values are already shifted to their position within the ARGB value, null if there is no color
+	 */
+	private int blend[];
 
 	/**
 	 * Construction of one of the states.
@@ -56,6 +63,32 @@ public enum OrgState {
 	OrgState(Color colorRGB) {
 		
 		this.color = colorRGB;
+		if (color != null) {
+			this.colorRGB = color.getRGB();
+			// green and blue are swapped intentionally: the blended colors look more like "decay"
+			int stateChannels[] = {color.getRed(), color.getBlue(), color.getGreen()};
+			int shifts[] = {16, 8, 0};
+			blend = new int[3 * 256];
+			for (int channel = 0; channel < 3; channel++) {
+				for (int value = 0; value < 256; value++) {
+					blend[channel * 256 + value] = ((value + stateChannels[channel]) / 2) << shifts[channel];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Blends a cell color with the color of this state, without allocating any objects.
+	 * Must not be called for states without a color.
+	 * 
+	 * @param rgb		the RGB value of the cell
+	 * @return the blended ARGB value (opaque)
+	 */
+	public int blendARGB(int rgb) {
+		
+		return 0xff000000 | blend[(rgb >> 16) & 0xff] 
+				| blend[256 + (rgb & 0xff)]	
+				| blend[512 + ((rgb >> 8) & 0xff)];
 	}
 
 	/**
@@ -65,5 +98,12 @@ public enum OrgState {
 		
 		return color;
 	}
-}
 
+	/**
+	 * @return the RGB value of the color, 0 if the state has no color
+	 */
+	public int getColorRGB() {
+		
+		return colorRGB;
+	}
+}
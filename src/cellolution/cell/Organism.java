@@ -16,13 +16,12 @@
  */
 package cellolution.cell;
 
-import java.awt.*;
+import java.io.*;
 import java.util.*;
 
 import org.json.*;
 
 import cellolution.*;
-import cellolution.ui.*;
 import cellolution.util.*;
 
 /**
@@ -88,6 +87,8 @@ public class Organism {
 	private int decomposeCount;
 	/** the (average) amount of organic matter collected by this organism (needed for replication) */
 	private int organicAmount;
+	/** true if the organism has been added to the ocean (its cells occupy pixels), see OrganismMgr */
+	private boolean isInOcean;
 
 	/**
 	 * Create a new organism.
@@ -161,6 +162,7 @@ public class Organism {
 		
 		cells.add(cell);
 		outerCells.add(cell);
+		organismMgr.cellAdded(this, cell);
 	}
 
 	/**
@@ -337,6 +339,21 @@ public class Organism {
 		return dimColMax > dimRowMax ? dimColMax : dimRowMax;
 	}
 
+	/**
+	 * Returns the distance of a pixel to the outline of this organism: the maximum of the 
+	 * distances in columns and rows, zero if the pixel is within the outline.
+	 * 
+	 * @param col				the column of the pixel
+	 * @param row				the row of the pixel
+	 * @return the distance of the pixel
+	 */
+	public int distanceTo(int col, int row) {
+		
+		int colDistance = col < minColumn ? minColumn - col : (col > maxColumn ? col - maxColumn : 0);
+		int rowDistance = row < minRow ? minRow - row : (row > maxRow ? row - maxRow : 0);
+		return colDistance > rowDistance ? colDistance : rowDistance;
+	}
+
 	/**
 	 * @return the energy of the organism
 	 */
@@ -345,6 +362,38 @@ public class Organism {
 		return props[PROP_ENERGY];
 	}
 
+	/**
+	 * @return the maximum column of the outline of this organism
+	 */
+	public int getMaxColumn() {
+		
+		return maxColumn;
+	}
+
+	/**
+	 * @return the maximum row of the outline of this organism
+	 */
+	public int getMaxRow() {
+		
+		return maxRow;
+	}
+
+	/**
+	 * @return the minimum column of the outline of this organism
+	 */
+	public int getMinColumn() {
+		
+		return minColumn;
+	}
+
+	/**
+	 * @return the minimum row of the outline of this organism
+	 */
+	public int getMinRow() {
+		
+		return minRow;
+	}
+
 	/**
 	 * @return the number of this organism
 	 */
@@ -370,6 +419,49 @@ public class Organism {
 		return props[propertyIndex];
 	}
 	
+	/**
+	 * Returns the cells as they are saved: the narrowing cell of a replication is not saved, 
+	 * the same way as after revertReplication(), but without changing the organism.
+	 * 
+	 * @return the cells to save
+	 */
+	public ArrayList<AbstractCell> getSavedCells() {
+		
+		if (!isSavedReverted()) {
+			return cells;
+		}
+		ArrayList<AbstractCell> savedCells = new ArrayList<>(cells.size());
+		for (int i = 0; i < cells.size(); i++) {
+			AbstractCell cell = cells.get(i);
+			if (replication.isSaved(cell)) {
+				savedCells.add(cell);
+			}
+		}
+		return savedCells;
+	}
+
+	/**
+	 * Returns the color of a cell as it is saved, the same way as after revertReplication().
+	 * 
+	 * @param cell			a cell of this organism
+	 * @return the RGB color of the cell to save
+	 */
+	int getSavedColorRGB(AbstractCell cell) {
+		
+		return isSavedReverted() ? replication.getSavedColorRGB(cell) : cell.getColorRGB();
+	}
+
+	/**
+	 * Returns the state as it is saved: an organism in replication is saved as ALIVE, 
+	 * the same way as after revertReplication(), but without changing the organism.
+	 * 
+	 * @return the state to save
+	 */
+	public OrgState getSavedState() {
+		
+		return isSavedReverted() ? OrgState.ALIVE : state;
+	}
+
 	/**
 	 * @return the state
 	 */
@@ -399,7 +491,9 @@ public class Organism {
 	}
 
 	/**
-	 * Return true if there is enough space around this organism, false otherwise.
+	 * Return true if there is enough space around this organism, false otherwise. 
+	 * The own cells of this organism do not take space (e.g. the bridge cell of a replication 
+	 * outside the bounds of the organism until its next move).
 	 * 
 	 * @param distance		the distance of free space around the organism
 	 * @return true if there is enough space around this organism, false otherwise
@@ -409,7 +503,7 @@ public class Organism {
 		int colMin, colMax, rowMin, rowMax;
 		int cellColumns = Main.getCellColumns();
 		int cellRows = Main.getCellRows();
-		Ocean ocean =  Main.getOcean();
+		OceanGrid grid = Main.getOcean().getGrid();
 		for (int i = 1; i <= distance; i++) {
 			// north
 			colMin = minColumn - i;
@@ -421,12 +515,12 @@ public class Organism {
 			rowMax = maxRow + i;
 			rowMax = rowMax < cellRows ? rowMax : cellRows - 1;
 			for (int col = colMin; col <= colMax; col++) {
-				if (!ocean.isWater(col, rowMin) || !ocean.isWater(col, rowMax)) {
+				if (!isFreeFor(grid, col, rowMin) || !isFreeFor(grid, col, rowMax)) {
 					return false;
 				}
 			}
 			for (int row = rowMin; row <= rowMax; row++) {
-				if (!ocean.isWater(colMin, row) || !ocean.isWater(colMax, row)) {
+				if (!isFreeFor(grid, colMin, row) || !isFreeFor(grid, colMax, row)) {
 					return false;
 				}
 			}
@@ -434,6 +528,31 @@ public class Organism {
 		return true;
 	}
 
+	/**
+	 * Return true if a pixel is water and not a cell of another organism, false otherwise.
+	 * 
+	 * @param grid			all pixels of the ocean
+	 * @param col			the column of the pixel
+	 * @param row			the row of the pixel
+	 * @return true if the pixel is free for this organism, false otherwise
+	 */
+	private boolean isFreeFor(OceanGrid grid, int col, int row) {
+
+		if (!grid.isWater(col, row)) {
+			return false;
+		}
+		Organism occupant = organismMgr.getOrganismAt(col, row);
+		return occupant == null || occupant == this;
+	}
+
+	/**
+	 * @return true if the organism has been added to the ocean, false otherwise
+	 */
+	public boolean isInOcean() {
+		
+		return isInOcean;
+	}
+
 	/**
 	 * Returns true, if the organism is touched, false otherwise.
 	 * 
@@ -445,24 +564,17 @@ public class Organism {
 	 */
 	public boolean isTouched(int left, int right, int top, int bottom) {
 		
-		for (int col = left; col <= right; col++) {
-			for (int row = top; row <= bottom; row++) {
-				if (col < minColumn || col > maxColumn || row < minRow || row > maxRow) {
-					continue;
-				}
-				return true;
-			}
-		}
-		return false;
+		// the rectangle and the outline overlap
+		return left <= maxColumn && right >= minColumn && top <= maxRow && bottom >= minRow;
 	}
 
 	/**
 	 * Move this organism if it is moveable, either due to speed or Brownian movement.
 	 * Rocks will stop the speed, maybe some bouncing will happen.
 	 * 
-	 * @param time		the current time
+	 * @param tick		the current simulation tick
 	 */
-	public void move(long time) {
+	public void move(long tick) {
 		
 		if (props[PROP_MOVEABLE] == 0) {
 			// agglutinated organism, does not move
@@ -473,7 +585,7 @@ public class Organism {
 		case DECOMPOSING: 
 		case DEAD: 
 			// sink a little from time to time, or do some Brownian movement
-			if (FastRandom.nextIntStat(5) == 0) {
+			if (FastRandom.get(FastRandom.Stream.MOTION).nextInt(5) == 0) {
 				props[Organism.PROP_DIRECTION] = 180;		// down
 			} else {
 				Mover.moveAndTurnWithBrownianMovement(this);
@@ -496,6 +608,7 @@ public class Organism {
 			Mover.move(this, 1);
 			computeMaxMin();
 		}
+		organismMgr.outlineChanged(this);
 	}
 
 	/**
@@ -506,35 +619,34 @@ public class Organism {
 		if (state == OrgState.DEAD || state == OrgState.DECOMPOSING) {
 			return;				// nothing to do
 		}
-		Pixel pixels[][] = Main.getOcean().getPixels();
+		OceanGrid grid = Main.getOcean().getGrid();
 		outerCells.forEach(cell -> {
-			Pixel p = pixels[cell.getColumn()][cell.getRow()];
-			if (!(p instanceof Water)) {
+			int index = grid.index(cell.getColumn(), cell.getRow());
+			if (!grid.isWater(index)) {
 				return;
 			}
-			cell.adsorbSustances(((Water) p).getSubstances());
+			cell.adsorbSustances(grid.getPlanes(), index);
 		});
 	}
 
 	/**
-	 * Paint this organism.
+	 * Captures this organism into a render snapshot: the cells are rasterized into the organism layer, 
+	 * a marked organism gets a marker.
 	 * 
-	 * @param g2d			the Graphics2D object
+	 * @param snapshot		the render snapshot
+	 * @param dirtyRegions	the dirty regions of the ocean image
 	 */
-	public void paint(Graphics2D g2d) {
+	public void capture(RenderSnapshot snapshot, DirtyRegions dirtyRegions) {
 		
-		cells.forEach(cell -> {
-			cell.paint(g2d);
-		});
+		OrganismOverlay overlay = snapshot.getOverlay();
+		for (int i = 0; i < cells.size(); i++) {
+			cells.get(i).rasterize(overlay, dirtyRegions);
+		}
 		// possibly we have to draw an arc around the organism to mark it
-		if (displayPositionCount != 0) {
-			if (state != OrgState.ALIVE) {
-				g2d.setColor(state.getColor());
-			}
-			int x = getCenterX();
-			int y =getCenterY();
-			g2d.drawArc(x -  OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS + 1, y - OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS + 1, 
-					OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS * 2, OrganismDisplayCtlr.DISPLAY_CROSS_RADIUS * 2, 0, 360);
+		if (displayPositionCount != 0 && !cells.isEmpty()) {
+			// in the state color, if any, otherwise in the color of the last cell
+			int argb = state.getColorRGB() != 0 ? state.getColorRGB() : cells.get(cells.size() - 1).getPaintARGB(state);
+			snapshot.addMarker(getCenterX(), getCenterY(), argb);
 		}
 	}
 
@@ -553,6 +665,24 @@ public class Organism {
 		}
 	}
 
+	/**
+	 * @return true if the organism is saved as if its replication has been reverted
+	 */
+	private boolean isSavedReverted() {
+		
+		return state == OrgState.IN_REPLICATION && replication != null;
+	}
+
+	/**
+	 * Sets the flag whether the organism has been added to the ocean, called by the OrganismMgr only.
+	 * 
+	 * @param isInOcean		true if the organism has been added to the ocean
+	 */
+	void setInOcean(boolean isInOcean) {
+		
+		this.isInOcean = isInOcean;
+	}
+
 	/**
 	 * @param propertyIndex		the index of the property	
 	 * @param value				the value of the property
@@ -591,9 +721,9 @@ public class Organism {
 	/**
 	 * Slow update for this organism: changes not in the need to be to fast (due to performance reasons).
 	 * 
-	 * @param time			the current time
+	 * @param tick			the current simulation tick
 	 */
-	public void slowUpdate(long time) {
+	public void slowUpdate(long tick) {
 		
 		try {
 			if (displayPositionCount > 0) {
@@ -613,7 +743,7 @@ public class Organism {
 				changeToState(state);
 				break;						// do the usual computation
 			case IN_REPLICATION:
-				replication.nextStep(time);
+				replication.nextStep(tick);
 				return;
 			case GROWING:					// the replicated one, waiting for ALIVE
 				return;
@@ -625,14 +755,14 @@ public class Organism {
 				throw new IllegalArgumentException("Unexpected value: " + state);
 			}
 			Ocean ocean = Main.getOcean();
-			Pixel pixels[][] = ocean.getPixels();
+			OceanGrid grid = ocean.getGrid();
 			// energy
 			int sumEnergy = 0;
 			for (AbstractCell cell : cells) {
 				int cellProps[] = cell.getProperties();
 				// if the cell is almost full of energy, some of the energy is passed to the organism
 				sumEnergy += cellProps[AbstractCell.PROP_ENERGY];
-				cell.slowUpdate(time);
+				cell.slowUpdate(tick);
 				
 				// TODO sunintensity gehört in Algen-Cell (oder in Organism wenn der solche enthält)
 
@@ -668,7 +798,7 @@ public class Organism {
 			} else if (energy > 50000 && organicAmount > 3000) {
 				// cell division and replication of the organism -> result: 2 organisms
 				changeToState(OrgState.IN_REPLICATION);
-				replication = new Replication(this, organismMgr, cells, ocean, pixels, time);
+				replication = new Replication(this, organismMgr, cells, ocean, grid, tick);
 			} else {
 				// alive or changed to alive
 				if (lastState != OrgState.ALIVE) {
@@ -692,7 +822,7 @@ public class Organism {
 		
 		// !!! Note: any change needs a review of OrganismMgr.addOrganismFrom(JSONObject)
 		JSONObject jsonOrg = new JSONObject();
-		jsonOrg.put(Keys.ORGANISM_STATE, state);
+		jsonOrg.put(Keys.ORGANISM_STATE, getSavedState());
 		jsonOrg.put(Keys.LAST_STATE, lastState);			// may be null: if so, no JSON entry
 		jsonOrg.put(Keys.ENERGY, props[PROP_ENERGY]);
 		jsonOrg.put(Keys.WEIGHT, props[PROP_WEIGHT]);
@@ -701,7 +831,7 @@ public class Organism {
 		jsonOrg.put(Keys.DECOMPOSE_COUNT, decomposeCount);
 		// ignore organicAmount (computed)
 		JSONArray jsonCells = new JSONArray();
-		for (AbstractCell cell : cells) {
+		for (AbstractCell cell : getSavedCells()) {
 			jsonCells.put(cell.toJSONObject());
 		}
 		jsonOrg.put(Keys.CELLS, jsonCells);
@@ -719,6 +849,67 @@ public class Organism {
 		return jsonOrg;
 	}
 
+	/**
+	 * Writes an organism from its binary snapshot record (see writeTo()) to a JSON stream, 
+	 * the same way as toJSONObject(). The record is captured at a tick boundary, therefore 
+	 * writing it does not need the organism, e.g. on the background thread of the Autosave.
+	 * 
+	 * @param json			the JSON stream
+	 * @param record		the binary snapshot record of the organism
+	 * @throws IOException on an IO error
+	 */
+	public static void writeJSON(JsonStreamWriter json, DataInput record) throws IOException {
+		
+		// !!! Note: any change needs a review of OrganismMgr.addOrganismFrom(JSONObject)
+		OrgState savedState = OrgState.values()[record.readByte()];
+		int lastStateIndex = record.readByte();
+		int decomposeCount = record.readInt();
+		int props[] = new int[record.readUnsignedByte()];
+		for (int i = 0; i < props.length; i++) {
+			props[i] = record.readInt();
+		}
+		json.beginObject();
+		json.key(Keys.ORGANISM_STATE).value(savedState);
+		if (lastStateIndex >= 0) {
+			json.key(Keys.LAST_STATE).value(OrgState.values()[lastStateIndex]);
+		}
+		json.key(Keys.ENERGY).value(props[PROP_ENERGY]);
+		json.key(Keys.WEIGHT).value(props[PROP_WEIGHT]);
+		json.key(Keys.MOVEABLE).value(props[PROP_MOVEABLE]);
+		json.key(Keys.DECOMPOSE_COUNT).value(decomposeCount);
+		int cellCount = record.readUnsignedShort();
+		json.key(Keys.CELLS).beginArray(cellCount);
+		for (int i = 0; i < cellCount; i++) {
+			AbstractCell.writeJSON(json, record);
+		}
+		json.endArray();
+		json.endObject();
+	}
+
+	/**
+	 * Writes this organism as binary snapshot record: state, last state, decompose count, 
+	 * the raw props and the cells. 
+	 * Any change needs a review of OrganismMgr.addOrganismFrom(DataInput, SimSnapshot).
+	 * 
+	 * @param out			the output of the snapshot
+	 * @throws IOException on an IO error
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		
+		out.writeByte(getSavedState().ordinal());
+		out.writeByte(lastState == null ? -1 : lastState.ordinal());
+		out.writeInt(decomposeCount);
+		out.writeByte(props.length);
+		for (int i = 0; i < props.length; i++) {
+			out.writeInt(props[i]);
+		}
+		ArrayList<AbstractCell> savedCells = getSavedCells();
+		out.writeShort(savedCells.size());
+		for (int i = 0; i < savedCells.size(); i++) {
+			savedCells.get(i).writeTo(out);
+		}
+	}
+
 	@Override
 	public String toString() {
 		String s = "\nOrganism [state=" + state + ", minColumn=" + minColumn + ", maxColumn=" + maxColumn + ", minRow="
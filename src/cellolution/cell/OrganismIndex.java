@@ -0,0 +1,205 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.cell;
+
+import java.util.*;
+
+/**
+ * A spatial index of the organisms within the ocean: the ocean is divided into square buckets, 
+ * each bucket contains the organisms with an outline (minColumn..maxColumn, minRow..maxRow) 
+ * touching the bucket. The index is updated incrementally if an organism is added, removed or 
+ * its outline has changed (e.g. after moving).
+ * 
+ * It supports the lookup of the nearest organism and of all organisms within a rectangle. 
+ * The distance of an organism is the number of steps in columns or rows to its outline 
+ * (the maximum of both, like squares growing around a pixel).
+ * The methods are synchronized, the index may be queried by the GUI.
+ */
+public class OrganismIndex {
+
+	/** the size of a bucket in columns and rows */
+	public static final int BUCKET_SIZE = 16;
+
+	/** the number of bucket columns */
+	private int bucketColumns;
+	/** the number of bucket rows */
+	private int bucketRows;
+	/** the organisms of the buckets, column major: bucketColumn * bucketRows + bucketRow */
+	private ArrayList<Organism> buckets[];
+	/** the bucket range of each indexed organism: minimum/maximum bucket column, minimum/maximum bucket row */
+	private HashMap<Organism, int[]> bucketRanges;
+
+	/**
+	 * @param cellColumns		the number of columns of the ocean
+	 * @param cellRows			the number of rows of the ocean
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public OrganismIndex(int cellColumns, int cellRows) {
+
+		bucketColumns = (cellColumns + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		bucketRows = (cellRows + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		buckets = new ArrayList[bucketColumns * bucketRows];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new ArrayList<>();
+		}
+		bucketRanges = new HashMap<>();
+	}
+
+	/**
+	 * Adds or removes an organism to or from a range of buckets.
+	 * 
+	 * @param organism		the organism
+	 * @param range			the bucket range
+	 * @param isAdding		true to add, false to remove
+	 */
+	private void addOrRemove(Organism organism, int range[], boolean isAdding) {
+
+		for (int bucketCol = range[0]; bucketCol <= range[1]; bucketCol++) {
+			for (int bucketRow = range[2]; bucketRow <= range[3]; bucketRow++) {
+				ArrayList<Organism> bucket = buckets[bucketCol * bucketRows + bucketRow];
+				if (isAdding) {
+					bucket.add(organism);
+				} else {
+					bucket.remove(organism);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the bucket column or row of a column or row, limited to the index.
+	 * 
+	 * @param colOrRow			the column or row
+	 * @param bucketCount		the number of bucket columns or rows
+	 * @return the bucket column or row
+	 */
+	private static int bucket(int colOrRow, int bucketCount) {
+
+		int bucket = colOrRow / BUCKET_SIZE;
+		return colOrRow < 0 ? 0 : (bucket < bucketCount ? bucket : bucketCount - 1);
+	}
+
+	/**
+	 * Finds the nearest organism of a pixel, if several organisms have the same distance 
+	 * the one with the lowest number is chosen.
+	 * 
+	 * @param col				the column of the pixel
+	 * @param row				the row of the pixel
+	 * @param maxDistance		the maximum distance of the organism
+	 * @return the nearest organism, or null if there is none within the maximum distance
+	 */
+	public synchronized Organism findNearest(int col, int row, int maxDistance) {
+
+		int centerCol = bucket(col, bucketColumns);
+		int centerRow = bucket(row, bucketRows);
+		Organism nearest = null;
+		int nearestDistance = Integer.MAX_VALUE;
+		// search the buckets in rings around the bucket of the pixel
+		for (int ring = 0; ; ring++) {
+			int left = centerCol - ring;
+			int right = centerCol + ring;
+			int top = centerRow - ring;
+			int bottom = centerRow + ring;
+			if (left < 0 && top < 0 && right >= bucketColumns && bottom >= bucketRows) {
+				break;					// all buckets searched
+			}
+			for (int bucketCol = Math.max(left, 0); bucketCol <= Math.min(right, bucketColumns - 1); bucketCol++) {
+				boolean isLeftOrRight = bucketCol == left || bucketCol == right;
+				for (int bucketRow = Math.max(top, 0); bucketRow <= Math.min(bottom, bucketRows - 1); bucketRow++) {
+					if (!isLeftOrRight && bucketRow != top && bucketRow != bottom) {
+						continue;		// inside the ring, already searched
+					}
+					for (Organism organism : buckets[bucketCol * bucketRows + bucketRow]) {
+						int distance = organism.distanceTo(col, row);
+						if (distance < nearestDistance || (distance == nearestDistance 
+								&& organism.getNumber() < nearest.getNumber())) {
+							nearest = organism;
+							nearestDistance = distance;
+						}
+					}
+				}
+			}
+			// organisms in the next ring are at least ring * BUCKET_SIZE + 1 away
+			if (ring * BUCKET_SIZE >= Math.min(nearestDistance, maxDistance)) {
+				break;
+			}
+		}
+		return nearestDistance <= maxDistance ? nearest : null;
+	}
+
+	/**
+	 * Finds all organisms with an outline touching a rectangle.
+	 * 
+	 * @param left				the left side column
+	 * @param right				the right side column
+	 * @param top				the top row
+	 * @param bottom			the bottom row
+	 * @return the organisms touching the rectangle
+	 */
+	public synchronized ArrayList<Organism> findOrganismsIn(int left, int right, int top, int bottom) {
+
+		ArrayList<Organism> found = new ArrayList<>();
+		Set<Organism> foundSet = new HashSet<>();
+		for (int bucketCol = bucket(left, bucketColumns); bucketCol <= bucket(right, bucketColumns); bucketCol++) {
+			for (int bucketRow = bucket(top, bucketRows); bucketRow <= bucket(bottom, bucketRows); bucketRow++) {
+				for (Organism organism : buckets[bucketCol * bucketRows + bucketRow]) {
+					if (organism.isTouched(left, right, top, bottom) && foundSet.add(organism)) {
+						found.add(organism);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Removes an organism from the index.
+	 * 
+	 * @param organism		the organism
+	 */
+	public synchronized void remove(Organism organism) {
+
+		int range[] = bucketRanges.remove(organism);
+		if (range != null) {
+			addOrRemove(organism, range, false);
+		}
+	}
+
+	/**
+	 * Adds an organism to the index or updates it, if its outline has changed.
+	 * 
+	 * @param organism		the organism
+	 */
+	public synchronized void update(Organism organism) {
+
+		if (organism.getCellCount() == 0) {
+			return;					// no outline
+		}
+		int range[] = {
+				bucket(organism.getMinColumn(), bucketColumns), bucket(organism.getMaxColumn(), bucketColumns), 
+				bucket(organism.getMinRow(), bucketRows), bucket(organism.getMaxRow(), bucketRows)};
+		int oldRange[] = bucketRanges.get(organism);
+		if (oldRange != null) {
+			if (Arrays.equals(range, oldRange)) {
+				return;				// still the same buckets
+			}
+			addOrRemove(organism, oldRange, false);
+		}
+		addOrRemove(organism, range, true);
+		bucketRanges.put(organism, range);
+	}
+}
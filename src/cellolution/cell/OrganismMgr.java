@@ -16,7 +16,7 @@
  */
 package cellolution.cell;
 
-import java.awt.*;
+import java.io.*;
 import java.util.*;
 
 import org.json.*;
@@ -28,6 +28,11 @@ import cellolution.*;
  */
 public class OrganismMgr {
 
+	/** the period of moving the organisms in simulation ticks */
+	public static final int MOVE_PERIOD_TICKS = 7;
+	/** the period of the slow update of the organisms in simulation ticks */
+	public static final int SLOW_UPDATE_PERIOD_TICKS = 25;
+
 	/** the ocean */
 	private Ocean ocean;
 	/** the number of columns of the ocean */
@@ -36,14 +41,18 @@ public class OrganismMgr {
 	private int cellRows;
 	/** the list of all organisms */
 	private java.util.List<Organism> organisms;
+	/** the pixels occupied by the cells of the organisms */
+	private OccupancyGrid occupancy;
+	/** the spatial index of the organisms, for nearest organism and region queries */
+	private OrganismIndex organismIndex;
+	/** the partition of the organisms into column stripes, for the parallel step of life */
+	private OrganismStripes organismStripes;
+	/** the dirty regions of the ocean image, null if headless */
+	private DirtyRegions dirtyRegions;
 	/** a list of the organisms to be removed after an update step */
 	private ArrayList<Organism> organismsToRemove;
 	/** a list of the organisms to be added after an update step */
 	private ArrayList<Organism> organismsToAdd;
-	/** the last time there was a moving for all organisms */
-	private long lastTimeMoved;
-	/** the last time there was an update for all organisms */
-	private long lastTimeSlowUpdate;
 
 	/**
 	 * @param ocean 		the ocean
@@ -56,14 +65,20 @@ public class OrganismMgr {
 		organisms = Collections.synchronizedList(new ArrayList<Organism>());
 		organismsToRemove = new ArrayList<>();
 		organismsToAdd = new ArrayList<>();
-		lastTimeMoved = System.currentTimeMillis();
-		JSONObject jsonSimObj = Main.getData().getSimObject();
-		if (jsonSimObj != null) {
-			// create organisms from an existing simulation (file), instead of being empty
-			JSONObject jsonOcean = jsonSimObj.getJSONObject(Keys.OCEAN);
-			JSONArray jsonOrganisms = jsonOcean.getJSONArray(Keys.ORGANISMS);
-			for (int i = 0; i < jsonOrganisms.length(); i++) {
-				addOrganismFrom(jsonOrganisms.getJSONObject(i));
+		occupancy = new OccupancyGrid(this, ocean.getGrid());
+		organismIndex = new OrganismIndex(cellColumns, cellRows);
+		organismStripes = new OrganismStripes(cellColumns);
+		dirtyRegions = ocean.getDirtyRegions();
+		SimReader simReader = Main.getData().getSimReader();
+		if (simReader != null) {
+			// create organisms from an existing simulation (file), instead of being empty, 
+			// the organisms are read one at a time from the file
+			try {
+				simReader.readOrganisms(this);
+			} catch (IOException e) {
+				String message = "Cellolution: error reading the organisms of a simulation file:\n" + e.getMessage();
+				Main.exceptionCaught(message, e);
+				// just display the exception and go further
 			}
 		}
 	}
@@ -103,6 +118,39 @@ public class OrganismMgr {
 
 	}
 
+	/**
+	 * Adds an organism from a binary snapshot record, see Organism.writeTo().
+	 * 
+	 * @param in			the input of the snapshot, positioned after the length of the record
+	 * @param snapshot		the snapshot, resolving the states and type names of the file
+	 * @throws IOException on an IO error
+	 */
+	public void addOrganismFrom(DataInput in, SimSnapshot snapshot) throws IOException {
+
+		OrgState state = snapshot.getState(in.readByte());
+		OrgState lastState = snapshot.getState(in.readByte());
+		int decomposeCount = in.readInt();
+		int propCount = in.readUnsignedByte();
+		int props[] = new int[propCount];
+		for (int i = 0; i < propCount; i++) {
+			props[i] = in.readInt();
+		}
+		Organism organism = new Organism(state, lastState, 
+				props[Organism.PROP_WEIGHT], 
+				props[Organism.PROP_MOVEABLE], 
+				decomposeCount, this);
+		// props written by another release may differ in size
+		for (int i = 0; i < propCount && i < Organism.SIZE_OF_PROPS; i++) {
+			organism.setProperty(i, props[i]);
+		}
+		// cells
+		int cellCount = in.readUnsignedShort();
+		for (int i = 0; i < cellCount; i++) {
+			organism.add(AbstractCell.createFrom(in, organism, snapshot));
+		}
+		addOrganism(organism);
+	}
+
 	/**
 	 * Adds an organism to the ocean.
 	 * 
@@ -111,6 +159,42 @@ public class OrganismMgr {
 	public void addOrganism(Organism organism) {
 
 		organisms.add(organism);
+		organism.setInOcean(true);
+		for (AbstractCell cell : organism.getCells()) {
+			occupancy.occupy(organism, cell.getColumn(), cell.getRow());
+		}
+		organismIndex.update(organism);
+	}
+
+	/**
+	 * A cell has been added to an organism, if the organism is within the ocean its cell occupies a pixel.
+	 * 
+	 * @param organism		the organism
+	 * @param cell			the cell added
+	 */
+	public void cellAdded(Organism organism, AbstractCell cell) {
+
+		if (organism.isInOcean()) {
+			occupancy.occupy(organism, cell.getColumn(), cell.getRow());
+			organismIndex.update(organism);
+		}
+	}
+
+	/**
+	 * A cell has been removed from an organism, if the organism is within the ocean its cell 
+	 * releases a pixel.
+	 * 
+	 * @param organism		the organism
+	 * @param cell			the cell removed
+	 */
+	public void cellRemoved(Organism organism, AbstractCell cell) {
+
+		if (organism.isInOcean()) {
+			occupancy.release(organism, cell.getColumn(), cell.getRow());
+			if (dirtyRegions != null) {
+				cell.unrasterize(dirtyRegions);
+			}
+		}
 	}
 
 	/**
@@ -120,39 +204,57 @@ public class OrganismMgr {
 	 */
 	public void findAndDisplayNearestOrganism(Pixel pixel) {
 
-		Organism organism = null;
-		int col = pixel.getColumn();
-		int row = pixel.getRow();
-		for (int i = 1; i < 70 && organism == null; i++) {
-			int left = col - i;
-			if (left < 0) {
-				left = 0;
-			}
-			int right = col + i;
-			if (right >= cellColumns) {
-				right = cellColumns - 1;
-			}
-			int top = row - i;
-			if (top < 0) {
-				top = 0;
-			}
-			int bottom = row + i;
-			if (bottom >= cellRows) {
-				bottom = cellRows - 1;
-			}
-			for (Organism org : organisms) {
-				if (org.isTouched(left, right, top, bottom)) {
-					organism = org;
-					break;
-				}
-			}
-		}
+		Organism organism = organismIndex.findNearest(pixel.getColumn(), pixel.getRow(), 69);
 		if (organism == null) {
 			return;
 		}
 		Main.getOrgDisplayCtlr().follow(organism);
 	}
 
+	/**
+	 * Finds an organism having a cell on the given column and row, testing all organisms.
+	 * Usually getOrganismAt() is much faster.
+	 * 
+	 * @param col			the column
+	 * @param row			the row
+	 * @return an organism having a cell on the given column and row, or null if there is none
+	 */
+	Organism findOrganismWithCellOn(int col, int row) {
+
+		for (Organism organism : organisms) {
+			if (organism.hasCellOn(col, row)) {
+				return organism;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an organism having a cell on the given column and row.
+	 * 
+	 * @param col			the column
+	 * @param row			the row
+	 * @return an organism having a cell on the given column and row, or null if there is none
+	 */
+	public Organism getOrganismAt(int col, int row) {
+
+		return occupancy.getOrganismAt(col, row);
+	}
+
+	/**
+	 * Finds all organisms with an outline touching a rectangle.
+	 * 
+	 * @param left				the left side column
+	 * @param right				the right side column
+	 * @param top				the top row
+	 * @param bottom			the bottom row
+	 * @return the organisms touching the rectangle
+	 */
+	public ArrayList<Organism> getOrganismsIn(int left, int right, int top, int bottom) {
+
+		return organismIndex.findOrganismsIn(left, right, top, bottom);
+	}
+
 	/**
 	 * @return the number of organisms within the ocean
 	 */
@@ -178,54 +280,75 @@ public class OrganismMgr {
 	 */
 	public boolean hasCellOn(int col, int row) {
 
-		for (Organism organism : organisms) {
-			if (organism.hasCellOn(col, row)) {
-				return true;
-			}
+		return occupancy.hasCellOn(col, row);
+	}
+
+	/**
+	 * Moves a cell of an organism one step in a direction, and updates the occupied pixels.
+	 * 
+	 * @param organism		the organism
+	 * @param cell			the cell to move
+	 * @param direction		the direction
+	 */
+	public void moveCell(Organism organism, AbstractCell cell, int direction) {
+
+		int col = cell.getColumn();
+		int row = cell.getRow();
+		cell.move(direction);
+		if (organism.isInOcean()) {
+			occupancy.release(organism, col, row);
+			occupancy.occupy(organism, cell.getColumn(), cell.getRow());
 		}
-		return false;
 	}
 
 	/**
 	 * Most organisms are moving around, either through some gained speed or by Brownian motion.
 	 * 
-	 * @param time		the current time
+	 * @param tick		the current simulation tick (called every MOVE_PERIOD_TICKS)
 	 */
-	public void moveOrganisms(long time) {
+	public void moveOrganisms(long tick) {
 		
-		if (time - lastTimeMoved < 130) {
-			// we do not move too often (saving CPU power) or too fast
-			return;						
-		}
-		lastTimeMoved = time;
 		organisms.forEach(org -> {
-			org.move(time);
+			org.move(tick);
 		});
 	}
 
 	/**
-	 * Perform one time step of life for all organisms.
+	 * The outline of an organism may have changed (e.g. after moving), update the spatial index.
 	 * 
-	 * @param time		the current time
+	 * @param organism		the organism
 	 */
-	public void organismsOneStepOfLife(long time) {
+	public void outlineChanged(Organism organism) {
 
-		organisms.forEach(org -> {
-			org.oneStepOfLife();
-		});
+		if (organism.isInOcean()) {
+			organismIndex.update(organism);
+		}
+	}
+
+	/**
+	 * Perform one time step of life for all organisms, organisms in different column stripes 
+	 * of the ocean are computed in parallel (if Stripes are parallel).
+	 * 
+	 * @param tick		the current simulation tick
+	 */
+	public void organismsOneStepOfLife(long tick) {
+
+		synchronized (organisms) {
+			organismStripes.forEach(organisms, org -> org.oneStepOfLife());
+		}
 	}
 
 	/**
-	 * Paint all organisms of the ocean.
+	 * Captures all organisms of the ocean into a render snapshot (simulation thread only), 
+	 * changed cells are marked in the dirty regions.
 	 * 
-	 * @param g2d		the Graphics2D object
+	 * @param snapshot		the render snapshot, already cleared
 	 */
-	public void paint(Graphics2D g2d) {
+	public void capture(RenderSnapshot snapshot) {
 		
-		// paint all organisms
-		organisms.forEach(org -> {
-			org.paint(g2d);
-		});
+		for (int i = 0; i < organisms.size(); i++) {
+			organisms.get(i).capture(snapshot, dirtyRegions);
+		}
 	}
 
 	/**
@@ -241,23 +364,27 @@ public class OrganismMgr {
 	/**
 	 * Slow update for organism changes not in the need to be to fast (due to performance reasons).
 	 * 
-	 * @param time			the current time
+	 * @param tick			the current simulation tick (called every SLOW_UPDATE_PERIOD_TICKS)
 	 */
-	public void slowUpdate(long time) {
+	public void slowUpdate(long tick) {
 		
-		if (time - lastTimeSlowUpdate < 500) {
-			// we do not update too often (saving CPU power)
-			return;						
-		}
-		lastTimeSlowUpdate = time;
 		for (int i = 0; i < organisms.size(); i++) {
-			organisms.get(i).slowUpdate(time);
+			organisms.get(i).slowUpdate(tick);
 		}
 //		organisms.forEach(org -> {
-//			org.slowUpdate(time);
+//			org.slowUpdate(tick);
 //		});
 		organismsToRemove.forEach(org -> {
-			organisms.remove(org);
+			if (organisms.remove(org)) {
+				org.setInOcean(false);
+				organismIndex.remove(org);
+				for (AbstractCell cell : org.getCells()) {
+					occupancy.release(org, cell.getColumn(), cell.getRow());
+					if (dirtyRegions != null) {
+						cell.unrasterize(dirtyRegions);
+					}
+				}
+			}
 		});
 		organismsToRemove.clear();
 		organismsToAdd.forEach(org -> {
@@ -266,6 +393,26 @@ public class OrganismMgr {
 		organismsToAdd.clear();
 	}
 
+	/**
+	 * Returns the organisms to save: growing organisms (the replicated ones) are not saved, 
+	 * organisms in replication are saved as if their replication has been reverted.
+	 * The organisms are not changed, the simulation continues undisturbed.
+	 * 
+	 * @return the organisms to save
+	 */
+	public ArrayList<Organism> getOrganismsToSave() {
+		
+		ArrayList<Organism> organismsToSave = new ArrayList<>(organisms.size());
+		for (Organism org : organisms) {
+			if (org.getState() == OrgState.GROWING) {
+				// too complicated due to Replication state machine, don't serialize
+				continue;
+			}
+			organismsToSave.add(org);
+		}
+		return organismsToSave;
+	}
+
 	/**
 	 * Creates a JSONArray from this object.
 	 * 
@@ -274,17 +421,7 @@ public class OrganismMgr {
 	public JSONArray toJSONArray() {
 		
 		JSONArray jsonOrganisms = new JSONArray();
-		for (Organism org : organisms) {
-			switch (org.getState()) {
-			case GROWING: 
-				// too complicated due to Replication state machine, revert replication
-				// and don't serialize
-				continue;
-			case IN_REPLICATION: 
-				// too complicated due to Replication state machine, revert replication
-				org.revertReplication();
-				// intentionally falling through
-			}
+		for (Organism org : getOrganismsToSave()) {
 			jsonOrganisms.put(org.toJSONObject());
 		}
 		return jsonOrganisms;
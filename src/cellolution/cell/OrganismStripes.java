@@ -0,0 +1,116 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.cell;
+
+import java.util.*;
+import java.util.function.*;
+
+import cellolution.util.*;
+
+/**
+ * A partition of the organisms into column stripes of the ocean, for the parallel step of life: 
+ * the ocean is divided into buckets of BUCKET_COLUMNS columns, each bucket contains the organisms 
+ * with an outline (minColumn..maxColumn) lying completely within the bucket. Organisms crossing 
+ * a bucket border are boundary organisms.
+ * 
+ * The buckets are computed concurrently by Stripes, each bucket by exactly one thread, therefore 
+ * organisms writing only to the pixels of their own columns never conflict. The boundary organisms 
+ * are computed afterwards in a serial pass by the calling thread. 
+ * The lists are reused for every step, to avoid garbage.
+ */
+public class OrganismStripes {
+
+	/** the size of a bucket in columns */
+	public static final int BUCKET_COLUMNS = 32;
+	/** the minimum number of organisms to compute the buckets in parallel, below the overhead is too big */
+	public static final int MIN_PARALLEL_ORGANISMS = 64;
+
+	/** the organisms of the buckets, lying completely within the columns of the bucket */
+	private ArrayList<Organism> buckets[];
+	/** the organisms crossing a bucket border */
+	private ArrayList<Organism> boundary;
+
+	/**
+	 * @param cellColumns		the number of columns of the ocean
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public OrganismStripes(int cellColumns) {
+
+		buckets = new ArrayList[(cellColumns + BUCKET_COLUMNS - 1) / BUCKET_COLUMNS];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new ArrayList<>();
+		}
+		boundary = new ArrayList<>();
+	}
+
+	/**
+	 * Performs an action for all organisms: the buckets in parallel (if Stripes are parallel), 
+	 * then the boundary organisms serially. 
+	 * The action of an organism must only write to the pixels within its outline and to the organism itself.
+	 * 
+	 * @param organisms		the organisms
+	 * @param action		the action
+	 */
+	public void forEach(List<Organism> organisms, Consumer<Organism> action) {
+
+		if (!Stripes.isParallel() || organisms.size() < MIN_PARALLEL_ORGANISMS) {
+			for (int i = 0; i < organisms.size(); i++) {
+				action.accept(organisms.get(i));
+			}
+			return;
+		}
+		partition(organisms);
+		Stripes.forEach(0, buckets.length, 1, (from, to) -> {
+			for (int b = from; b < to; b++) {
+				ArrayList<Organism> bucket = buckets[b];
+				for (int i = 0; i < bucket.size(); i++) {
+					action.accept(bucket.get(i));
+				}
+			}
+		});
+		for (int i = 0; i < boundary.size(); i++) {
+			action.accept(boundary.get(i));
+		}
+	}
+
+	/**
+	 * Distributes the organisms into the buckets and the boundary list.
+	 * 
+	 * @param organisms		the organisms
+	 */
+	private void partition(List<Organism> organisms) {
+
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i].clear();
+		}
+		boundary.clear();
+		for (int i = 0; i < organisms.size(); i++) {
+			Organism organism = organisms.get(i);
+			if (organism.getCells().isEmpty()) {
+				boundary.add(organism);
+				continue;
+			}
+			int minBucket = organism.getMinColumn() / BUCKET_COLUMNS;
+			int maxBucket = organism.getMaxColumn() / BUCKET_COLUMNS;
+			if (minBucket == maxBucket && minBucket >= 0 && minBucket < buckets.length) {
+				buckets[minBucket].add(organism);
+			} else {
+				boundary.add(organism);
+			}
+		}
+	}
+}
@@ -29,7 +29,11 @@ import cellolution.util.*;
  */
 public class Replication {
 
-	public static final Color IN_REPLICATION_COLOR = Color.GREEN;
+	public static final int IN_REPLICATION_RGB = Color.GREEN.getRGB();
+	/** the simulation ticks to wait before the cells are copied */
+	public static final int START_WAIT_TICKS = 50;
+	/** the simulation ticks to wait between copying cells and before finishing the replication */
+	public static final int COPY_WAIT_TICKS = 30;
 
 	private enum State {
 		START, COPY_CELLS, COPY_END
@@ -40,10 +44,10 @@ public class Replication {
 	private OrganismMgr organismMgr;
 	private ArrayList<AbstractCell> cells;
 	private Ocean ocean;
-	private Pixel pixels[][];
-	private long lastTime;
+	private OceanGrid grid;
+	private long lastTick;
 	private AbstractCell stemCell;
-	private Color oldStemCellColor;
+	private int oldStemCellRGB;					// 0 if not saved (RGB values of colors are opaque)
 	private StemCell narrowingCell;
 	private int neighborNr;						// the number of the neighbor direction for the new cell and the narrowing
 	private Pixel newStemCellPixel;
@@ -64,18 +68,18 @@ public class Replication {
 	 * @param organismMgr
 	 * @param cells
 	 * @param ocean
-v	 * @param pixels
-	 * @param time 				the time when the replication has started
+	 * @param grid
+	 * @param tick 				the simulation tick when the replication has started
 	 */
 	public Replication(Organism organism, OrganismMgr organismMgr, ArrayList<AbstractCell> cells,
-			Ocean ocean, Pixel[][] pixels, long time) {
+			Ocean ocean, OceanGrid grid, long tick) {
 		
 		this.organism = organism;
 		this.organismMgr = organismMgr;
 		this.cells = cells;
 		this.ocean = ocean;
-		this.lastTime = time;
-		pixels = ocean.getPixels();
+		this.lastTick = tick;
+		this.grid = grid;
 		// find the cell with genom, either a single cell organism or a stem cell
 		for (AbstractCell cell : cells) {
 			if (cell instanceof StemCellCarrier) {
@@ -116,8 +120,7 @@ v	 * @param pixels
 		}
 		for (int col = col1; col <= col2; col++) {
 			for (int row = row1; row <= row2; row++) {
-				Pixel p = pixels[col][row];
-				if (!(p instanceof Water)) {
+				if (!grid.isWater(col, row)) {
 					return false;
 				}
 				if (organismMgr.hasCellOn(col, row)) {
@@ -131,41 +134,42 @@ v	 * @param pixels
 	/**
 	 * Perform the next step of replication.
 	 * 
-	 * @param time
+	 * @param tick			the current simulation tick
 	 */
-	public void nextStep(long time) {
+	public void nextStep(long tick) {
 		
 		switch (state) {
 		case START: 
 			// wait a period
-			if (time - lastTime > 1000) {
+			if (tick - lastTick > START_WAIT_TICKS) {
 				// enough free space around?
 				int sizeMax = organism.getDimensionMax();
 				if (!organism.hasFreeSpace(sizeMax + 1)) {
 					// await free space (Brownian movement)
 					return;
 				}
-				oldStemCellColor = stemCell.getColor();
-				stemCell.setColorAndRGB(IN_REPLICATION_COLOR);
+				oldStemCellRGB = stemCell.getColorRGB();
+				stemCell.setColorRGB(IN_REPLICATION_RGB);
 				// find a direction: where to replicate
 				neighborNr = FastRandom.nextIntStat(6) + 1;
 				// display a narrowing cell between the old and the new stem cell
-				Pixel narrowing = Mover.neighbor(stemCell, neighborNr, ocean.getPixels());	
+				Pixel narrowing = Mover.neighbor(stemCell, neighborNr, grid);	
 				int energy = 4000;		// just to display some energy
 				narrowingCell = new StemCell(narrowing.getColumn(), narrowing.getRow(), 
 						energy, organism, null);
 				cells.add(narrowingCell);			// not a real part of the organism, not using organism.add()
+				organismMgr.cellAdded(organism, narrowingCell);
 				// presets
 				newGenome = genome.evolotionaryClone(organism);
 				newOrganism = newGenome.createNewOrganism(organismMgr, organism, newEnergy);
 				// finish START
 				cellCopyIndex = 0;
 				state = State.COPY_CELLS;
-				lastTime = time;
+				lastTick = tick;
 			}
 			return;
 		case COPY_CELLS: 
-			if (time - lastTime > 600) {
+			if (tick - lastTick > COPY_WAIT_TICKS) {
 				// enough free space around?
 				int sizeMax = organism.getDimensionMax();
 				if (!organism.hasFreeSpace(sizeMax + 1)) {
@@ -173,7 +177,7 @@ v	 * @param pixels
 					return;
 				}
 				if (newStemCell == null) {
-					Pixel newStemCellPixel = Mover.neighbor(narrowingCell, neighborNr, ocean.getPixels());
+					Pixel newStemCellPixel = Mover.neighbor(narrowingCell, neighborNr, grid);
 					newStemCell = newGenome.duplicateStemCell(stemCell, newStemCellPixel, newOrganism);
 					newOrganism.add(newStemCell);
 					cellCopyIndex++;
@@ -183,18 +187,20 @@ v	 * @param pixels
 				if (newGenome.completeOrganism()) {
 					cellCopyIndex = 0;
 					state = State.COPY_END;
-					lastTime = time;
+					lastTick = tick;
 				}
 			}
 			return;
 		case COPY_END: 
-			if (time - lastTime < 600) {
+			if (tick - lastTick < COPY_WAIT_TICKS) {
 				// wait a period
 				return;
 			}
 			newGenome.cleanup();				// release old instances and their memory
-			cells.remove(narrowingCell)	;		// remove the bridge cell
-			stemCell.setColorAndRGB(oldStemCellColor);
+			if (cells.remove(narrowingCell)) {
+				organismMgr.cellRemoved(organism, narrowingCell);		// remove the bridge cell
+			}
+			stemCell.setColorRGB(oldStemCellRGB);
 			organismMgr.getOrganismsToAdd().add(newOrganism);
 			organism.setState(OrgState.ALIVE);			// this also clears the replication in the organism
 			newOrganism.setState(OrgState.ALIVE);		
@@ -206,6 +212,30 @@ v	 * @param pixels
 		}
 	}
 
+	/**
+	 * Returns the color of a cell as it is saved: the stem cell is saved in its color before 
+	 * the replication, the same way as after revert().
+	 * 
+	 * @param cell			a cell of the organism
+	 * @return the RGB color of the cell to save
+	 */
+	public int getSavedColorRGB(AbstractCell cell) {
+
+		return cell == stemCell && oldStemCellRGB != 0 ? oldStemCellRGB : cell.getColorRGB();
+	}
+
+	/**
+	 * Checks if a cell of the organism is saved: the narrowing cell is not a real part 
+	 * of the organism and is not saved, the same way as after revert().
+	 * 
+	 * @param cell			a cell of the organism
+	 * @return true if the cell is saved
+	 */
+	public boolean isSaved(AbstractCell cell) {
+
+		return cell != narrowingCell;
+	}
+
 	/**
 	 * Revert the replication.
 	 * This happens usually for a parent organism with the state IN_REPLICATION when 
@@ -216,11 +246,11 @@ v	 * @param pixels
 	 */
 	public void revert() {
 
-		if (oldStemCellColor != null) {
-			stemCell.setColorAndRGB(oldStemCellColor);
+		if (oldStemCellRGB != 0) {
+			stemCell.setColorRGB(oldStemCellRGB);
 		}
-		if (narrowingCell != null) {
-			cells.remove(narrowingCell)	;		// remove the bridge cell
+		if (narrowingCell != null && cells.remove(narrowingCell)) {
+			organismMgr.cellRemoved(organism, narrowingCell);		// remove the bridge cell
 		}
 		organism.setState(OrgState.ALIVE);
 	}
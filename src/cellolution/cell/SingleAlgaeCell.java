@@ -21,6 +21,7 @@ import java.awt.*;
 import org.json.*;
 
 import cellolution.*;
+import cellolution.util.*;
 
 /**
  * An algae cell get its energy from sunlight, transforming CO2 to energy and organic matter.
@@ -30,7 +31,11 @@ import cellolution.*;
 public class SingleAlgaeCell extends AbstractCell implements StemCellCarrier {
 
 	public static final String CLASS_NAME = "SingleAlgaeCell";
-	public static final Color RGB_BASE = new Color(128, 218, 128);
+	public static final int RGB_BASE = new Color(128, 218, 128).getRGB();
+	/** the maximum energy changing the color, see energyRGB() */
+	public static final int PALETTE_MAX_ENERGY = 57000;
+	/** the colors by energy, precomputed */
+	private static final Palette ENERGY_PALETTE = new Palette(PALETTE_MAX_ENERGY, 100, SingleAlgaeCell::energyRGB);
 
 	public static final int INITIAL_WEIGHT = 10000;					// like water (=10000)
 
@@ -85,13 +90,24 @@ public class SingleAlgaeCell extends AbstractCell implements StemCellCarrier {
 	@Override
 	public void adjustColorByEnergy() {
 		
-		int red = 90 + props[PROP_ENERGY] * 50 / 50000;
+		setColorRGB(ENERGY_PALETTE.getRGB(props[PROP_ENERGY]));
+	}
+
+	/**
+	 * Computes the color of an algae cell with a certain energy, used to fill ENERGY_PALETTE.
+	 * 
+	 * @param energy		the energy of the cell
+	 * @return the RGB value
+	 */
+	private static int energyRGB(int energy) {
+		
+		int red = 90 + energy * 50 / 50000;
 		red = red > 128 ? 128 : red;
-		int green = 130 + props[PROP_ENERGY] * 120 / 50000;
+		int green = 130 + energy * 120 / 50000;
 		green = green > 230 ? 230 : green;
-		int blue = 60 + props[PROP_ENERGY] * 60 / 50000;
+		int blue = 60 + energy * 60 / 50000;
 		blue = blue > 128 ? 128 : blue;
-		setColorAndRGB(new Color(red, green, blue));
+		return new Color(red, green, blue).getRGB();
 	}
 
 	/**
@@ -156,10 +172,10 @@ public class SingleAlgaeCell extends AbstractCell implements StemCellCarrier {
 	/**
 	 * Slow update for organism changes not needed to be to fast.
 	 * 
-	 * @param time			the current time
+	 * @param tick			the current simulation tick
 	 */
 	@Override
-	public void slowUpdate(long time) {
+	public void slowUpdate(long tick) {
 		
 		// to live costs some energy, regulated by agility
 		int energy = props[PROP_ENERGY] - props[PROP_ENERGY_CONSUMTION] * props[PROP_AGILITY] / AGILITY_FACTOR_ONE;
@@ -21,6 +21,7 @@ import java.awt.*;
 import org.json.*;
 
 import cellolution.*;
+import cellolution.util.*;
 
 /**
  * A H2S eater cell get its energy from H2S (hydrogen sulfid) emitted by the seabed or (black) smokers.
@@ -32,7 +33,11 @@ import cellolution.*;
 public class SingleH2sEaterCell extends AbstractCell implements StemCellCarrier {
 
 	public static final String CLASS_NAME = "SingleH2sEaterCell";
-	public static final Color RGB_BASE = new Color(255, 70, 20);
+	public static final int RGB_BASE = new Color(255, 70, 20).getRGB();
+	/** the maximum energy changing the color, see energyRGB() */
+	public static final int PALETTE_MAX_ENERGY = 50000;
+	/** the colors by energy, precomputed */
+	private static final Palette ENERGY_PALETTE = new Palette(PALETTE_MAX_ENERGY, 100, SingleH2sEaterCell::energyRGB);
 	
 	// TODO  INITIAL_WEIGHT aufgrund von CaCO3 auflösen -> erzeugt weight Berechnung des Organismus
 
@@ -87,11 +92,22 @@ public class SingleH2sEaterCell extends AbstractCell implements StemCellCarrier
 	@Override
 	public void adjustColorByEnergy() {
 		
-		int green = 70 + props[PROP_ENERGY] * 184 / 50000;
+		setColorRGB(ENERGY_PALETTE.getRGB(props[PROP_ENERGY]));
+	}
+
+	/**
+	 * Computes the color of a H2S eater cell with a certain energy, used to fill ENERGY_PALETTE.
+	 * 
+	 * @param energy		the energy of the cell
+	 * @return the RGB value
+	 */
+	private static int energyRGB(int energy) {
+		
+		int green = 70 + energy * 184 / 50000;
 		green = green > 240 ? 240 : green;
-		int blue = 20 + props[PROP_ENERGY] * 40 / 50000;
+		int blue = 20 + energy * 40 / 50000;
 		blue = blue > 60 ? 60 : blue;
-		setColorAndRGB(new Color(255, green, blue));
+		return new Color(255, green, blue).getRGB();
 	}
 
 	/**
@@ -156,10 +172,10 @@ public class SingleH2sEaterCell extends AbstractCell implements StemCellCarrier
 	/**
 	 * Slow update for organism changes not needed to be to fast.
 	 * 
-	 * @param time			the current time
+	 * @param tick			the current simulation tick
 	 */
 	@Override
-	public void slowUpdate(long time) {
+	public void slowUpdate(long tick) {
 		
 		// to live costs some energy, regulated by agility
 		int energy = props[PROP_ENERGY] - props[PROP_ENERGY_CONSUMTION] * props[PROP_AGILITY] / AGILITY_FACTOR_ONE;
@@ -32,8 +32,8 @@ public class StemCell extends AbstractCell implements StemCellCarrier {
 	public static final String CLASS_NAME = "StemCell";
 	public static final int INITIAL_WEIGHT = 10000;					// like water (=10000)
 
-	private static Color NARROWING_CELL_COLOR = new Color(100, 120, 255);
-	private static Color STEM_CELL_COLOR = new Color(40, 40, 255);
+	private static final int NARROWING_CELL_RGB = new Color(100, 120, 255).getRGB();
+	private static final int STEM_CELL_RGB = new Color(40, 40, 255).getRGB();
 
 	private Genome genome;
 
@@ -47,7 +47,7 @@ public class StemCell extends AbstractCell implements StemCellCarrier {
 	public StemCell(int column, int row, int energy, Organism organism, Genome genome) {
 		
 		super(column, row, energy, 
-				genome == null ? NARROWING_CELL_COLOR : STEM_CELL_COLOR, organism);
+				genome == null ? NARROWING_CELL_RGB : STEM_CELL_RGB, organism);
 		this.genome = genome;
 		// energy is set outside, the genome of this organism may change the following values
 		props[PROP_ENERGY_CONSUMTION] = 80;
@@ -123,7 +123,7 @@ public class StemCell extends AbstractCell implements StemCellCarrier {
 	}
 
 	@Override
-	protected void slowUpdate(long time) {
+	protected void slowUpdate(long tick) {
 		
 		// nothing to do
 	}
@@ -55,6 +55,8 @@ public class MainView extends JFrame implements ActionListener {
 	public final static String RUN = 			"Run Sim";
 	/** action command key */
 	public final static String SAVE_AS = 		"SaveAs";
+	/** action command key */
+	public final static String STATISTICS = 	"Statistics";
 
 	// members
 	/** the main panel */
@@ -158,6 +160,10 @@ public class MainView extends JFrame implements ActionListener {
 			}
 		} else if (actionCmd.equals(SAVE_AS)) {
 			Main.instance().saveAs();
+		} else if (actionCmd.equals(STATISTICS)) {
+			boolean isVisible = !oceanPanel.isStatisticsVisible();
+			Main.getOcean().getProfiler().setEnabled(isVisible);
+			oceanPanel.setStatisticsVisible(isVisible);
         } else {
             System.out.println("ActionListener: unknown component, it's me -> "
             		+ event.getSource().getClass().getSimpleName() 
@@ -288,6 +294,9 @@ public class MainView extends JFrame implements ActionListener {
 		pausedOrRunBtn = createToolBarButton("Pause Sim",  null, KeyEvent.VK_P, 
 				"Pauses or Runs the simulation", PAUSE_OR_RUN);
 		tb.add(pausedOrRunBtn);
+		tb.addSeparator();
+		tb.add(createToolBarButton("Statistics", null, KeyEvent.VK_S, 
+				"Shows or hides the time spent in each phase of a simulation step", STATISTICS));
 		return tb;
 	}
 	
@@ -18,6 +18,7 @@ package cellolution.ui;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.util.*;
 
 import javax.swing.*;
 
@@ -30,6 +31,15 @@ import cellolution.cell.*;
 @SuppressWarnings("serial")
 public class OceanPanel extends JPanel {
 
+	/** the interval to refresh the statistics overlay in milliseconds */
+	public static final int STATISTICS_REFRESH_MILLIS = StepProfiler.PUBLISH_MILLIS;
+	/** the height of a text line of the statistics overlay */
+	private static final int STATISTICS_LINE_HEIGHT = 14;
+	/** the area of the statistics overlay (upper left corner of the panel), large enough for all phases */
+	private static final Rectangle STATISTICS_AREA = new Rectangle(0, 0, 500, 14 * STATISTICS_LINE_HEIGHT);
+	/** the font of the statistics overlay */
+	private static final Font STATISTICS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
 	/** the ocean */
 	private Ocean ocean;
 	/** the number of columns of the ocean */
@@ -37,13 +47,17 @@ public class OceanPanel extends JPanel {
 	/** the number of rows of the ocean */
 	private int cellRows;
 	/** all pixels of the ocean */
-	private Pixel pixels[][];
+	private OceanGrid grid;
 	/** the manager of the black smokers */
 	private Smokers smokers;
 	/** the manager for all organisms */
 	private OrganismMgr organismMgr;
 	/** the controller to display organisms */
 	private OrganismDisplayCtlr orgDisplayCtlr;
+	/** flag if the statistics of the step profiler are displayed over the ocean */
+	private boolean isStatisticsVisible;
+	/** the timer to refresh the statistics overlay */
+	private javax.swing.Timer statisticsTimer;
 
 	/**
 	 * Construct the view of the ocean.
@@ -63,6 +77,15 @@ public class OceanPanel extends JPanel {
 		    	ocean.mouseReleased(e);
 		    }
 		});
+		statisticsTimer = new javax.swing.Timer(STATISTICS_REFRESH_MILLIS, e -> repaint(STATISTICS_AREA));
+	}
+
+	/**
+	 * @return true if the statistics of the step profiler are displayed over the ocean
+	 */
+	public boolean isStatisticsVisible() {
+		
+		return isStatisticsVisible;
 	}
 	
     /**
@@ -76,6 +99,7 @@ public class OceanPanel extends JPanel {
     	// draw the elements
         Graphics2D g2d = (Graphics2D) g;
         Ocean ocean = Main.getOcean();
+        RenderSnapshot snapshot = ocean.getRenderBuffer().takeLatest();			// never waits for the simulation
         g2d.drawImage(ocean.getImage(), null, 0, 0);
         if (smokers == null) {
 			// most likely a new ocean in progress, smokers have to be created again
@@ -83,10 +107,72 @@ public class OceanPanel extends JPanel {
         	return;
 		}
 		smokers.paint(g2d);
-		organismMgr.paint(g2d);
-		orgDisplayCtlr.paintDisplayOrgArc(g2d);
+		snapshot.paint(g2d);
+		orgDisplayCtlr.paintDisplayOrgArc(g2d, snapshot);
+		if (isStatisticsVisible) {
+			paintStatistics(g2d, ocean.getProfiler());
+		}
     }
+
+	/**
+	 * Paints the statistics of the step profiler over the upper left corner of the ocean.
+	 * 
+	 * @param g2d			the graphics context
+	 * @param profiler		the step profiler
+	 */
+	private void paintStatistics(Graphics2D g2d, StepProfiler profiler) {
+		
+		java.util.List<StepProfiler.PhaseStatistics> statistics = profiler.getStatistics();
+		int lines = Math.min(statistics.size() + 1, STATISTICS_AREA.height / STATISTICS_LINE_HEIGHT);
+		g2d.setColor(new Color(0, 0, 0, 160));
+		g2d.fillRect(STATISTICS_AREA.x, STATISTICS_AREA.y, STATISTICS_AREA.width, 
+				lines * STATISTICS_LINE_HEIGHT + 4);
+		g2d.setColor(Color.WHITE);
+		g2d.setFont(STATISTICS_FONT);
+		int y = STATISTICS_AREA.y + STATISTICS_LINE_HEIGHT;
+		g2d.drawString(profiler.isEnabled() 
+				? String.format("Steps/s: %.1f", profiler.getStepsPerSecond()) : "Profiler disabled", 4, y);
+		for (int i = 0; i < lines - 1; i++) {
+			y += STATISTICS_LINE_HEIGHT;
+			g2d.drawString(statistics.get(i).toString(), 4, y);
+		}
+	}
   
+	/**
+	 * Repaints areas of the panel (from any thread).
+	 * The areas are painted one by one on the event dispatch thread, repaint(x, y, w, h) would unite 
+	 * them into their bounding rectangle, which is usually most of the panel.
+	 * 
+	 * @param regions			the areas to repaint, in dots of the ocean image
+	 */
+	public void repaintRegions(ArrayList<Rectangle> regions) {
+		
+		if (regions.isEmpty()) {
+			return;
+		}
+		SwingUtilities.invokeLater(() -> {
+			for (Rectangle region : regions) {
+				paintImmediately(region);
+			}
+		});
+	}
+
+	/**
+	 * Shows or hides the statistics of the step profiler over the ocean (on the event dispatch thread).
+	 * 
+	 * @param isStatisticsVisible		true to display the statistics
+	 */
+	public void setStatisticsVisible(boolean isStatisticsVisible) {
+		
+		this.isStatisticsVisible = isStatisticsVisible;
+		if (isStatisticsVisible) {
+			statisticsTimer.start();
+		} else {
+			statisticsTimer.stop();
+		}
+		repaint(STATISTICS_AREA);
+	}
+
 	/**
 	 * @param ocean				the ocean
 	 * @param smokers 			the manager of the smokers
@@ -96,7 +182,7 @@ public class OceanPanel extends JPanel {
 	public void set(Ocean ocean, Smokers smokers, OrganismMgr organismMgr, OrganismDisplayCtlr orgDisplayCtlr) {
 		
 		this.ocean = ocean;
-		pixels = ocean.getPixels();
+		grid = ocean.getGrid();
 		this.smokers = smokers;
 		this.organismMgr = organismMgr;
 		this.orgDisplayCtlr = orgDisplayCtlr;
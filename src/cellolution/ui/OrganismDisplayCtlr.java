@@ -17,7 +17,6 @@
 package cellolution.ui;
 
 import java.awt.*;
-import java.util.*;
 
 import cellolution.*;
 import cellolution.cell.*;
@@ -51,26 +50,29 @@ public class OrganismDisplayCtlr {
 	}
 
 	/**
-	 * Display the organism to follow, if any.
+	 * Display the organism to follow, if any, as captured by the latest render snapshot 
+	 * (on the event dispatch thread, the organism itself is not accessed).
 	 */
 	public void displayAndRepaint() {
 		
 		if (orgToFollow == null) {
 			return;
 		}
-		organismPanel.getOrganismLbl().setText("Organism " + orgToFollow.getNumber() 
-			+ " (" + orgToFollow.getCenterColumn() + "/" + orgToFollow.getCenterRow() + ")");
-		organismPanel.getOrgStateLbl().setText(orgToFollow.getState() + "    Energy: " + orgToFollow.getProperty(Organism.PROP_ENERGY));
-		organismPanel.getOrganicLbl().setText("Organic: " + orgToFollow.getOrganicAmount());
-		int cellCount = orgToFollow.getCellCount();
+		RenderSnapshot.FollowedOrganism followed = ocean.getRenderBuffer().takeLatest().getFollowed();
+		if (followed == null || followed.getNumber() != orgToFollow.getNumber()) {
+			return;				// not yet captured
+		}
+		organismPanel.getOrganismLbl().setText("Organism " + followed.getNumber() 
+			+ " (" + followed.getCenterColumn() + "/" + followed.getCenterRow() + ")");
+		organismPanel.getOrgStateLbl().setText(followed.getState() + "    Energy: " + followed.getEnergy());
+		organismPanel.getOrganicLbl().setText("Organic: " + followed.getOrganicAmount());
+		int cellCount = followed.getCellCount();
 		organismPanel.getOrgCellCountLbl().setText("Cell count: " + cellCount);
-		ArrayList<AbstractCell> cells = orgToFollow.getCells();
 		int labelIndex = 0;
 		for (int i = 0; i < cellCount; i++) {
-			AbstractCell cell = cells.get(i);
 			// display cell number based on one!
-			organismPanel.setTextForLabelNumber(labelIndex++, "Cell: " + (i + 1) + " -> " + cell.getCellTypeName());
-			int props[] = cell.getProperties();
+			organismPanel.setTextForLabelNumber(labelIndex++, "Cell: " + (i + 1) + " -> " + followed.getCellTypeName(i));
+			int props[] = followed.getCellProperties(i);
 			organismPanel.setTextForLabelNumber(labelIndex++, "  Agility: " + props[AbstractCell.PROP_AGILITY]);
 			organismPanel.setTextForLabelNumber(labelIndex++, "  Energy: " + props[AbstractCell.PROP_ENERGY]
 					+ " (Rate: " + props[AbstractCell.PROP_ENERGY_CONSUMTION] + ")");
@@ -124,6 +126,14 @@ public class OrganismDisplayCtlr {
 		organismPanel.repaint();
 	}
 
+	/**
+	 * @return the organism marked with the cross hairs circle, null if none
+	 */
+	public Organism getMarkedOrganism() {
+		
+		return displayMarker ? orgToFollow : null;
+	}
+
 	/**
 	 * @return the organismPanel
 	 */
@@ -133,18 +143,19 @@ public class OrganismDisplayCtlr {
 	}
 
 	/**
-	 * Display a circle around an organism to follow, if any.
+	 * Display a circle around an organism to follow, if any, at its position within a render snapshot.
 	 * 
 	 * @param g2d 		the Graphics2D object
+	 * @param snapshot	the render snapshot
 	 */
-	public void paintDisplayOrgArc(Graphics2D g2d) {
+	public void paintDisplayOrgArc(Graphics2D g2d, RenderSnapshot snapshot) {
 		
-		if (!displayMarker || orgToFollow == null) {
+		if (!snapshot.hasFollowed()) {
 			return;
 		}
 		g2d.setColor(DISPLAY_CROSS_COLOR);
-		int x = orgToFollow.getCenterX();
-		int y = orgToFollow.getCenterY();
+		int x = snapshot.getFollowedX();
+		int y = snapshot.getFollowedY();
 		g2d.drawArc(x - DISPLAY_CROSS_RADIUS + 1, y - DISPLAY_CROSS_RADIUS + 1, 
 				DISPLAY_CROSS_RADIUS * 2, DISPLAY_CROSS_RADIUS * 2, 0, 360);
 	}
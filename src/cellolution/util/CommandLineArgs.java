@@ -27,12 +27,32 @@ public class CommandLineArgs {
 	private boolean isValid;
 	/** the current index of the command line argument */
 	private int cliIndex;
+	/** the interval between autosaves in minutes, zero if autosave is off */
+	private int autosaveMinutes = 10;
+	/** the number of rotated backups of the autosave file */
+	private int autosaveBackups = 3;
+	/** the interval between checkpoints of the journal in seconds, zero if off, -1 for the default */
+	private int checkpointSeconds = -1;
 	/** flag if there will be verbose messages */
 	private boolean isVerbose = true;
 	/** example for an option T */
 	private boolean hasTOption;
+	/** flag if the simulation runs as fast as possible instead of real-time pacing */
+	private boolean isFast;
+	/** flag if the phases of the simulation steps are profiled */
+	private boolean isProfile;
+	/** flag if the simulation runs without GUI (batch mode) */
+	private boolean isHeadless;
+	/** the number of simulation steps in headless mode */
+	private long steps;
+	/** the file the simulation is written to in headless mode */
+	private String outFileName;
+	/** the master seed of the random streams of a new simulation, null for a random seed */
+	private Long seed;
 	/** an URL */
 	private String url;
+	/** the number of threads for parallel computations (e.g. diffusion), one for serial computation */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
 
 	/**
 	 * Construct CommandLineArgs using the command line arguments.
@@ -54,12 +74,120 @@ public class CommandLineArgs {
             } else if (args[cliIndex].equals("-v")) {
             	Version.print();
             	System.exit(0);
+            } else if (args[cliIndex].equals("-autosave")) {
+            	// needs one additional parameter (the interval in minutes)
+            	if (args.length - cliIndex < 2) {
+                   	isValid = false;
+                	return;
+				}
+            	try {
+                	autosaveMinutes = Integer.parseInt(args[++cliIndex]);
+				} catch (NumberFormatException e) {
+                   	isValid = false;
+                	return;
+				}
+            	if (autosaveMinutes < 0) {
+                   	isValid = false;
+                	return;
+				}
+            } else if (args[cliIndex].equals("-backups")) {
+            	// needs one additional parameter (the number of autosave backups)
+            	if (args.length - cliIndex < 2) {
+                   	isValid = false;
+                	return;
+				}
+            	try {
+                	autosaveBackups = Integer.parseInt(args[++cliIndex]);
+				} catch (NumberFormatException e) {
+                   	isValid = false;
+                	return;
+				}
+            	if (autosaveBackups < 0) {
+                   	isValid = false;
+                	return;
+				}
+            } else if (args[cliIndex].equals("-checkpoint")) {
+            	// needs one additional parameter (the interval in seconds)
+            	if (args.length - cliIndex < 2) {
+                   	isValid = false;
+                	return;
+				}
+            	try {
+                	checkpointSeconds = Integer.parseInt(args[++cliIndex]);
+				} catch (NumberFormatException e) {
+                   	isValid = false;
+                	return;
+				}
+            	if (checkpointSeconds < 0) {
+                   	isValid = false;
+                	return;
+				}
+            } else if (args[cliIndex].equals("-profile")) {
+            	// measure the phases of the simulation steps
+            	isProfile = true;
             } else if (args[cliIndex].equals("-q")) {
             	// quiet option
             	isVerbose = false;
+            } else if (args[cliIndex].equals("-fast")) {
+            	// as fast as possible, no real-time pacing
+            	isFast = true;
+            } else if (args[cliIndex].equals("-headless")) {
+            	// batch mode without GUI
+            	isHeadless = true;
+            } else if (args[cliIndex].equals("-seed")) {
+            	// needs one additional parameter (the seed)
+            	if (args.length - cliIndex < 2) {
+                   	isValid = false;
+                	return;
+				}
+            	try {
+                	seed = Long.parseLong(args[++cliIndex]);
+				} catch (NumberFormatException e) {
+                   	isValid = false;
+                	return;
+				}
+            } else if (args[cliIndex].equals("-steps")) {
+            	// needs one additional parameter (the number of steps)
+            	if (args.length - cliIndex < 2) {
+                   	isValid = false;
+                	return;
+				}
+            	try {
+                	steps = Long.parseLong(args[++cliIndex]);
+				} catch (NumberFormatException e) {
+                   	isValid = false;
+                	return;
+				}
+            	if (steps < 1) {
+                   	isValid = false;
+                	return;
+				}
+            } else if (args[cliIndex].equals("-out")) {
+            	// needs one additional parameter (the file name)
+            	if (args.length - cliIndex < 2) {
+                   	isValid = false;
+                	return;
+				}
+            	outFileName = args[++cliIndex];
             } else if (args[cliIndex].equals("-t")) {
             	// simple option
             	hasTOption = true;
+            } else if (args[cliIndex].equals("-threads")) {
+            	// needs one additional parameter (the number of threads)
+            	if (args.length - cliIndex < 2) {
+                   	isValid = false;
+                	return;
+				}
+            	try {
+                	threadCount = Integer.parseInt(args[++cliIndex]);
+				} catch (NumberFormatException e) {
+                   	isValid = false;
+                	return;
+				}
+            	if (threadCount < 1) {
+                   	isValid = false;
+                	return;
+				}
             } else if (args[cliIndex].equals("-url")) {
             	// needs one additional parameter (the URL)
             	if (args.length - cliIndex < 2) {
@@ -75,6 +203,15 @@ public class CommandLineArgs {
 	    }
 	    
 	    // checks for incompatibility
+	    if (isHeadless && steps == 0) {
+	    	// a headless simulation needs an end
+        	isValid = false;
+        	return;
+		}
+	    if (!isHeadless && (steps != 0 || outFileName != null)) {
+        	isValid = false;
+        	return;
+		}
 //	    if (hasTOption && url != null) {		// TODO  
 //        	isValid = false;
 //        	return;
@@ -83,6 +220,90 @@ public class CommandLineArgs {
 		isValid = true;
 	}
 
+	/**
+	 * @return the number of rotated backups of the autosave file
+	 */
+	public int getAutosaveBackups() {
+		
+		return autosaveBackups;
+	}
+
+	/**
+	 * @return the interval between autosaves in minutes, zero if autosave is off
+	 */
+	public int getAutosaveMinutes() {
+		
+		return autosaveMinutes;
+	}
+
+	/**
+	 * @return the interval between checkpoints of the journal in seconds, zero if off 
+	 * 			(default: off in headless mode)
+	 */
+	public int getCheckpointSeconds() {
+		
+		if (checkpointSeconds >= 0) {
+			return checkpointSeconds;
+		}
+		return isHeadless ? 0 : 60;
+	}
+
+	/**
+	 * @return the file the simulation is written to in headless mode, null for the default file
+	 */
+	public String getOutFileName() {
+		
+		return outFileName;
+	}
+
+	/**
+	 * @return the master seed of the random streams of a new simulation, null for a random seed
+	 */
+	public Long getSeed() {
+		
+		return seed;
+	}
+
+	/**
+	 * @return the number of simulation steps in headless mode
+	 */
+	public long getSteps() {
+		
+		return steps;
+	}
+
+	/**
+	 * @return the number of threads for parallel computations, one for serial computation
+	 */
+	public int getThreadCount() {
+		
+		return threadCount;
+	}
+
+	/**
+	 * @return true if the simulation runs without GUI (batch mode)
+	 */
+	public boolean isHeadless() {
+		
+		return isHeadless;
+	}
+
+	/**
+	 * @return true if the simulation runs as fast as possible, false for real-time pacing
+	 */
+	public boolean isFast() {
+		
+		return isFast;
+	}
+
+	/**
+	 * @return true if the phases of the simulation steps are profiled
+	 */
+	public boolean isProfile() {
+		
+		return isProfile;
+	}
+
 	/**
 	 * @return true if the command line parsing had no errors and incompatibilities, false otherwise
 	 */
@@ -21,21 +21,49 @@ import java.util.*;
 /**
  * A very fast integer random generator with the drawback of reused values - not important within this application.
  * It is based on java.utils.SplittableRandom.
- * Instances of FastRandom are not thread-safe, the static methods are never thread-safe.
  * Due to the implementation, this should be one of the fastest pseudo random generators ever.
  * The average cost is the method call with a return of buffer[i++] ^ changingValue. 
  * The buffer is repeated with another changingValue until it is filled again.
  * 
+ * All random values of a simulation are derived from one master seed (see init()), which makes a 
+ * simulation reproducible. Each subsystem uses its own stream (see Stream): the streams are independent 
+ * of each other, a subsystem drawing more or less values does not change the values of the others.
+ * A FastRandom instance is not thread-safe, each stream has to be used by one thread at a time.
+ * 
+ * <pre>
+ * Usage:
+ * 
+ * 	FastRandom.init(seed);										// once for each simulation
+ * 	FastRandom random = FastRandom.get(FastRandom.Stream.MOTION);
+ * 	int direction = random.nextInt(360);
+ * </pre>
+ * 
  * @see java.base/java.util.SplittableRandom
  */
 public class FastRandom {
 
 	/** the size of each of the two used buffers, therefore memory usage twice the buffer size  */
-	private static int RANDOM_BUFFER_SIZE = 10000;
+	private static final int RANDOM_BUFFER_SIZE = 10000;
+
+	/**
+	 * The subsystems using their own random stream.
+	 */
+	public enum Stream {
+		/** all subsystems without an own stream, e.g. the creation of the ocean, sunshine, replication */
+		GENERAL,
+		/** the rounding of the diffusion */
+		DIFFUSION,
+		/** the movement of organisms, e.g. Brownian motion */
+		MOTION,
+		/** the spawning of organisms, e.g. algae at the surface or H2S eaters at the smokers */
+		SPAWNING
+	}
+
+	/** the master seed all streams are derived from */
+	private static long masterSeed;
+	/** the streams of the subsystems, indexed by Stream.ordinal() */
+	private static FastRandom streams[];
 
-	/** singleton instance */
-	private static FastRandom instance;
-	
 	/** a buffer containing random values */
 	private int buffer[] = new int[RANDOM_BUFFER_SIZE];
 	/** a buffer containing random values for the XOR operation */
@@ -48,17 +76,17 @@ public class FastRandom {
 	private int bufferXorIndex;
 	/** the current XOR operation value */
 	private int valueXor;
-	/** a temporary variable */
-	private int temp;
-	
+
+	static {
+		init(new SplittableRandom().nextLong());			// until a simulation initializes its seed
+	}
+
 	/**
-	 * Construction.
+	 * Construction, with a random seed.
 	 */
 	public FastRandom() {
 
-		instance = this;
-		random = new SplittableRandom();
-		nextFill();
+		this(new SplittableRandom());
 	}
 	
 	/**
@@ -69,15 +97,59 @@ public class FastRandom {
 	 */
 	public FastRandom(long seed) {
 
-		instance = this;
-		random = new SplittableRandom(seed);
+		this(new SplittableRandom(seed));
+	}
+
+	/**
+	 * Construction using a SplittableRandom.
+	 * 
+	 * @param random		the source of the random values, exclusively used by this instance
+	 */
+	private FastRandom(SplittableRandom random) {
+
+		this.random = random;
 		nextFill();
 	}
 
 	/**
-	 * Returns a pseudorandomly chosen Gaussian distributed int value.
+	 * Returns the stream of a subsystem.
+	 * 
+	 * @param stream		the subsystem
+	 * @return the stream
+	 */
+	public static FastRandom get(Stream stream) {
+		
+		return streams[stream.ordinal()];
+	}
+
+	/**
+	 * @return the master seed all streams are derived from
+	 */
+	public static long getMasterSeed() {
+		
+		return masterSeed;
+	}
+
+	/**
+	 * (Re)initializes all streams, derived from a master seed. The same master seed produces the same 
+	 * random values in each of the streams. This has to be called before the subsystems get their streams.
+	 * 
+	 * @param masterSeed		the master seed
+	 */
+	public static synchronized void init(long masterSeed) {
+		
+		FastRandom.masterSeed = masterSeed;
+		SplittableRandom master = new SplittableRandom(masterSeed);
+		FastRandom newStreams[] = new FastRandom[Stream.values().length];
+		for (int i = 0; i < newStreams.length; i++) {
+			newStreams[i] = new FastRandom(master.split());
+		}
+		streams = newStreams;
+	}
+
+	/**
+	 * Returns a pseudorandomly chosen Gaussian distributed int value of the GENERAL stream.
 	 * The result is meanValue + nextGaussian() * normalDistribution, limited to minimum and maximum.
-	 * The statment new FastRandom() has to be called once before.
 	 * 
 	 * @param meanValue					the value of which the distribution takes place
 	 * @param normalDistribution		1.0 is the standard Gaussian distribution
@@ -88,7 +160,7 @@ public class FastRandom {
 	 */
 	public static int nextGaussian(double meanValue, double normalDistribution, int minimumValue, int maximumValue) {
 		
-		int result = (int) (meanValue + instance.random.nextGaussian() * normalDistribution);
+		int result = (int) (meanValue + get(Stream.GENERAL).random.nextGaussian() * normalDistribution);
 	    if (result < minimumValue) result = minimumValue;
 	    if (result > maximumValue) result = maximumValue;
 	    return result;
@@ -101,55 +173,44 @@ public class FastRandom {
 	 */
 	public int nextInt() {
 		
-		if (bufferIndex < RANDOM_BUFFER_SIZE) {
-			return buffer[bufferIndex++] ^ valueXor;
+		if (bufferIndex == RANDOM_BUFFER_SIZE) {
+			nextXor();
 		}
-		bufferIndex = 0;
-		if (bufferXorIndex < RANDOM_BUFFER_SIZE) {
-			valueXor = bufferXor[bufferXorIndex++];
-			return buffer[bufferIndex++] ^ valueXor;
-		}
-		nextFill();
 		return buffer[bufferIndex++] ^ valueXor;
 	}
 
 	/**
-	 * Returns a pseudorandomly chosen int value, as a static method.
-	 * The statment new FastRandom() has to be called once before.
+	 * Returns a pseudorandomly chosen int value of the GENERAL stream, as a static method.
 	 * 
 	 * @return a pseudorandomly chosen int value
 	 */
 	public static int nextIntStat() {
 		
-		return instance.nextInt();
+		return get(Stream.GENERAL).nextInt();
 	}
 
 	/**
 	 * Returns a pseudorandomly chosen int value between zero (inclusive) and a bound (exclusive).
+	 * The value is scaled by a multiplication instead of a division (no modulo, no sign test).
 	 * 
-	 * @param bound			the bound (exclusive)
+	 * @param bound			the bound (exclusive), greater than zero
 	 * @return a pseudorandomly chosen int value between zero (inclusive) and a bound (exclusive)
 	 */
 	public int nextInt(int bound) {
 		
-		if (bufferIndex < RANDOM_BUFFER_SIZE) {
-			temp = buffer[bufferIndex++] ^ valueXor;
-			return temp < 0 ? -temp % bound: temp % bound;
-		}
-		temp = nextInt();
-		return temp < 0 ? -temp % bound: temp % bound;
+		return (int) (((nextInt() & 0xffffffffL) * bound) >>> 32);
 	}
 
 	/**
-	 * Returns a pseudorandomly chosen int value between zero (inclusive) and a bound (exclusive).
-	 * The statment new FastRandom() has to be called once before.
+	 * Returns a pseudorandomly chosen int value of the GENERAL stream between zero (inclusive) 
+	 * and a bound (exclusive).
 	 * 
-	 * @param bound			the bound (exclusive)
+	 * @param bound			the bound (exclusive), greater than zero
 	 * @return a pseudorandomly chosen int value between zero (inclusive) and a bound (exclusive)
 	 */
 	public static int nextIntStat(int bound) {
 		
-		return instance.nextInt(bound);
+		return get(Stream.GENERAL).nextInt(bound);
 	}
 
 	/**
@@ -167,29 +228,17 @@ public class FastRandom {
 		bufferXorIndex = 0;
 		valueXor = bufferXor[bufferXorIndex++];
 	}
-	
-//	/**
-//	 * Tester.
-//	 * 
-//	 * @param arguments
-//	 */
-//	public static void main(String[] arguments) {
-//		
-//		try {
-//			int count[] = new int[100];
-//			FastRandom random = new FastRandom();
-//			
-//			for (int i = 0; i < 10000; i++) {
-//				int value = random.nextInt(1000);
-//				System.out.println(value);
-//				count[value / 100]++;
-//			}
-//			for (int i = 0; i < 10; i++) {
-//				System.out.println("i: " + i + " " + count[i]);
-//			}
-//		} catch (Exception e) {
-//			e.printStackTrace();
-//			System.exit(1);
-//		}		
-//	}
+
+	/**
+	 * The buffer is used up: repeat it with the next XOR value, or fill it again if all XOR values are used up.
+	 */
+	private void nextXor() {
+		
+		if (bufferXorIndex < RANDOM_BUFFER_SIZE) {
+			valueXor = bufferXor[bufferXorIndex++];
+			bufferIndex = 0;
+		} else {
+			nextFill();
+		}
+	}
 }
@@ -0,0 +1,302 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.util;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import org.json.*;
+
+/**
+ * A streaming JSON writer, emitting JSON text directly to a (buffered) Writer without building 
+ * a tree of JSONObjects. The output is the same as JSONObject.write(writer, 2, 0) of an ordered 
+ * JSONObject tree would produce: objects have one member per line, arrays with more than one element 
+ * have one element per line, an array with one element is written without line breaks, 
+ * compact int arrays (e.g. colors) are written on one line.
+ * 
+ * Keys are quoted once and then reused (they are the constants of Keys), values are written 
+ * without boxing. Objects with a single member are always written over several lines, 
+ * JSONObject writes them on one line if the value is no container.
+ * 
+ * <pre>
+ * Usage:
+ * 
+ * 	json.beginObject();
+ * 	json.key(Keys.COLUMN).value(column);
+ * 	json.key(Keys.CELLS).beginArray(cells.size());
+ * 	...
+ * 	json.endArray();
+ * 	json.endObject();
+ * </pre>
+ */
+public class JsonStreamWriter implements Closeable {
+
+	/** the number of spaces to add to each level of indentation */
+	private static final int INDENT_FACTOR = 2;
+	/** the maximum nesting depth of objects and arrays */
+	private static final int MAX_DEPTH = 32;
+	/** the quoted keys followed by a colon and a space, quoted once for all writers */
+	private static final ConcurrentHashMap<String, String> quotedKeys = new ConcurrentHashMap<>();
+
+	/** the writer of the JSON text */
+	private final Writer writer;
+	/** the current nesting depth, 0 at the top level */
+	private int depth;
+	/** the indentation of the closing bracket of each open object or array */
+	private final int indents[] = new int[MAX_DEPTH];
+	/** for each open object or array: true if it is an array, false if an object */
+	private final boolean isArray[] = new boolean[MAX_DEPTH];
+	/** for each open array: the number of elements announced by beginArray() */
+	private final int lengths[] = new int[MAX_DEPTH];
+	/** for each open object or array: the number of members or elements written */
+	private final int counts[] = new int[MAX_DEPTH];
+
+	/**
+	 * @param writer		the writer of the JSON text, should be buffered
+	 */
+	public JsonStreamWriter(Writer writer) {
+
+		this.writer = writer;
+	}
+
+	/**
+	 * Begins an array as member value or element, the number of elements has to be known in advance, 
+	 * since the layout of an array with one element is different.
+	 * 
+	 * @param length		the number of elements of the array
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter beginArray(int length) throws IOException {
+
+		beginContainer(true, length);
+		writer.write('[');
+		return this;
+	}
+
+	/**
+	 * Pushes an object or array, its indentation is the indentation of its elements.
+	 * 
+	 * @param array			true for an array, false for an object
+	 * @param length		the number of elements of an array
+	 * @throws IOException on an IO error
+	 */
+	private void beginContainer(boolean array, int length) throws IOException {
+
+		int indent = beginValue();
+		if (++depth == MAX_DEPTH) {
+			throw new IllegalStateException("JsonStreamWriter: nesting too deep");
+		}
+		indents[depth] = indent;
+		isArray[depth] = array;
+		lengths[depth] = length;
+		counts[depth] = 0;
+	}
+
+	/**
+	 * Begins an object as member value or element.
+	 * 
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter beginObject() throws IOException {
+
+		beginContainer(false, 0);
+		writer.write('{');
+		return this;
+	}
+
+	/**
+	 * Writes the separator and indentation before a value, if it is an element of an array.
+	 * 
+	 * @return the indentation of the value
+	 * @throws IOException on an IO error
+	 */
+	private int beginValue() throws IOException {
+
+		if (depth == 0) {
+			return 0;
+		}
+		if (!isArray[depth]) {
+			return indents[depth] + INDENT_FACTOR;		// the key has been written already
+		}
+		if (lengths[depth] == 1) {
+			counts[depth]++;
+			return indents[depth];						// a single element is not indented
+		}
+		if (counts[depth]++ > 0) {
+			writer.write(',');
+		}
+		writer.write('\n');
+		int indent = indents[depth] + INDENT_FACTOR;
+		indent(indent);
+		return indent;
+	}
+
+	/**
+	 * Closes the writer, including the underlying writer.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		writer.close();
+	}
+
+	/**
+	 * Ends the current array.
+	 * 
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter endArray() throws IOException {
+
+		if (counts[depth] != lengths[depth]) {
+			throw new IllegalStateException("JsonStreamWriter: " + counts[depth] + " array elements written, " 
+					+ lengths[depth] + " announced");
+		}
+		if (lengths[depth] > 1) {
+			writer.write('\n');
+			indent(indents[depth]);
+		}
+		writer.write(']');
+		depth--;
+		return this;
+	}
+
+	/**
+	 * Ends the current object.
+	 * 
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter endObject() throws IOException {
+
+		if (counts[depth] > 0) {
+			writer.write('\n');
+			indent(indents[depth]);
+		}
+		writer.write('}');
+		depth--;
+		return this;
+	}
+
+	/**
+	 * Writes spaces for indentation.
+	 * 
+	 * @param indent		the number of spaces
+	 * @throws IOException on an IO error
+	 */
+	private void indent(int indent) throws IOException {
+
+		for (int i = 0; i < indent; i++) {
+			writer.write(' ');
+		}
+	}
+
+	/**
+	 * Writes an array of ints on one line, e.g. a color as <code>[80,70,70]</code>.
+	 * 
+	 * @param values		the values
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter intArray(int... values) throws IOException {
+
+		beginValue();
+		writer.write('[');
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writer.write(Integer.toString(values[i]));
+		}
+		writer.write(']');
+		return this;
+	}
+
+	/**
+	 * Writes the key of the next member of the current object, the value has to follow.
+	 * 
+	 * @param key			the key, usually a constant of Keys
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter key(String key) throws IOException {
+
+		if (counts[depth]++ > 0) {
+			writer.write(',');
+		}
+		writer.write('\n');
+		indent(indents[depth] + INDENT_FACTOR);
+		writer.write(quotedKeys.computeIfAbsent(key, k -> JSONObject.quote(k) + ": "));
+		return this;
+	}
+
+	/**
+	 * Writes an enum value as its quoted name.
+	 * 
+	 * @param value			the value
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter value(Enum<?> value) throws IOException {
+
+		return value(value.name());
+	}
+
+	/**
+	 * Writes an int value.
+	 * 
+	 * @param value			the value
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter value(int value) throws IOException {
+
+		beginValue();
+		writer.write(Integer.toString(value));
+		return this;
+	}
+
+	/**
+	 * Writes a long value.
+	 * 
+	 * @param value			the value
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter value(long value) throws IOException {
+
+		beginValue();
+		writer.write(Long.toString(value));
+		return this;
+	}
+
+	/**
+	 * Writes a string value, quoted and escaped.
+	 * 
+	 * @param value			the value
+	 * @return this writer
+	 * @throws IOException on an IO error
+	 */
+	public JsonStreamWriter value(String value) throws IOException {
+
+		beginValue();
+		JSONObject.quote(value, writer);
+		return this;
+	}
+}
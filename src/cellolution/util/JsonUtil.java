@@ -17,6 +17,7 @@
 package cellolution.util;
 
 import java.awt.*;
+import java.io.*;
 
 import org.json.*;
 
@@ -83,4 +84,30 @@ public class JsonUtil {
 		JSONArray arr = jsonObject.getJSONArray(Keys.COLOR);
 		return new Color(arr.getInt(0), arr.getInt(1), arr.getInt(1)).getRGB();
 	}
+
+	/**
+	 * Writes a Color member to a JSON stream, the same way as addColorTo().
+	 * 
+	 * @param json			the JSON stream, within an object
+	 * @param rgb			the color as RGB value
+	 * @throws IOException on an IO error
+	 */
+	public static void writeColor(JsonStreamWriter json, int rgb) throws IOException {
+		
+		json.key(Keys.COLOR).intArray((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+	}
+
+	/**
+	 * Writes a column and a row member to a JSON stream, the same way as addColRowTo().
+	 * 
+	 * @param json			the JSON stream, within an object
+	 * @param column		the column
+	 * @param row			the row
+	 * @throws IOException on an IO error
+	 */
+	public static void writeColRow(JsonStreamWriter json, int column, int row) throws IOException {
+		
+		json.key(Keys.COLUMN).value(column);
+		json.key(Keys.ROW).value(row);
+	}
 }
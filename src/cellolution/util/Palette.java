@@ -0,0 +1,75 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.util;
+
+import java.util.function.*;
+
+/**
+ * A precomputed lookup table of RGB values, indexed by a quantized key (e.g. the energy of a cell 
+ * or the intensity of a sun beam). Colors are computed once at construction, looking up a 
+ * color does not allocate any objects.
+ * 
+ * <pre>
+ * Usage:
+ * 
+ * 	Palette palette = new Palette(50000, 100, energy -> new Color(energy / 200, 128, 0).getRGB());
+ * 	int rgb = palette.getRGB(12345);	// the RGB value computed for the key 12300
+ * </pre>
+ */
+public class Palette {
+	
+	/** the RGB values, one for each quantum of keys */
+	private final int rgbs[];
+	/** the range of keys sharing one RGB value */
+	private final int quantum;
+	
+	/**
+	 * Construction of a palette for the keys 0..maxKey, keys outside are clamped.
+	 * 
+	 * @param maxKey		the maximum key, greater keys use the RGB value of maxKey
+	 * @param quantum		the range of keys sharing one RGB value, at least 1
+	 * @param rgbOfKey		computes the RGB value of a key (called for the first key of each quantum)
+	 */
+	public Palette(int maxKey, int quantum, IntUnaryOperator rgbOfKey) {
+		
+		this.quantum = quantum;
+		rgbs = new int[maxKey / quantum + 1];
+		for (int i = 0; i < rgbs.length; i++) {
+			rgbs[i] = rgbOfKey.applyAsInt(i * quantum);
+		}
+	}
+
+	/**
+	 * Returns the RGB value of a key.
+	 * 
+	 * @param key		the key, clamped to 0..maxKey
+	 * @return the RGB value of the quantum the key belongs to
+	 */
+	public int getRGB(int key) {
+		
+		int i = key <= 0 ? 0 : key / quantum;
+		return rgbs[i < rgbs.length ? i : rgbs.length - 1];
+	}
+
+	/**
+	 * @return the number of RGB values of the palette
+	 */
+	public int size() {
+		
+		return rgbs.length;
+	}
+}
@@ -0,0 +1,159 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.util;
+
+import java.io.*;
+import java.util.zip.*;
+
+/**
+ * Encodes planes of byte values (e.g. the substance planes of the ocean) compactly: each plane is 
+ * delta coded along its index, then all planes are compressed by Deflate. Smooth planes (like 
+ * diffused substances) result in small deltas, which are compressed well by the Huffman coding 
+ * of Deflate alone: the string matching of Deflate gains about 10 percent, but takes about ten 
+ * times longer. Encoding runs on the background writer of the Autosave, but a slower encoding 
+ * delays the saves (and the checkpoints of the journal) for a small gain in size.
+ * 
+ * <pre>
+ * encoding:	format version (byte), plane count (byte), plane size (int), 
+ * 				then the Deflate stream of the delta coded planes, one after the other
+ * 
+ * delta:		delta[0] = value[0], delta[i] = value[i] - value[i - 1] (modulo 256)
+ * </pre>
+ * 
+ * Decoding inflates directly into the planes and restores the values in place, without any 
+ * intermediate copy or per value method calls.
+ */
+public class PlaneCodec {
+
+	/** the version of the encoding, increase it for incompatible changes */
+	public static final int FORMAT_VERSION = 1;
+
+	/** the size of the header of an encoding in bytes */
+	private static final int HEADER_SIZE = 1 + 1 + 4;
+	/** the size of the buffer of the compressed data */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Encodes planes: delta coding and Deflate.
+	 * 
+	 * @param planes		the planes, all of the same size
+	 * @return the encoded planes
+	 */
+	public static byte[] encode(byte planes[][]) {
+
+		int size = planes[0].length;
+		ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+		out.write(FORMAT_VERSION);
+		out.write(planes.length);
+		out.write(size >>> 24);
+		out.write(size >>> 16);
+		out.write(size >>> 8);
+		out.write(size);
+		byte delta[] = new byte[size];
+		byte buffer[] = new byte[BUFFER_SIZE];
+		Deflater deflater = new Deflater();
+		deflater.setStrategy(Deflater.HUFFMAN_ONLY);
+		try {
+			for (byte plane[] : planes) {
+				byte previous = 0;
+				for (int i = 0; i < size; i++) {
+					delta[i] = (byte) (plane[i] - previous);
+					previous = plane[i];
+				}
+				deflater.setInput(delta);
+				while (!deflater.needsInput()) {
+					out.write(buffer, 0, deflater.deflate(buffer));
+				}
+			}
+			deflater.finish();
+			while (!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+			}
+		} finally {
+			deflater.end();
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes planes into new planes, with the count and the size of the encoded planes.
+	 * 
+	 * @param encoded		the encoded planes
+	 * @return the decoded planes
+	 * @throws IOException if the encoding is corrupt
+	 */
+	public static byte[][] decode(byte encoded[]) throws IOException {
+
+		if (encoded.length < HEADER_SIZE || encoded[0] != FORMAT_VERSION || encoded[1] < 1 || sizeOf(encoded) < 1) {
+			throw new IOException("PlaneCodec: unknown encoding");
+		}
+		byte planes[][] = new byte[encoded[1]][sizeOf(encoded)];
+		decode(encoded, planes);
+		return planes;
+	}
+
+	/**
+	 * Decodes planes into existing planes, which must have the count and the size of the encoded planes.
+	 * 
+	 * @param encoded		the encoded planes
+	 * @param planes		the planes to decode into
+	 * @throws IOException if the encoding is corrupt or does not fit to the planes
+	 */
+	public static void decode(byte encoded[], byte planes[][]) throws IOException {
+
+		if (encoded.length < HEADER_SIZE || encoded[0] != FORMAT_VERSION) {
+			throw new IOException("PlaneCodec: unknown encoding");
+		}
+		int size = sizeOf(encoded);
+		if (encoded[1] != planes.length || size != planes[0].length) {
+			throw new IOException("PlaneCodec: " + encoded[1] + " planes of size " + size 
+					+ " encoded, expected " + planes.length + " planes of size " + planes[0].length);
+		}
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(encoded, HEADER_SIZE, encoded.length - HEADER_SIZE);
+			for (byte plane[] : planes) {
+				int length = 0;
+				while (length < size) {
+					int count = inflater.inflate(plane, length, size - length);
+					if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+						throw new IOException("PlaneCodec: encoding truncated");
+					}
+					length += count;
+				}
+				byte previous = 0;
+				for (int i = 0; i < size; i++) {
+					previous += plane[i];
+					plane[i] = previous;
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("PlaneCodec: corrupt encoding", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * @param encoded		the encoded planes
+	 * @return the size of each plane, from the header of the encoding
+	 */
+	private static int sizeOf(byte encoded[]) {
+
+		return (encoded[2] & 0xFF) << 24 | (encoded[3] & 0xFF) << 16 | (encoded[4] & 0xFF) << 8 | (encoded[5] & 0xFF);
+	}
+}
@@ -0,0 +1,165 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cellolution.util;
+
+import java.util.concurrent.*;
+
+/**
+ * Runs a computation over a range of ocean columns (or any other int range) split into stripes, 
+ * using a ForkJoinPool shared by the whole simulation.
+ * 
+ * Each stripe is computed by exactly one thread, therefore a computation writing only into its 
+ * own stripe (e.g. one value per column or pixel) gets the same result as a serial computation.
+ * If the thread count is one (or init() has not been called), all stripes are computed serially 
+ * by the calling thread.
+ * 
+ * <pre>
+ * Usage:
+ * 
+ * 	Stripes.init(8);
+ * 	Stripes.forEach(0, cellColumns, 8, (fromCol, toCol) -> computeColumns(fromCol, toCol));
+ * </pre>
+ */
+public class Stripes {
+
+	/** the number of stripes per thread, more stripes balance the work better */
+	private static final int STRIPES_PER_THREAD = 4;
+
+	/** the pool of threads computing the stripes, null if serial */
+	private static ForkJoinPool pool;
+	/** the number of threads computing the stripes */
+	private static int threadCount = 1;
+
+	/**
+	 * A computation of a stripe.
+	 */
+	@FunctionalInterface
+	public interface StripeTask {
+		
+		/**
+		 * Computes one stripe.
+		 * 
+		 * @param from		the start of the stripe (inclusive)
+		 * @param to		the end of the stripe (exclusive)
+		 */
+		void compute(int from, int to);
+	}
+
+	/**
+	 * A RecursiveAction splitting a range into halves until it has the size of a stripe.
+	 */
+	@SuppressWarnings("serial")
+	private static class StripeAction extends RecursiveAction {
+
+		/** the start of the range (inclusive) */
+		private final int from;
+		/** the end of the range (exclusive) */
+		private final int to;
+		/** the size of one stripe */
+		private final int stripeSize;
+		/** the computation of a stripe */
+		private final StripeTask task;
+
+		/**
+		 * @param from			the start of the range (inclusive)
+		 * @param to			the end of the range (exclusive)
+		 * @param stripeSize	the size of one stripe
+		 * @param task			the computation of a stripe
+		 */
+		StripeAction(int from, int to, int stripeSize, StripeTask task) {
+
+			this.from = from;
+			this.to = to;
+			this.stripeSize = stripeSize;
+			this.task = task;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (to - from <= stripeSize) {
+				task.compute(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new StripeAction(from, middle, stripeSize, task), 
+					new StripeAction(middle, to, stripeSize, task));
+		}
+	}
+
+	/**
+	 * Deny external construction.
+	 */
+	private Stripes() {
+		
+	}
+
+	/**
+	 * Computes a range split into stripes. The method returns after all stripes have been computed.
+	 * 
+	 * @param from				the start of the range (inclusive)
+	 * @param to				the end of the range (exclusive)
+	 * @param minStripeSize		the minimum size of a stripe, to avoid too much overhead for small stripes
+	 * @param task				the computation of a stripe
+	 */
+	public static void forEach(int from, int to, int minStripeSize, StripeTask task) {
+
+		if (to <= from) {
+			return;
+		}
+		int stripeSize = (to - from + threadCount * STRIPES_PER_THREAD - 1) / (threadCount * STRIPES_PER_THREAD);
+		stripeSize = stripeSize < minStripeSize ? minStripeSize : stripeSize;
+		if (pool == null || to - from <= stripeSize) {
+			task.compute(from, to);
+			return;
+		}
+		pool.invoke(new StripeAction(from, to, stripeSize, task));
+	}
+
+	/**
+	 * @return the number of threads computing the stripes
+	 */
+	public static int getThreadCount() {
+		
+		return threadCount;
+	}
+
+	/**
+	 * Initializes the thread pool, this should happen once at startup.
+	 * 
+	 * @param threadCount		the number of threads, one for serial computation
+	 */
+	public static synchronized void init(int threadCount) {
+
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		Stripes.threadCount = threadCount < 1 ? 1 : threadCount;
+		if (Stripes.threadCount > 1) {
+			pool = new ForkJoinPool(Stripes.threadCount);
+		}
+	}
+
+	/**
+	 * @return true if stripes are computed in parallel, false otherwise
+	 */
+	public static boolean isParallel() {
+		
+		return pool != null;
+	}
+}
@@ -41,10 +41,25 @@ public class Usage {
 		
         System.out.println("\n" + Main.APP_NAME + " usage:");
         System.out.println("java package.Main -t TEST_NUMBER [-url CONNECTION_URL]");
+        System.out.println("java package.Main -headless -steps <n> [-out <file>] [-autosave <minutes>]");
+        System.out.println("    -autosave <minutes> ... the interval of autosaves to " + Autosave.AUTOSAVE_FILE_NAME 
+        		+ ", 0 is off (default: 10)");
+        System.out.println("    -backups <n>... the number of rotated autosave backups, e.g. " 
+        		+ Autosave.backupFileName(Autosave.AUTOSAVE_FILE_NAME, 1) + " (default: 3)");
+        System.out.println("    -checkpoint <seconds> ... the interval of the journal " + CheckpointJournal.JOURNAL_FILE_NAME 
+        		+ " to recover a crash, 0 is off (default: 60, headless: 0)");
         System.out.println("    -h          ... display this message and exit");
         System.out.println("    -v          ... diplay version and exit");
+        System.out.println("    -fast       ... simulate as fast as possible (default: real-time pacing)");
+        System.out.println("    -headless   ... batch mode without GUI, runs as fast as possible, needs -steps");
+        System.out.println("    -out <file> ... headless: the simulation file written at the end (default: " 
+        		+ Main.SIM_DATA_FILE_NAME + "), a binary snapshot if the extension is " + SimSnapshot.FILE_EXTENSION);
+        System.out.println("    -profile    ... measure the phases of the simulation steps (toggle in the GUI: Statistics)");
         System.out.println("    -q          ... quiet, no verbose messages");
+        System.out.println("    -seed <n>   ... the seed of a new simulation, the same seed performs the same simulation");
+        System.out.println("    -steps <n>  ... headless: the number of simulation steps");
         System.out.println("    -t          ... do TTT");
+        System.out.println("    -threads <n>... number of threads for the simulation (default: number of processors)");
         System.out.println("    -url <url>  ... use XY");
         System.out.println("");
 	}
@@ -18,6 +18,7 @@ package cellolution.util;
 
 import java.io.*;
 import java.net.*;
+import java.nio.file.*;
 import java.text.*;
 import java.util.*;
 
@@ -254,6 +255,23 @@ public class Util {
 		file.renameTo(backupFile);
 	}
 
+	/**
+	 * Replaces a file by another one, e.g. by a completely written temporary file. The file is replaced 
+	 * atomically if the file system supports it: a reader sees either the old or the new file.
+	 * 
+	 * @param source		the file replacing the target, it is moved
+	 * @param target		the file to be replaced
+	 * @throws IOException on an IO error
+	 */
+	public static void replaceFile(Path source, Path target) throws IOException {
+
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
 	/**
 	 * Convenience method for Thread.sleep(millis).<br/>
 	 * 